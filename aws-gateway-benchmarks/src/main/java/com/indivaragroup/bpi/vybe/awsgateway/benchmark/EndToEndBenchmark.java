@@ -0,0 +1,53 @@
+package com.indivaragroup.bpi.vybe.awsgateway.benchmark;
+
+import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyRequestEvent;
+import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyResponseEvent;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@code AwsGatewayMain.apply} from request event to response event against the in-process
+ * upstream stub: routing, header filtering, the outbound call and response mapping.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EndToEndBenchmark {
+
+    private BenchmarkGateway gateway;
+    private APIGatewayProxyRequestEvent get;
+    private APIGatewayProxyRequestEvent post;
+    private APIGatewayProxyRequestEvent upload;
+
+    @Setup
+    public void setUp() throws Exception {
+        gateway = new BenchmarkGateway();
+        get = BenchmarkGateway.getRequest();
+        post = BenchmarkGateway.postRequest();
+        upload = BenchmarkGateway.uploadRequest(256 * 1024);
+    }
+
+    @TearDown
+    public void tearDown() {
+        gateway.close();
+    }
+
+    @Benchmark
+    public APIGatewayProxyResponseEvent get() {
+        return gateway.gateway().apply(get);
+    }
+
+    @Benchmark
+    public APIGatewayProxyResponseEvent post() {
+        return gateway.gateway().apply(post);
+    }
+
+    @Benchmark
+    public APIGatewayProxyResponseEvent multipartUpload() {
+        return gateway.gateway().apply(upload);
+    }
+}
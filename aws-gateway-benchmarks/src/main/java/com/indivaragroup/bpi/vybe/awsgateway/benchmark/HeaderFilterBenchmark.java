@@ -0,0 +1,49 @@
+package com.indivaragroup.bpi.vybe.awsgateway.benchmark;
+
+import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyRequestEvent;
+import com.indivaragroup.bpi.vybe.awsgateway.context.RequestContext;
+import com.indivaragroup.bpi.vybe.awsgateway.header.HeaderFilter;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link HeaderFilter#filter} on the header set a mobile client sends through API Gateway,
+ * with the default deny list.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HeaderFilterBenchmark {
+
+    private AnnotationConfigApplicationContext context;
+    private HeaderFilter headerFilter;
+    private Map<String, String> headers;
+    private RequestContext requestContext;
+
+    @Setup
+    public void setUp() {
+        context = new AnnotationConfigApplicationContext(HeaderFilter.class);
+        headerFilter = context.getBean(HeaderFilter.class);
+        headers = BenchmarkGateway.browserHeaders();
+        requestContext = RequestContext.start(new APIGatewayProxyRequestEvent()
+                                                      .withHttpMethod("GET")
+                                                      .withPath(BenchmarkGateway.GET_PATH)
+                                                      .withHeaders(headers));
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Map<String, String> filter() {
+        return headerFilter.filter(headers, requestContext);
+    }
+}
@@ -0,0 +1,124 @@
+package com.indivaragroup.bpi.vybe.awsgateway.benchmark;
+
+import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyRequestEvent;
+import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyResponseEvent;
+import com.indivaragroup.bpi.vybe.awsgateway.serverless.AwsGatewayMain;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Closed-loop load against {@code AwsGatewayMain.apply}: each worker thread sends the next request
+ * as soon as the previous one returns. After a warm-up, reports throughput, p50/p99/max latency
+ * and bytes allocated per request by the worker threads, as one {@code key=value} line that can
+ * be diffed between commits.
+ *
+ * <pre>java ... LoadHarness [get|post|upload] [threads] [seconds] [warmupSeconds]</pre>
+ */
+public class LoadHarness {
+
+    public static void main(String[] args) throws Exception {
+        String scenario = args.length > 0 ? args[0] : "get";
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : 8;
+        int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 20;
+        int warmupSeconds = args.length > 3 ? Integer.parseInt(args[3]) : 5;
+        Supplier<APIGatewayProxyRequestEvent> requests = requests(scenario);
+
+        try (BenchmarkGateway gateway = new BenchmarkGateway()) {
+            run(gateway.gateway(), requests, threads, warmupSeconds);
+            Result result = run(gateway.gateway(), requests, threads, seconds);
+            System.out.printf("scenario=%s threads=%d seconds=%d requests=%d errors=%d throughput=%.1f/s "
+                              + "p50=%.1fus p99=%.1fus max=%.1fus alloc=%d B/req%n",
+                              scenario, threads, seconds, result.requests, result.errors,
+                              result.requests / (double) seconds, result.percentileMicros(0.50),
+                              result.percentileMicros(0.99), result.percentileMicros(1.0),
+                              result.requests == 0 ? 0 : result.allocatedBytes / result.requests);
+        }
+    }
+
+    private static Supplier<APIGatewayProxyRequestEvent> requests(String scenario) {
+        switch (scenario) {
+            case "get":
+                return BenchmarkGateway::getRequest;
+            case "post":
+                return BenchmarkGateway::postRequest;
+            case "upload":
+                APIGatewayProxyRequestEvent upload = BenchmarkGateway.uploadRequest(256 * 1024);
+                return () -> upload;
+            default:
+                throw new IllegalArgumentException("Unknown scenario " + scenario + ", expected get, post or upload");
+        }
+    }
+
+    private static Result run(AwsGatewayMain gateway, Supplier<APIGatewayProxyRequestEvent> requests,
+                              int threads, int seconds) throws Exception {
+        com.sun.management.ThreadMXBean threadBean =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        ExecutorService workers = Executors.newFixedThreadPool(threads);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        AtomicLong errors = new AtomicLong();
+        AtomicLong allocated = new AtomicLong();
+
+        List<Future<long[]>> futures = new java.util.ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            futures.add(workers.submit(() -> {
+                long threadId = Thread.currentThread().getId();
+                long allocatedBefore = threadBean.getThreadAllocatedBytes(threadId);
+                long[] latencies = new long[1 << 16];
+                int count = 0;
+                while (System.nanoTime() < deadline) {
+                    APIGatewayProxyRequestEvent request = requests.get();
+                    long start = System.nanoTime();
+                    APIGatewayProxyResponseEvent response = gateway.apply(request);
+                    long elapsed = System.nanoTime() - start;
+                    if (response.getStatusCode() == null || response.getStatusCode() >= 400) {
+                        errors.incrementAndGet();
+                    }
+                    if (count == latencies.length) {
+                        latencies = Arrays.copyOf(latencies, count * 2);
+                    }
+                    latencies[count++] = elapsed;
+                }
+                allocated.addAndGet(threadBean.getThreadAllocatedBytes(threadId) - allocatedBefore);
+                return Arrays.copyOf(latencies, count);
+            }));
+        }
+
+        long[] all = new long[0];
+        for (Future<long[]> future : futures) {
+            long[] latencies = future.get();
+            int offset = all.length;
+            all = Arrays.copyOf(all, offset + latencies.length);
+            System.arraycopy(latencies, 0, all, offset, latencies.length);
+        }
+        workers.shutdown();
+        Arrays.sort(all);
+        return new Result(all, errors.get(), allocated.get());
+    }
+
+    private static final class Result {
+        private final long[] sortedLatencies;
+        private final long requests;
+        private final long errors;
+        private final long allocatedBytes;
+
+        private Result(long[] sortedLatencies, long errors, long allocatedBytes) {
+            this.sortedLatencies = sortedLatencies;
+            this.requests = sortedLatencies.length;
+            this.errors = errors;
+            this.allocatedBytes = allocatedBytes;
+        }
+
+        private double percentileMicros(double percentile) {
+            if (sortedLatencies.length == 0) {
+                return 0;
+            }
+            int index = (int) Math.ceil(percentile * sortedLatencies.length) - 1;
+            return sortedLatencies[Math.max(0, index)] / 1000.0;
+        }
+    }
+}
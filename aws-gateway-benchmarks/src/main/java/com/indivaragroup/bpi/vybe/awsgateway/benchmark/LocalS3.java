@@ -0,0 +1,80 @@
+package com.indivaragroup.bpi.vybe.awsgateway.benchmark;
+
+import com.amazonaws.services.s3.AbstractAmazonS3;
+import com.amazonaws.services.s3.model.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-process stand-in for the S3 calls made by the multipart uploader. Objects are read fully,
+ * like the SDK would send them, but only their sizes are kept.
+ */
+public class LocalS3 extends AbstractAmazonS3 {
+
+    private final AtomicLong objects = new AtomicLong();
+    private final AtomicLong bytes = new AtomicLong();
+    private final AtomicLong uploadIds = new AtomicLong();
+
+    @Override
+    public PutObjectResult putObject(String bucketName, String key, InputStream input, ObjectMetadata metadata) {
+        bytes.addAndGet(drain(input));
+        objects.incrementAndGet();
+        return new PutObjectResult();
+    }
+
+    @Override
+    public InitiateMultipartUploadResult initiateMultipartUpload(InitiateMultipartUploadRequest request) {
+        InitiateMultipartUploadResult result = new InitiateMultipartUploadResult();
+        result.setUploadId(Long.toString(uploadIds.incrementAndGet()));
+        return result;
+    }
+
+    @Override
+    public UploadPartResult uploadPart(UploadPartRequest request) {
+        bytes.addAndGet(drain(request.getInputStream()));
+        UploadPartResult result = new UploadPartResult();
+        result.setPartNumber(request.getPartNumber());
+        result.setETag("etag-" + request.getPartNumber());
+        return result;
+    }
+
+    @Override
+    public CompleteMultipartUploadResult completeMultipartUpload(CompleteMultipartUploadRequest request) {
+        objects.incrementAndGet();
+        return new CompleteMultipartUploadResult();
+    }
+
+    @Override
+    public void abortMultipartUpload(AbortMultipartUploadRequest request) {
+        // Nothing is kept, so there is nothing to discard
+    }
+
+    @Override
+    public void shutdown() {
+        // No connections to release
+    }
+
+    public long getObjectCount() {
+        return objects.get();
+    }
+
+    public long getByteCount() {
+        return bytes.get();
+    }
+
+    private static long drain(InputStream input) {
+        byte[] buffer = new byte[8192];
+        long total = 0;
+        try (InputStream in = input) {
+            for (int read; (read = in.read(buffer)) != -1; ) {
+                total += read;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return total;
+    }
+}
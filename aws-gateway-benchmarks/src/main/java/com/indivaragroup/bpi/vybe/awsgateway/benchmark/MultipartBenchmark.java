@@ -0,0 +1,50 @@
+package com.indivaragroup.bpi.vybe.awsgateway.benchmark;
+
+import com.indivaragroup.bpi.vybe.awsgateway.upload.MultipartS3Uploader;
+import com.indivaragroup.bpi.vybe.awsgateway.upload.UploadedPart;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link MultipartS3Uploader#upload}: base64 decoding, multipart parsing and streaming the file
+ * part to {@link LocalS3}, for single-request and multipart-upload object sizes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx1g")
+public class MultipartBenchmark {
+
+    private static final String CONTENT_TYPE = "multipart/form-data; boundary=" + BenchmarkGateway.BOUNDARY;
+
+    @Param({"65536", "1048576", "8388608"})
+    private int fileBytes;
+
+    private AnnotationConfigApplicationContext context;
+    private MultipartS3Uploader uploader;
+    private String body;
+
+    @Setup
+    public void setUp() {
+        context = new AnnotationConfigApplicationContext(MultipartS3Uploader.class,
+                                                         BenchmarkGateway.LocalS3Configuration.class);
+        uploader = context.getBean(MultipartS3Uploader.class);
+        body = BenchmarkGateway.multipartBody(fileBytes);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<UploadedPart> upload() throws IOException {
+        return uploader.upload(body, true, CONTENT_TYPE);
+    }
+}
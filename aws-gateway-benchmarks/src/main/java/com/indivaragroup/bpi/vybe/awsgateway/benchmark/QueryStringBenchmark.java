@@ -0,0 +1,40 @@
+package com.indivaragroup.bpi.vybe.awsgateway.benchmark;
+
+import com.indivaragroup.bpi.vybe.awsgateway.util.HttpUtils;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.UnsupportedEncodingException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link HttpUtils#appendQueryString} for typical parameter counts, including values that need
+ * percent-encoding.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class QueryStringBenchmark {
+
+    @Param({"0", "3", "10"})
+    private int parameters;
+
+    private Map<String, String> queryParams;
+
+    @Setup
+    public void setUp() {
+        queryParams = new LinkedHashMap<>();
+        for (int i = 0; i < parameters; i++) {
+            queryParams.put("param" + i, i % 2 == 0 ? "value-" + i : "a value/with&reserved=chars " + i);
+        }
+    }
+
+    @Benchmark
+    public String appendQueryString() throws UnsupportedEncodingException {
+        return HttpUtils.appendQueryString("http://upstream:8080/member/search", queryParams);
+    }
+}
@@ -0,0 +1,62 @@
+package com.indivaragroup.bpi.vybe.awsgateway.benchmark;
+
+import com.indivaragroup.bpi.vybe.awsgateway.routing.Route;
+import com.indivaragroup.bpi.vybe.awsgateway.routing.RoutePolicy;
+import com.indivaragroup.bpi.vybe.awsgateway.routing.RouteTable;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link RouteTable#match} on a table shaped like the production one: a dozen exact open paths,
+ * signature prefixes and a few templated member routes, plus paths that fall through to the
+ * default route.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RoutingBenchmark {
+
+    @Param({"/idp/auth/login", "/member/12345/profile", "/transactions/add-money/ng/confirm",
+            "/wallet/balance/history"})
+    private String path;
+
+    private RouteTable routeTable;
+
+    @Setup
+    public void setUp() {
+        List<Route> routes = new ArrayList<>();
+        String[] exact = {"/idp/auth/login", "/idp/notif", "/idp/member/forgot-password",
+                          "/idp/member/forgot-password/otp", "/idp/member/register/pro", "/idp/member/set-pin/pro",
+                          "/idp/member/register/lite", "/idp/member/set-mpin/lite", "/notification/otp/send",
+                          "/notification/otp/verify", "/idp/member/check", "/idp/notif/verify"};
+        for (String pattern : exact) {
+            routes.add(route(pattern, RoutePolicy.NONE));
+        }
+        String[] prefixes = {"/transactions/add-money/ng/**", "/transactions/add-money/other-bank/**",
+                             "/reference/**", "/config/**"};
+        for (String pattern : prefixes) {
+            routes.add(route(pattern, RoutePolicy.SIGNATURE));
+        }
+        String[] templates = {"/member/{id}", "/member/{id}/profile", "/member/{id}/devices/{deviceId}",
+                              "/wallet/{walletId}/balance"};
+        for (String pattern : templates) {
+            routes.add(route(pattern, RoutePolicy.TOKEN));
+        }
+        routeTable = new RouteTable(routes, route("/**", RoutePolicy.TOKEN));
+    }
+
+    @Benchmark
+    public Route match() {
+        return routeTable.match(path);
+    }
+
+    private static Route route(String pattern, RoutePolicy policy) {
+        return Route.builder().pattern(pattern).policy(policy).targetBaseUrl("http://upstream").build();
+    }
+}
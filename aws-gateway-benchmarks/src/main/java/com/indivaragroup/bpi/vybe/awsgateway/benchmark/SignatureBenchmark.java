@@ -0,0 +1,123 @@
+package com.indivaragroup.bpi.vybe.awsgateway.benchmark;
+
+import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyRequestEvent;
+import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyResponseEvent;
+import com.indivaragroup.bpi.vybe.awsgateway.signature.SignatureKeyProvider;
+import com.indivaragroup.bpi.vybe.awsgateway.signature.SignatureVerifier;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@link SignatureVerifier} against a per-call baseline that builds a new {@link Mac} for every
+ * request, copies the signed text into a String and a byte array, and compares hex Strings with
+ * {@code equals}. Requests are signed up front for each iteration; once the pool wraps around
+ * the verifier rejects them as replays, which still costs it the full digest.
+ *
+ * <pre>java -jar target/benchmarks.jar SignatureBenchmark</pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SignatureBenchmark {
+
+    private static final String KEY_ID = "bench";
+    private static final String SECRET = "benchmark-secret-0123456789abcdef";
+    private static final String PATH = "/add-money/ng/settle";
+    private static final int REQUEST_POOL = 1 << 14;
+
+    @Param({"512", "65536"})
+    private int bodyBytes;
+
+    private AnnotationConfigApplicationContext context;
+    private SignatureVerifier verifier;
+    private final AtomicLong nonces = new AtomicLong();
+    private String body;
+    private APIGatewayProxyRequestEvent[] requests;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        System.setProperty("gateway.signature.verifier.enabled", "true");
+        System.setProperty("gateway.signature.keys", KEY_ID + ":" + SECRET);
+        System.setProperty("gateway.signature.max-nonces", "10000000");
+        context = new AnnotationConfigApplicationContext(SignatureKeyProvider.class, SignatureVerifier.class);
+        verifier = context.getBean(SignatureVerifier.class);
+
+        StringBuilder builder = new StringBuilder("{\"amount\":\"1000.00\",\"reference\":\"");
+        while (builder.length() < bodyBytes - 2) {
+            builder.append('x');
+        }
+        body = builder.append("\"}").toString();
+    }
+
+    @Setup(Level.Iteration)
+    public void signRequests() throws Exception {
+        requests = new APIGatewayProxyRequestEvent[REQUEST_POOL];
+        for (int i = 0; i < requests.length; i++) {
+            requests[i] = signedRequest();
+        }
+        next = 0;
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public APIGatewayProxyResponseEvent signatureVerifier() {
+        return verifier.verify(nextRequest());
+    }
+
+    @Benchmark
+    public boolean perCallBaseline() throws Exception {
+        APIGatewayProxyRequestEvent request = nextRequest();
+        Map<String, String> headers = request.getHeaders();
+        String signed = headers.get("X-Timestamp") + "\n" + headers.get("X-Nonce") + "\n"
+                        + request.getPath() + "\n" + request.getBody();
+        Mac mac = Mac.getInstance("HmacSHA256");
+        mac.init(new SecretKeySpec(SECRET.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+        return hex(mac.doFinal(signed.getBytes(StandardCharsets.UTF_8))).equals(headers.get("X-Signature"));
+    }
+
+    private APIGatewayProxyRequestEvent nextRequest() {
+        APIGatewayProxyRequestEvent request = requests[next];
+        next = (next + 1) & (REQUEST_POOL - 1);
+        return request;
+    }
+
+    private APIGatewayProxyRequestEvent signedRequest() throws Exception {
+        String timestamp = String.valueOf(System.currentTimeMillis());
+        String nonce = Long.toString(nonces.incrementAndGet());
+        Mac mac = Mac.getInstance("HmacSHA256");
+        mac.init(new SecretKeySpec(SECRET.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+        String signature = hex(mac.doFinal(
+                (timestamp + "\n" + nonce + "\n" + PATH + "\n" + body).getBytes(StandardCharsets.UTF_8)));
+
+        Map<String, String> headers = new HashMap<>();
+        headers.put("X-Key-Id", KEY_ID);
+        headers.put("X-Timestamp", timestamp);
+        headers.put("X-Nonce", nonce);
+        headers.put("X-Signature", signature);
+        return new APIGatewayProxyRequestEvent().withPath(PATH).withBody(body).withHeaders(headers);
+    }
+
+    private static String hex(byte[] bytes) {
+        StringBuilder hex = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return hex.toString();
+    }
+}
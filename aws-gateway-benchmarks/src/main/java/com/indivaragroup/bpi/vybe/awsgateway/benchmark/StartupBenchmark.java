@@ -0,0 +1,82 @@
+package com.indivaragroup.bpi.vybe.awsgateway.benchmark;
+
+import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyRequestEvent;
+import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyResponseEvent;
+import com.indivaragroup.bpi.vybe.awsgateway.serverless.LightweightLambdaHandler;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Time-to-first-response of {@link LightweightLambdaHandler}. Each sample runs in a fresh JVM,
+ * measuring from JVM start (class loading, context build, priming) until the first proxied
+ * response comes back from a local upstream stub.
+ *
+ * <pre>java ... StartupBenchmark [forks]</pre>
+ */
+public class StartupBenchmark {
+
+    private static final String RESULT_PREFIX = "first-response-ms=";
+    private static final String OPEN_PATH = "/benchmark/open";
+
+    public static void main(String[] args) throws Exception {
+        if (args.length > 0 && "--child".equals(args[0])) {
+            runChild();
+            return;
+        }
+        int forks = args.length > 0 ? Integer.parseInt(args[0]) : 5;
+        List<Long> samples = new ArrayList<>();
+        try (UpstreamStub upstream = new UpstreamStub()) {
+            for (int i = 0; i < forks; i++) {
+                samples.add(fork(upstream.baseUrl()));
+            }
+        }
+        Collections.sort(samples);
+        System.out.printf("time-to-first-response over %d forks: min=%d ms, median=%d ms, max=%d ms%n",
+                          forks, samples.get(0), samples.get(samples.size() / 2), samples.get(samples.size() - 1));
+    }
+
+    private static long fork(String upstreamBaseUrl) throws Exception {
+        String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+        Process process = new ProcessBuilder(java,
+                "-cp", System.getProperty("java.class.path"),
+                "-Doutbound.baseUrl=" + upstreamBaseUrl,
+                "-Dgateway.routes[0].path=" + OPEN_PATH,
+                "-Dgateway.routes[0].policy=NONE",
+                "-Dlogging.access.enabled=false",
+                StartupBenchmark.class.getName(), "--child")
+                .redirectErrorStream(true)
+                .start();
+        long result = -1;
+        try (BufferedReader output = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
+            String line;
+            while ((line = output.readLine()) != null) {
+                if (line.startsWith(RESULT_PREFIX)) {
+                    result = Long.parseLong(line.substring(RESULT_PREFIX.length()));
+                }
+            }
+        }
+        if (process.waitFor() != 0 || result < 0) {
+            throw new IllegalStateException("Benchmark fork failed with exit code " + process.exitValue());
+        }
+        return result;
+    }
+
+    private static void runChild() {
+        long jvmStart = java.lang.management.ManagementFactory.getRuntimeMXBean().getStartTime();
+        APIGatewayProxyRequestEvent event = new APIGatewayProxyRequestEvent()
+                .withHttpMethod("GET")
+                .withPath(OPEN_PATH)
+                .withHeaders(Collections.singletonMap("Accept", "application/json"));
+        APIGatewayProxyResponseEvent response = new LightweightLambdaHandler().handleRequest(event, null);
+        if (response.getStatusCode() != 200) {
+            throw new IllegalStateException("Unexpected status " + response.getStatusCode());
+        }
+        System.out.println(RESULT_PREFIX + (System.currentTimeMillis() - jvmStart));
+        System.exit(0);
+    }
+}
@@ -0,0 +1,31 @@
+package com.indivaragroup.bpi.vybe.awsgateway.async;
+
+import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyRequestEvent;
+import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyResponseEvent;
+import com.indivaragroup.bpi.vybe.awsgateway.serverless.AwsGatewayMain;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.function.Function;
+
+/**
+ * Reactive entry point for running the gateway as a long-lived service. Each event is proxied
+ * through {@link AwsGatewayMain#applyAsync} so no thread waits on the upstream. With this bean
+ * present there are two functions in the context; select one with {@code function.name}.
+ */
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "outbound.execution-mode", havingValue = "async")
+public class AsyncGatewayFunction
+        implements Function<Flux<APIGatewayProxyRequestEvent>, Flux<APIGatewayProxyResponseEvent>> {
+
+    private final AwsGatewayMain awsGatewayMain;
+
+    @Override
+    public Flux<APIGatewayProxyResponseEvent> apply(Flux<APIGatewayProxyRequestEvent> events) {
+        return events.flatMap(event -> Mono.fromFuture(awsGatewayMain.applyAsync(event)));
+    }
+}
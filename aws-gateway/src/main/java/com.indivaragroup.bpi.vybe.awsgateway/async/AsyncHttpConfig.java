@@ -0,0 +1,53 @@
+package com.indivaragroup.bpi.vybe.awsgateway.async;
+
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.OkHttpClient;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * OkHttp client used when {@code outbound.execution-mode=async}. Calls are queued on the
+ * dispatcher instead of holding a caller thread for the whole upstream round-trip.
+ */
+@Configuration
+@ConditionalOnProperty(name = "outbound.execution-mode", havingValue = "async")
+public class AsyncHttpConfig {
+
+    @Value("${outbound.async.max-requests:512}")
+    private int maxRequests;
+    @Value("${outbound.async.max-requests-per-host:128}")
+    private int maxRequestsPerHost;
+    @Value("${outbound.async.max-idle-connections:64}")
+    private int maxIdleConnections;
+    @Value("${outbound.http.keep-alive-ms:30000}")
+    private long keepAliveMs;
+    @Value("${outbound.http.connect-timeout-ms:2000}")
+    private long connectTimeoutMs;
+    @Value("${outbound.http.socket-timeout-ms:25000}")
+    private long socketTimeoutMs;
+
+    @Bean(destroyMethod = "shutdown")
+    public Dispatcher asyncDispatcher() {
+        Dispatcher dispatcher = new Dispatcher();
+        dispatcher.setMaxRequests(maxRequests);
+        dispatcher.setMaxRequestsPerHost(maxRequestsPerHost);
+        return dispatcher;
+    }
+
+    @Bean
+    public OkHttpClient asyncHttpClient(Dispatcher asyncDispatcher) {
+        return new OkHttpClient.Builder()
+                .dispatcher(asyncDispatcher)
+                .connectionPool(new ConnectionPool(maxIdleConnections, keepAliveMs, TimeUnit.MILLISECONDS))
+                .connectTimeout(connectTimeoutMs, TimeUnit.MILLISECONDS)
+                .readTimeout(socketTimeoutMs, TimeUnit.MILLISECONDS)
+                .writeTimeout(socketTimeoutMs, TimeUnit.MILLISECONDS)
+                .retryOnConnectionFailure(false)
+                .build();
+    }
+}
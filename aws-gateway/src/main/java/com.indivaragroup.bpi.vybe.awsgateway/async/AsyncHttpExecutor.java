@@ -0,0 +1,182 @@
+package com.indivaragroup.bpi.vybe.awsgateway.async;
+
+import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyResponseEvent;
+import com.indivaragroup.bpi.vybe.awsgateway.body.RequestPayload;
+import com.indivaragroup.bpi.vybe.awsgateway.response.UpstreamResponseMapper;
+import com.indivaragroup.bpi.vybe.awsgateway.util.HttpUtils;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import okhttp3.*;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.SocketTimeoutException;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import static com.indivaragroup.bpi.vybe.awsgateway.error.ErrorUtils.createErrorResponse;
+
+/**
+ * Non-blocking counterpart of {@link com.indivaragroup.bpi.vybe.awsgateway.util.HttpUtils}.
+ * Requests beyond a host's {@code outbound.async.host-limits} entry are rejected with 503
+ * straight away instead of piling up in the dispatcher queue. Each call is bounded by the
+ * timeout it is given, covering the whole exchange, and answered with 504 when it runs out.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "outbound.execution-mode", havingValue = "async")
+public class AsyncHttpExecutor {
+
+    private static final RequestBody EMPTY_BODY = RequestBody.create(new byte[0], null);
+
+    private final OkHttpClient asyncHttpClient;
+    private final UpstreamResponseMapper responseMapper;
+
+    /** Comma separated {@code host:limit} pairs, e.g. {@code member.internal:200,txn.internal:50}. */
+    @Value("${outbound.async.host-limits:}")
+    private String hostLimits;
+
+    private final Map<String, Semaphore> hostPermits = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    void parseHostLimits() {
+        for (String entry : hostLimits.split(",")) {
+            int colon = entry.lastIndexOf(':');
+            if (colon > 0) {
+                hostPermits.put(entry.substring(0, colon).trim(),
+                                new Semaphore(Integer.parseInt(entry.substring(colon + 1).trim())));
+            }
+        }
+        log.info("Async outbound execution enabled, host limits : {}", hostPermits.keySet());
+    }
+
+    public CompletableFuture<APIGatewayProxyResponseEvent> execute(String method, String apiUrl,
+                                                                   Map<String, String> headers, RequestPayload payload,
+                                                                   Map<String, String> queryParams,
+                                                                   long timeoutMillis) {
+        Request request;
+        try {
+            request = buildRequest(method, apiUrl, headers, payload, queryParams);
+        } catch (IllegalArgumentException e) {
+            return CompletableFuture.completedFuture(UpstreamResponseMapper.gatewayError(400, e.getMessage()));
+        }
+
+        Semaphore permits = hostPermits.get(request.url().host());
+        if (permits != null && !permits.tryAcquire()) {
+            log.warn("Concurrency limit reached for upstream host {}", request.url().host());
+            return CompletableFuture.completedFuture(
+                    UpstreamResponseMapper.gatewayError(503, "Upstream concurrency limit reached"));
+        }
+
+        CompletableFuture<APIGatewayProxyResponseEvent> future = new CompletableFuture<>();
+        Call upstreamCall = asyncHttpClient.newCall(request);
+        if (timeoutMillis > 0) {
+            upstreamCall.timeout().timeout(timeoutMillis, TimeUnit.MILLISECONDS);
+        }
+        upstreamCall.enqueue(new Callback() {
+            @Override
+            public void onResponse(Call call, Response response) {
+                APIGatewayProxyResponseEvent result;
+                try (ResponseBody body = response.body()) {
+                    List<Map.Entry<String, String>> upstreamHeaders = new ArrayList<>(response.headers().size());
+                    for (kotlin.Pair<? extends String, ? extends String> header : response.headers()) {
+                        upstreamHeaders.add(new AbstractMap.SimpleImmutableEntry<>(header.getFirst(), header.getSecond()));
+                    }
+                    result = responseMapper.toResponseEvent(response.code(), upstreamHeaders,
+                            body != null ? body.byteStream() : null, body != null ? body.contentLength() : 0,
+                            headers);
+                } catch (IOException e) {
+                    log.error("Error while reading async HTTP {} response: {}", method, e.getMessage());
+                    result = failure(e);
+                } catch (RuntimeException e) {
+                    // The caller joins this future, so it must complete whatever went wrong
+                    log.error("Error while mapping async HTTP {} response", method, e);
+                    result = UpstreamResponseMapper.gatewayError(502, "Invalid upstream response");
+                } finally {
+                    release(permits);
+                }
+                // Completed after the permit is back, so a caller reacting to it gets a free slot
+                future.complete(result);
+            }
+
+            @Override
+            public void onFailure(Call call, IOException e) {
+                release(permits);
+                log.error("Error while making async HTTP {} request: {}", method, e.getMessage());
+                future.complete(failure(e));
+            }
+        });
+        return future;
+    }
+
+    /**
+     * Runs a blocking call (e.g. a multipart upload) off the caller thread.
+     */
+    public CompletableFuture<APIGatewayProxyResponseEvent> supplyBlocking(
+            Supplier<APIGatewayProxyResponseEvent> blockingCall) {
+        return CompletableFuture.supplyAsync(blockingCall, asyncHttpClient.dispatcher().executorService());
+    }
+
+    private static Request buildRequest(String method, String apiUrl, Map<String, String> headers,
+                                        RequestPayload payload, Map<String, String> queryParams) {
+        HttpUrl.Builder url = HttpUrl.get(apiUrl).newBuilder();
+        if (queryParams != null) {
+            queryParams.forEach(url::addQueryParameter);
+        }
+
+        Headers.Builder requestHeaders = new Headers.Builder();
+        if (headers != null) {
+            // The body carries the content type and OkHttp frames it
+            for (Map.Entry<String, String> entry : headers.entrySet()) {
+                if (!"Content-Type".equalsIgnoreCase(entry.getKey())
+                    && !"Content-Length".equalsIgnoreCase(entry.getKey())
+                    && !"Host".equalsIgnoreCase(entry.getKey())) {
+                    requestHeaders.addUnsafeNonAscii(entry.getKey(), entry.getValue());
+                }
+            }
+        }
+
+        RequestBody body = null;
+        if (!"GET".equals(method) && !"HEAD".equals(method)) {
+            if (payload != null && payload.hasBody()) {
+                body = RequestBody.create(payload.getBytes(), MediaType.parse(payload.getContentType()));
+            } else if ("POST".equals(method) || "PUT".equals(method) || "PATCH".equals(method)) {
+                body = EMPTY_BODY;
+            }
+        }
+        return new Request.Builder()
+                .url(url.build())
+                .headers(requestHeaders.build())
+                .method(method, body)
+                .build();
+    }
+
+    /**
+     * A call timeout surfaces as a bare {@link InterruptedIOException}, which means the
+     * deadline passed rather than that the upstream broke.
+     */
+    private static APIGatewayProxyResponseEvent failure(IOException e) {
+        if (e instanceof InterruptedIOException && !(e instanceof SocketTimeoutException)) {
+            return createErrorResponse(504, "504", "Upstream deadline exceeded");
+        }
+        return HttpUtils.upstreamFailure(e);
+    }
+
+    private static void release(Semaphore permits) {
+        if (permits != null) {
+            permits.release();
+        }
+    }
+}
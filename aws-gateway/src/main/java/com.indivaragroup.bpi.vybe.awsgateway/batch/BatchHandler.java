@@ -0,0 +1,345 @@
+package com.indivaragroup.bpi.vybe.awsgateway.batch;
+
+import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyRequestEvent;
+import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyResponseEvent;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.indivaragroup.bpi.vybe.awsgateway.context.RequestContext;
+import com.indivaragroup.bpi.vybe.awsgateway.metrics.ComponentStats;
+import com.indivaragroup.bpi.vybe.awsgateway.resilience.UpstreamResilience;
+import com.indivaragroup.bpi.vybe.awsgateway.util.HeaderUtils;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+import static com.indivaragroup.bpi.vybe.awsgateway.error.ErrorUtils.createErrorResponse;
+
+/**
+ * Fan-out endpoint, enabled with {@code gateway.batch.enabled=true}. A POST to
+ * {@code gateway.batch.path} carries
+ * <pre>
+ * {"requests":[{"id":"profile","method":"GET","path":"/member/profile","query":{},"headers":{},"body":...}]}
+ * </pre>
+ * and is answered with {@code {"responses":[{"id":...,"status":...,"headers":{...},"body":...}]}} in
+ * request order. Sub-requests inherit the envelope's headers, except the content headers and
+ * Accept-Encoding (which applies to the combined response, not to bodies embedded in it), and
+ * cannot replace its Authorization. At most {@code max-concurrency} of them run at once, the
+ * calling thread included, and all share one deadline: the invocation deadline capped at
+ * {@code deadline-ms}. Sub-requests still running or not started by then are reported as 504.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class BatchHandler implements ComponentStats {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final String AUTHORIZATION = "Authorization";
+    private static final String TRACEPARENT = "traceparent";
+    private static final Set<String> ENVELOPE_ONLY_HEADERS = new HashSet<>(Arrays.asList(
+            "content-type", "content-length", "content-encoding", "content-md5", "transfer-encoding",
+            "accept-encoding"));
+
+    private final UpstreamResilience upstreamResilience;
+
+    @Value("${gateway.batch.enabled:false}")
+    private boolean enabled;
+    @Value("${gateway.batch.path:/batch}")
+    private String path;
+    @Value("${gateway.batch.max-requests:10}")
+    private int maxRequests;
+    @Value("${gateway.batch.max-concurrency:4}")
+    private int maxConcurrency;
+    @Value("${gateway.batch.deadline-ms:10000}")
+    private long deadlineMs;
+    @Value("${gateway.batch.threads:32}")
+    private int threads;
+
+    private volatile ExecutorService workers;
+
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder subRequests = new LongAdder();
+    private final LongAdder deadlineExceeded = new LongAdder();
+
+    public boolean isBatchRequest(APIGatewayProxyRequestEvent event) {
+        return enabled && "POST".equals(event.getHttpMethod()) && path.equals(event.getPath());
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    /**
+     * Turns the envelope into one request event per entry, ready to be routed like a direct call.
+     *
+     * @throws IllegalArgumentException when the envelope is malformed or too large
+     */
+    public BatchRequest parse(APIGatewayProxyRequestEvent envelope, RequestContext context) {
+        JsonNode requests = readEnvelope(envelope).get("requests");
+        if (requests == null || !requests.isArray() || requests.size() == 0) {
+            throw new IllegalArgumentException("Batch must contain a non-empty \"requests\" array");
+        }
+        if (requests.size() > maxRequests) {
+            throw new IllegalArgumentException("Batch exceeds " + maxRequests + " requests");
+        }
+
+        Map<String, String> inherited = inheritedHeaders(envelope.getHeaders());
+        // Sub-requests are spans of the batch
+        inherited.put(TRACEPARENT, context.traceparent());
+
+        List<String> ids = new ArrayList<>(requests.size());
+        List<APIGatewayProxyRequestEvent> events = new ArrayList<>(requests.size());
+        for (int i = 0; i < requests.size(); i++) {
+            JsonNode request = requests.get(i);
+            ids.add(request.path("id").asText(String.valueOf(i)));
+            events.add(toEvent(request, i, inherited, envelope, context));
+        }
+        return new BatchRequest(ids, events);
+    }
+
+    /**
+     * The envelope headers sub-requests inherit: all but the content headers, Accept-Encoding and
+     * traceparent.
+     */
+    public Map<String, String> inheritedHeaders(Map<String, String> envelopeHeaders) {
+        Map<String, String> inherited = new HashMap<>();
+        if (envelopeHeaders != null) {
+            envelopeHeaders.forEach((name, value) -> {
+                String lowerName = name.toLowerCase(Locale.ROOT);
+                if (!ENVELOPE_ONLY_HEADERS.contains(lowerName) && !TRACEPARENT.equals(lowerName)) {
+                    inherited.put(name, value);
+                }
+            });
+        }
+        return inherited;
+    }
+
+    /**
+     * Runs every sub-request through {@code handler} and combines the outcomes.
+     */
+    public APIGatewayProxyResponseEvent execute(BatchRequest batch,
+                                                Function<APIGatewayProxyRequestEvent, APIGatewayProxyResponseEvent> handler) {
+        List<APIGatewayProxyRequestEvent> events = batch.getEvents();
+        batches.increment();
+        subRequests.add(events.size());
+        long deadline = Math.min(upstreamResilience.currentDeadline(), System.currentTimeMillis() + deadlineMs);
+        int count = events.size();
+        AtomicReferenceArray<APIGatewayProxyResponseEvent> responses = new AtomicReferenceArray<>(count);
+        AtomicInteger next = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(count);
+
+        Runnable worker = () -> {
+            // Past the deadline nothing new is started; unclaimed entries are reported as 504
+            while (System.currentTimeMillis() < deadline) {
+                int index = next.getAndIncrement();
+                if (index >= count) {
+                    return;
+                }
+                try {
+                    APIGatewayProxyRequestEvent event = events.get(index);
+                    responses.set(index, upstreamResilience.withDeadline(deadline, () -> handler.apply(event)));
+                } catch (RuntimeException e) {
+                    log.warn("Batch sub-request {} failed : {}", index, e.getMessage());
+                    responses.set(index, createErrorResponse(500, "500", e.getMessage()));
+                } finally {
+                    done.countDown();
+                }
+            }
+        };
+        int helpers = Math.min(count, Math.max(1, maxConcurrency)) - 1;
+        for (int i = 0; i < helpers; i++) {
+            try {
+                executor().execute(worker);
+            } catch (RejectedExecutionException e) {
+                // Pool exhausted by other batches; the calling thread carries on alone
+                break;
+            }
+        }
+        worker.run();
+        awaitUntil(done, deadline);
+
+        List<APIGatewayProxyResponseEvent> results = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            APIGatewayProxyResponseEvent response = responses.get(i);
+            if (response == null) {
+                deadlineExceeded.increment();
+                response = createErrorResponse(504, "504", "Batch deadline exceeded");
+            }
+            results.add(response);
+        }
+        return combine(batch.getIds(), results);
+    }
+
+    @Override
+    public String getStatsName() {
+        return "BatchHandler";
+    }
+
+    @Override
+    public Map<String, Long> getStats() {
+        Map<String, Long> stats = new LinkedHashMap<>();
+        stats.put("batches", batches.sum());
+        stats.put("subRequests", subRequests.sum());
+        stats.put("deadlineExceeded", deadlineExceeded.sum());
+        return stats;
+    }
+
+    @PreDestroy
+    void shutdown() {
+        if (workers != null) {
+            workers.shutdownNow();
+        }
+    }
+
+    private JsonNode readEnvelope(APIGatewayProxyRequestEvent envelope) {
+        String body = envelope.getBody();
+        if (body == null || body.isEmpty()) {
+            throw new IllegalArgumentException("Batch body is empty");
+        }
+        try {
+            return Boolean.TRUE.equals(envelope.getIsBase64Encoded())
+                    ? MAPPER.readTree(Base64.getDecoder().decode(body)) : MAPPER.readTree(body);
+        } catch (IOException | IllegalArgumentException e) {
+            throw new IllegalArgumentException("Batch body is not valid JSON");
+        }
+    }
+
+    private APIGatewayProxyRequestEvent toEvent(JsonNode request, int index, Map<String, String> inherited,
+                                                APIGatewayProxyRequestEvent envelope, RequestContext context) {
+        String target = request.path("path").asText(null);
+        if (target == null || !target.startsWith("/")) {
+            throw new IllegalArgumentException("Batch request " + index + " needs an absolute \"path\"");
+        }
+        if (target.equals(path)) {
+            throw new IllegalArgumentException("Batch requests cannot be nested");
+        }
+
+        Map<String, String> headers = new HashMap<>(inherited);
+        request.path("headers").fields().forEachRemaining(header -> {
+            if (!AUTHORIZATION.equalsIgnoreCase(header.getKey())
+                && !TRACEPARENT.equalsIgnoreCase(header.getKey())) {
+                String existing = HeaderUtils.findName(headers, header.getKey());
+                if (existing != null) {
+                    headers.remove(existing);
+                }
+                headers.put(header.getKey(), header.getValue().asText());
+            }
+        });
+
+        Map<String, String> query = null;
+        if (request.path("query").isObject()) {
+            query = new HashMap<>();
+            for (Iterator<Map.Entry<String, JsonNode>> it = request.get("query").fields(); it.hasNext(); ) {
+                Map.Entry<String, JsonNode> parameter = it.next();
+                query.put(parameter.getKey(), parameter.getValue().asText());
+            }
+        }
+
+        JsonNode body = request.get("body");
+        if (body != null && body.isContainerNode() && HeaderUtils.findName(headers, "Content-Type") == null) {
+            headers.put("Content-Type", "application/json");
+        }
+        APIGatewayProxyRequestEvent.ProxyRequestContext proxyContext = new APIGatewayProxyRequestEvent.ProxyRequestContext()
+                .withRequestId(context.getRequestId() + "-" + index);
+        if (envelope.getRequestContext() != null) {
+            proxyContext.setIdentity(envelope.getRequestContext().getIdentity());
+        }
+        return new APIGatewayProxyRequestEvent()
+                .withHttpMethod(request.path("method").asText("GET").toUpperCase(Locale.ROOT))
+                .withPath(target)
+                .withHeaders(headers)
+                .withQueryStringParameters(query)
+                .withBody(body == null || body.isNull() ? null : body.isTextual() ? body.asText() : body.toString())
+                .withIsBase64Encoded(false)
+                .withRequestContext(proxyContext);
+    }
+
+    private APIGatewayProxyResponseEvent combine(List<String> ids, List<APIGatewayProxyResponseEvent> results) {
+        ObjectNode root = MAPPER.createObjectNode();
+        ArrayNode items = root.putArray("responses");
+        for (int i = 0; i < results.size(); i++) {
+            APIGatewayProxyResponseEvent response = results.get(i);
+            ObjectNode item = items.addObject();
+            item.put("id", ids.get(i));
+            item.put("status", response.getStatusCode() != null ? response.getStatusCode() : 502);
+            item.set("headers", MAPPER.valueToTree(response.getHeaders() != null ? response.getHeaders() : Collections.emptyMap()));
+            if (response.getMultiValueHeaders() != null && !response.getMultiValueHeaders().isEmpty()) {
+                item.set("multiValueHeaders", MAPPER.valueToTree(response.getMultiValueHeaders()));
+            }
+            if (Boolean.TRUE.equals(response.getIsBase64Encoded())) {
+                item.put("isBase64Encoded", true);
+                item.put("body", response.getBody());
+            } else {
+                item.set("body", body(response));
+            }
+        }
+        try {
+            Map<String, String> headers = new HashMap<>();
+            headers.put("Content-Type", "application/json");
+            return new APIGatewayProxyResponseEvent()
+                    .withStatusCode(200)
+                    .withHeaders(headers)
+                    .withBody(MAPPER.writeValueAsString(root));
+        } catch (JsonProcessingException e) {
+            return createErrorResponse(500, "500", e.getMessage());
+        }
+    }
+
+    /**
+     * JSON bodies are embedded as JSON, anything else as a string.
+     */
+    private static JsonNode body(APIGatewayProxyResponseEvent response) {
+        String body = response.getBody();
+        if (body == null) {
+            return MAPPER.nullNode();
+        }
+        String contentType = HeaderUtils.getHeader(response.getHeaders(), "Content-Type");
+        if (contentType != null && contentType.contains("json")) {
+            try {
+                return MAPPER.readTree(body.getBytes(StandardCharsets.UTF_8));
+            } catch (IOException e) {
+                log.debug("Batch sub-response is not valid JSON, returning it as text : {}", e.getMessage());
+            }
+        }
+        return MAPPER.getNodeFactory().textNode(body);
+    }
+
+    private static void awaitUntil(CountDownLatch done, long deadline) {
+        try {
+            done.await(Math.max(0, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private ExecutorService executor() {
+        if (workers == null) {
+            synchronized (this) {
+                if (workers == null) {
+                    // No queue: a worker either starts now or the caller runs its share itself
+                    AtomicInteger counter = new AtomicInteger();
+                    workers = new ThreadPoolExecutor(0, threads, 60, TimeUnit.SECONDS, new SynchronousQueue<>(),
+                                                     runnable -> {
+                                                         Thread thread = new Thread(runnable, "gateway-batch-" + counter.incrementAndGet());
+                                                         thread.setDaemon(true);
+                                                         return thread;
+                                                     });
+                }
+            }
+        }
+        return workers;
+    }
+}
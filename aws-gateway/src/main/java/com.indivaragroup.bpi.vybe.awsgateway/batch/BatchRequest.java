@@ -0,0 +1,18 @@
+package com.indivaragroup.bpi.vybe.awsgateway.batch;
+
+import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyRequestEvent;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.util.List;
+
+/**
+ * A parsed batch envelope: the caller's ids and one request event per sub-request, in order.
+ */
+@Getter
+@RequiredArgsConstructor
+public class BatchRequest {
+
+    private final List<String> ids;
+    private final List<APIGatewayProxyRequestEvent> events;
+}
@@ -0,0 +1,78 @@
+package com.indivaragroup.bpi.vybe.awsgateway.batch;
+
+import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyRequestEvent;
+import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyResponseEvent;
+import com.indivaragroup.bpi.vybe.awsgateway.util.HeaderUtils;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+
+import static com.indivaragroup.bpi.vybe.awsgateway.error.ErrorUtils.createErrorResponse;
+
+/**
+ * Outcome of the one token validation done for a batch: its rejection, or the headers validation
+ * returned, replayed onto each TOKEN sub-request. The validated headers win over the sub-request's
+ * own, and a sub-request that sets one of them to a value of its own is rejected, so it can neither
+ * override nor pre-empt what validation established for the caller.
+ */
+public final class BatchToken {
+
+    private final APIGatewayProxyResponseEvent rejection;
+    private final String principal;
+    private final Map<String, String> envelopeHeaders;
+    private final Map<String, String> validatedHeaders;
+
+    /**
+     * @param principal        the caller identity validation established, if any
+     * @param envelopeHeaders  the inherited envelope headers as sent, before validation
+     * @param validatedHeaders the inherited envelope headers validation returned
+     */
+    public BatchToken(APIGatewayProxyResponseEvent rejection, String principal, Map<String, String> envelopeHeaders,
+                      Map<String, String> validatedHeaders) {
+        this.rejection = rejection;
+        this.principal = principal;
+        this.envelopeHeaders = envelopeHeaders;
+        this.validatedHeaders = validatedHeaders;
+    }
+
+    public String getPrincipal() {
+        return principal;
+    }
+
+    /**
+     * Returns {@code null} once the validated headers are on {@code eventFromGateway}, otherwise
+     * the response to send back instead.
+     */
+    public APIGatewayProxyResponseEvent applyTo(APIGatewayProxyRequestEvent eventFromGateway) {
+        if (rejection != null) {
+            return rejection;
+        }
+        Map<String, String> headers = eventFromGateway.getHeaders() != null
+                ? new HashMap<>(eventFromGateway.getHeaders()) : new HashMap<>();
+        for (Map.Entry<String, String> header : headers.entrySet()) {
+            String validated = HeaderUtils.getHeader(validatedHeaders, header.getKey());
+            // Inherited copies carry the envelope's value; anything else was set by the sub-request
+            if (validated != null && !validated.equals(header.getValue())
+                && !Objects.equals(header.getValue(), HeaderUtils.getHeader(envelopeHeaders, header.getKey()))) {
+                return createErrorResponse(400, "400", "Batch requests cannot set the " + header.getKey() + " header");
+            }
+        }
+        for (String name : envelopeHeaders.keySet()) {
+            removeIgnoringCase(headers, name);
+        }
+        validatedHeaders.forEach((name, value) -> {
+            removeIgnoringCase(headers, name);
+            headers.put(name, value);
+        });
+        eventFromGateway.setHeaders(headers);
+        return null;
+    }
+
+    private static void removeIgnoringCase(Map<String, String> headers, String name) {
+        String existing = HeaderUtils.findName(headers, name);
+        if (existing != null) {
+            headers.remove(existing);
+        }
+    }
+}
@@ -0,0 +1,346 @@
+package com.indivaragroup.bpi.vybe.awsgateway.body;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.*;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * A JSON Schema compiled once per route and checked against request bodies while they are
+ * parsed as a token stream, so no tree is built and validation stops at the first violation.
+ * Supports the keywords request contracts use: {@code type}, {@code properties},
+ * {@code required}, {@code additionalProperties}, {@code items}, {@code enum},
+ * {@code minLength}/{@code maxLength}, {@code pattern}, {@code minItems}/{@code maxItems},
+ * {@code minimum}/{@code maximum} and {@code exclusiveMinimum}/{@code exclusiveMaximum}
+ * (numeric form), plus the annotations {@code $schema}, {@code $id}, {@code title},
+ * {@code description}, {@code examples}, {@code default} and {@code format}, which are not
+ * checked. Any other keyword, e.g. {@code $ref}, {@code oneOf} or tuple {@code items}, fails
+ * compilation rather than being skipped, since ignoring it would accept bodies the schema rejects.
+ */
+final class JsonSchema {
+
+    private static final JsonFactory FACTORY = new JsonFactory();
+    private static final Object NULL = new Object();
+    private static final Set<String> KEYWORDS = new HashSet<>(Arrays.asList(
+            "$schema", "$id", "id", "title", "description", "examples", "default", "format",
+            "type", "properties", "required", "additionalProperties", "items", "enum",
+            "minLength", "maxLength", "pattern", "minItems", "maxItems",
+            "minimum", "maximum", "exclusiveMinimum", "exclusiveMaximum"));
+    private static final Set<String> TYPES = new HashSet<>(Arrays.asList(
+            "object", "array", "string", "number", "integer", "boolean", "null"));
+
+    private final Set<String> types;
+    private final String expectedTypes;
+    private final Map<String, JsonSchema> properties = new HashMap<>();
+    private final Map<String, Integer> required = new LinkedHashMap<>();
+    private final boolean additionalAllowed;
+    private final JsonSchema additionalSchema;
+    private final JsonSchema items;
+    private final Set<Object> enumValues;
+    private final int minLength;
+    private final int maxLength;
+    private final Pattern pattern;
+    private final int minItems;
+    private final int maxItems;
+    private final BigDecimal minimum;
+    private final BigDecimal maximum;
+    private final BigDecimal exclusiveMinimum;
+    private final BigDecimal exclusiveMaximum;
+
+    private JsonSchema(JsonNode node, String pointer) {
+        if (!node.isObject()) {
+            throw new IllegalArgumentException("Schema " + location(pointer) + " must be an object");
+        }
+        node.fieldNames().forEachRemaining(keyword -> {
+            if (!KEYWORDS.contains(keyword)) {
+                throw unsupported(pointer, keyword);
+            }
+        });
+
+        JsonNode type = node.get("type");
+        if (type == null) {
+            types = null;
+        } else {
+            types = new LinkedHashSet<>();
+            if (type.isArray()) {
+                type.forEach(value -> types.add(value.asText()));
+            } else {
+                types.add(type.asText());
+            }
+            if (!TYPES.containsAll(types)) {
+                throw new IllegalArgumentException("Schema " + location(pointer) + "/type has an unknown type " + types);
+            }
+        }
+        expectedTypes = types == null ? null : types.stream()
+                .map(name -> name.equals("null") ? name : (name.matches("[aeiou].*") ? "an " : "a ") + name)
+                .collect(Collectors.joining(" or "));
+        node.path("properties").fields().forEachRemaining(property -> properties.put(
+                property.getKey(), new JsonSchema(property.getValue(), pointer + "/properties/" + property.getKey())));
+        node.path("required").forEach(name -> required.put(name.asText(), required.size()));
+
+        JsonNode additional = node.get("additionalProperties");
+        additionalAllowed = additional == null || !additional.isBoolean() || additional.asBoolean();
+        additionalSchema = additional != null && additional.isObject()
+                ? new JsonSchema(additional, pointer + "/additionalProperties") : null;
+        if (node.path("items").isArray()) {
+            throw unsupported(pointer, "items (tuple form)");
+        }
+        items = node.has("items") ? new JsonSchema(node.get("items"), pointer + "/items") : null;
+
+        if (node.path("enum").isArray()) {
+            enumValues = new HashSet<>();
+            node.get("enum").forEach(value -> enumValues.add(normalize(value)));
+        } else {
+            enumValues = null;
+        }
+        minLength = count(node, "minLength", pointer, 0);
+        maxLength = count(node, "maxLength", pointer, Integer.MAX_VALUE);
+        pattern = node.has("pattern") ? Pattern.compile(node.get("pattern").asText()) : null;
+        minItems = count(node, "minItems", pointer, 0);
+        maxItems = count(node, "maxItems", pointer, Integer.MAX_VALUE);
+        minimum = decimal(node, "minimum", pointer);
+        maximum = decimal(node, "maximum", pointer);
+        exclusiveMinimum = decimal(node, "exclusiveMinimum", pointer);
+        exclusiveMaximum = decimal(node, "exclusiveMaximum", pointer);
+    }
+
+    /**
+     * @throws IllegalArgumentException when the schema uses a keyword or form this class cannot
+     *                                  enforce
+     */
+    static JsonSchema compile(JsonNode schema, String name) {
+        try {
+            return new JsonSchema(schema, "");
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException(name + " : " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Returns {@code null} when {@code json} conforms, otherwise a message naming the first
+     * violation and its JSON pointer.
+     */
+    String validate(byte[] json) {
+        try (JsonParser parser = FACTORY.createParser(json)) {
+            if (parser.nextToken() == null) {
+                return "Request body is empty";
+            }
+            Violation violation = validate(parser);
+            if (violation != null) {
+                return "Request body " + (violation.pointer.length() > 0 ? violation.pointer + " " : "")
+                       + violation.message;
+            }
+            return parser.nextToken() == null ? null : "Request body has trailing content";
+        } catch (IOException e) {
+            return "Request body is not valid JSON";
+        }
+    }
+
+    private Violation validate(JsonParser parser) throws IOException {
+        JsonToken token = parser.currentToken();
+        switch (token) {
+            case START_OBJECT:
+                return allows("object") ? validateObject(parser) : typeViolation(parser);
+            case START_ARRAY:
+                return allows("array") ? validateArray(parser) : typeViolation(parser);
+            case VALUE_STRING:
+                return allows("string") ? validateString(parser.getText()) : typeViolation(parser);
+            case VALUE_NUMBER_INT:
+            case VALUE_NUMBER_FLOAT:
+                return validateNumber(parser);
+            case VALUE_TRUE:
+            case VALUE_FALSE:
+                return allows("boolean") ? validateEnum(token == JsonToken.VALUE_TRUE) : typeViolation(parser);
+            case VALUE_NULL:
+                return allows("null") ? validateEnum(NULL) : typeViolation(parser);
+            default:
+                return new Violation("is not valid JSON");
+        }
+    }
+
+    private Violation validateObject(JsonParser parser) throws IOException {
+        boolean[] seen = required.isEmpty() ? null : new boolean[required.size()];
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.getCurrentName();
+            parser.nextToken();
+            Integer index = required.get(name);
+            if (index != null) {
+                seen[index] = true;
+            }
+            JsonSchema child = properties.get(name);
+            if (child == null) {
+                child = additionalSchema;
+            }
+            Violation violation;
+            if (child != null) {
+                violation = child.validate(parser);
+            } else if (additionalAllowed) {
+                parser.skipChildren();
+                continue;
+            } else {
+                violation = new Violation("is not an allowed property");
+            }
+            if (violation != null) {
+                return violation.under(name);
+            }
+        }
+        if (seen != null) {
+            for (Map.Entry<String, Integer> property : required.entrySet()) {
+                if (!seen[property.getValue()]) {
+                    return new Violation("is required").under(property.getKey());
+                }
+            }
+        }
+        return enumValues == null ? null : new Violation("is not one of the allowed values");
+    }
+
+    private Violation validateArray(JsonParser parser) throws IOException {
+        int count = 0;
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+            if (items != null) {
+                Violation violation = items.validate(parser);
+                if (violation != null) {
+                    return violation.under(String.valueOf(count));
+                }
+            } else {
+                parser.skipChildren();
+            }
+            count++;
+        }
+        if (count < minItems) {
+            return new Violation("must have at least " + minItems + " items");
+        }
+        if (count > maxItems) {
+            return new Violation("must have at most " + maxItems + " items");
+        }
+        return enumValues == null ? null : new Violation("is not one of the allowed values");
+    }
+
+    private Violation validateString(String value) {
+        if (minLength > 0 || maxLength < Integer.MAX_VALUE) {
+            int length = value.codePointCount(0, value.length());
+            if (length < minLength) {
+                return new Violation("must be at least " + minLength + " characters");
+            }
+            if (length > maxLength) {
+                return new Violation("must be at most " + maxLength + " characters");
+            }
+        }
+        if (pattern != null && !pattern.matcher(value).find()) {
+            return new Violation("does not match " + pattern.pattern());
+        }
+        return validateEnum(value);
+    }
+
+    private Violation validateNumber(JsonParser parser) throws IOException {
+        boolean integral = parser.currentToken() == JsonToken.VALUE_NUMBER_INT
+                           || !allows("number") && parser.getDecimalValue().stripTrailingZeros().scale() <= 0;
+        if (!allows("number") && !(allows("integer") && integral)) {
+            return typeViolation(parser);
+        }
+        if (minimum == null && maximum == null && exclusiveMinimum == null && exclusiveMaximum == null
+            && enumValues == null) {
+            return null;
+        }
+        BigDecimal value = parser.getDecimalValue();
+        if (minimum != null && value.compareTo(minimum) < 0) {
+            return new Violation("must be at least " + minimum.toPlainString());
+        }
+        if (maximum != null && value.compareTo(maximum) > 0) {
+            return new Violation("must be at most " + maximum.toPlainString());
+        }
+        if (exclusiveMinimum != null && value.compareTo(exclusiveMinimum) <= 0) {
+            return new Violation("must be greater than " + exclusiveMinimum.toPlainString());
+        }
+        if (exclusiveMaximum != null && value.compareTo(exclusiveMaximum) >= 0) {
+            return new Violation("must be less than " + exclusiveMaximum.toPlainString());
+        }
+        return validateEnum(value.stripTrailingZeros());
+    }
+
+    private Violation validateEnum(Object value) {
+        return enumValues == null || enumValues.contains(value) ? null : new Violation("is not one of the allowed values");
+    }
+
+    private boolean allows(String type) {
+        return types == null || types.contains(type);
+    }
+
+    /**
+     * Names the schema's types, not the value's: only called when {@code types} is set.
+     */
+    private Violation typeViolation(JsonParser parser) throws IOException {
+        parser.skipChildren();
+        return new Violation("must be " + expectedTypes);
+    }
+
+    private static Object normalize(JsonNode value) {
+        if (value.isNumber()) {
+            return value.decimalValue().stripTrailingZeros();
+        }
+        if (value.isBoolean()) {
+            return value.booleanValue();
+        }
+        if (value.isNull()) {
+            return NULL;
+        }
+        // Object and array members of an enum never match a streamed value
+        return value.isTextual() ? value.asText() : value;
+    }
+
+    private static BigDecimal decimal(JsonNode node, String keyword, String pointer) {
+        JsonNode value = node.get(keyword);
+        if (value == null) {
+            return null;
+        }
+        if (!value.isNumber()) {
+            // Also rejects the draft-04 boolean exclusiveMinimum/exclusiveMaximum
+            throw unsupported(pointer, keyword + " (non-numeric form)");
+        }
+        return value.decimalValue();
+    }
+
+    private static int count(JsonNode node, String keyword, String pointer, int absent) {
+        JsonNode value = node.get(keyword);
+        if (value == null) {
+            return absent;
+        }
+        if (!value.canConvertToInt() || !value.isIntegralNumber() || value.intValue() < 0) {
+            throw new IllegalArgumentException("Schema " + location(pointer) + "/" + keyword
+                                               + " must be a non-negative integer");
+        }
+        return value.intValue();
+    }
+
+    private static IllegalArgumentException unsupported(String pointer, String keyword) {
+        return new IllegalArgumentException("Schema " + location(pointer) + " uses unsupported keyword " + keyword);
+    }
+
+    private static String location(String pointer) {
+        return pointer.isEmpty() ? "root" : pointer;
+    }
+
+    /**
+     * The first violation found; its JSON pointer is built on the way back up, so valid bodies
+     * never pay for it.
+     */
+    private static final class Violation {
+        private final String message;
+        private String pointer = "";
+
+        private Violation(String message) {
+            this.message = message;
+        }
+
+        private Violation under(String name) {
+            pointer = "/" + name.replace("~", "~0").replace("/", "~1") + pointer;
+            return this;
+        }
+    }
+}
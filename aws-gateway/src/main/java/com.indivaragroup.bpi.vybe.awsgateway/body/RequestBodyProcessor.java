@@ -0,0 +1,199 @@
+package com.indivaragroup.bpi.vybe.awsgateway.body;
+
+import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyRequestEvent;
+import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyResponseEvent;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.indivaragroup.bpi.vybe.awsgateway.context.RequestContext;
+import com.indivaragroup.bpi.vybe.awsgateway.metrics.ComponentStats;
+import com.indivaragroup.bpi.vybe.awsgateway.metrics.Stage;
+import com.indivaragroup.bpi.vybe.awsgateway.routing.Route;
+import com.indivaragroup.bpi.vybe.awsgateway.routing.RouteOptionsValidator;
+import com.indivaragroup.bpi.vybe.awsgateway.upload.MultipartS3Uploader;
+import com.indivaragroup.bpi.vybe.awsgateway.util.HeaderUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import static com.indivaragroup.bpi.vybe.awsgateway.error.ErrorUtils.createErrorResponse;
+
+/**
+ * Turns the event body into the bytes sent upstream before any validation work. Base64 bodies
+ * are decoded and text bodies encoded as UTF-8, once. Bodies larger than the route's
+ * {@code body.max-bytes} option (default {@code gateway.body.max-bytes}) are rejected with 413,
+ * checked from the string length before anything is decoded where possible. A route with a
+ * {@code body.schema} option, e.g. {@code classpath:schemas/transfer.json} or a {@code file:}
+ * URL, has POST/PUT/PATCH bodies validated against that schema by {@link #checkSchema}, which
+ * runs after the route policy so unauthenticated callers cannot make the gateway parse JSON.
+ * Schemas are compiled when the route table is built; one that cannot be loaded, or uses a keyword
+ * {@link JsonSchema} cannot enforce, fails startup.
+ */
+@Slf4j
+@Component
+public class RequestBodyProcessor implements RouteOptionsValidator, ComponentStats {
+
+    public static final String MAX_BYTES_OPTION = "body.max-bytes";
+    public static final String SCHEMA_OPTION = "body.schema";
+
+    private static final String DEFAULT_TEXT_TYPE = "text/plain; charset=UTF-8";
+    private static final String DEFAULT_BINARY_TYPE = "application/octet-stream";
+    private static final Set<String> METHODS_WITH_BODY = new HashSet<>(Arrays.asList("POST", "PUT", "PATCH"));
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final ResourceLoader resourceLoader = new DefaultResourceLoader();
+
+    /** API Gateway's own payload limit. */
+    @Value("${gateway.body.max-bytes:10485760}")
+    private long defaultMaxBytes;
+
+    private final Map<Route, BodyRules> rules = new ConcurrentHashMap<>();
+    private final LongAdder tooLarge = new LongAdder();
+    private final LongAdder invalid = new LongAdder();
+
+    @Override
+    public void validate(Route route) {
+        rules.computeIfAbsent(route, this::compile);
+    }
+
+    public RequestPayload process(Route route, APIGatewayProxyRequestEvent event, RequestContext context) {
+        BodyRules bodyRules = rules.computeIfAbsent(route, this::compile);
+        String body = event.getBody();
+        if (body == null) {
+            if (bodyRules.schemaLocation != null && METHODS_WITH_BODY.contains(event.getHttpMethod())) {
+                invalid.increment();
+                return RequestPayload.rejected(createErrorResponse(400, "400", "Request body is required"));
+            }
+            return RequestPayload.NONE;
+        }
+        context.mark();
+        try {
+            return decodeAndCheck(bodyRules, event, body);
+        } finally {
+            context.lap(Stage.BODY);
+        }
+    }
+
+    /**
+     * Validates the body decoded by {@link #process} against the route's schema. Returns
+     * {@code null} when the request may be forwarded, otherwise the response rejecting it.
+     */
+    public APIGatewayProxyResponseEvent checkSchema(Route route, APIGatewayProxyRequestEvent event,
+                                                    RequestPayload payload, RequestContext context) {
+        BodyRules bodyRules = rules.computeIfAbsent(route, this::compile);
+        if (bodyRules.schemaLocation == null || payload.getBytes() == null
+            || !METHODS_WITH_BODY.contains(event.getHttpMethod())) {
+            return null;
+        }
+        String mediaType = HeaderUtils.mediaType(HeaderUtils.getHeader(event.getHeaders(), "Content-Type"));
+        if (mediaType != null && !mediaType.contains("json")) {
+            invalid.increment();
+            return createErrorResponse(415, "415", "Request body must be JSON");
+        }
+        context.mark();
+        String violation;
+        try {
+            violation = bodyRules.schema.validate(payload.getBytes());
+        } finally {
+            context.lap(Stage.BODY);
+        }
+        if (violation != null) {
+            invalid.increment();
+            return createErrorResponse(400, "400", violation);
+        }
+        return null;
+    }
+
+    @Override
+    public String getStatsName() {
+        return "RequestBodyProcessor";
+    }
+
+    @Override
+    public Map<String, Long> getStats() {
+        Map<String, Long> stats = new LinkedHashMap<>();
+        stats.put("tooLarge", tooLarge.sum());
+        stats.put("invalid", invalid.sum());
+        return stats;
+    }
+
+    private RequestPayload decodeAndCheck(BodyRules bodyRules, APIGatewayProxyRequestEvent event, String body) {
+        boolean base64 = Boolean.TRUE.equals(event.getIsBase64Encoded());
+        String contentType = HeaderUtils.getHeader(event.getHeaders(), "Content-Type");
+        // A UTF-8 body is at least one byte per char, a base64 one three bytes per four chars
+        long minimumBytes = base64 ? decodedLength(body) : body.length();
+        if (minimumBytes > bodyRules.maxBytes) {
+            return tooLarge(bodyRules);
+        }
+        if (bodyRules.uploadsToS3 && "multipart/form-data".equals(HeaderUtils.mediaType(contentType))) {
+            // Streamed to S3 from the event body
+            return RequestPayload.NONE;
+        }
+
+        byte[] bytes;
+        try {
+            bytes = base64 ? Base64.getDecoder().decode(body) : body.getBytes(StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            invalid.increment();
+            return RequestPayload.rejected(createErrorResponse(400, "400", "Request body is not valid base64"));
+        }
+        if (bytes.length > bodyRules.maxBytes) {
+            return tooLarge(bodyRules);
+        }
+
+        return RequestPayload.of(bytes, contentType != null ? contentType : base64 ? DEFAULT_BINARY_TYPE : DEFAULT_TEXT_TYPE);
+    }
+
+    private RequestPayload tooLarge(BodyRules bodyRules) {
+        tooLarge.increment();
+        return RequestPayload.rejected(createErrorResponse(
+                413, "413", "Request body exceeds " + bodyRules.maxBytes + " bytes"));
+    }
+
+    private BodyRules compile(Route route) {
+        long maxBytes = route.getLongOption(MAX_BYTES_OPTION, defaultMaxBytes);
+        if (maxBytes <= 0) {
+            throw route.invalidOption(MAX_BYTES_OPTION, String.valueOf(maxBytes), "greater than 0");
+        }
+        boolean uploadsToS3 = route.getBooleanOption(MultipartS3Uploader.S3_OPTION);
+        String location = route.getOption(SCHEMA_OPTION, null);
+        if (location == null) {
+            return new BodyRules(maxBytes, uploadsToS3, null, null);
+        }
+        Resource resource = resourceLoader.getResource(location.trim());
+        try (InputStream in = resource.getInputStream()) {
+            JsonSchema schema = JsonSchema.compile(MAPPER.readTree(in), location);
+            log.info("Body schema for {} : {}", route.getPattern(), location);
+            return new BodyRules(maxBytes, uploadsToS3, location, schema);
+        } catch (IOException | RuntimeException e) {
+            throw route.invalidOption(SCHEMA_OPTION, location, "a loadable JSON Schema (" + e.getMessage() + ")");
+        }
+    }
+
+    private static long decodedLength(String base64) {
+        int padding = base64.endsWith("==") ? 2 : base64.endsWith("=") ? 1 : 0;
+        return (long) base64.length() / 4 * 3 - padding;
+    }
+
+    private static final class BodyRules {
+        private final long maxBytes;
+        private final boolean uploadsToS3;
+        private final String schemaLocation;
+        private final JsonSchema schema;
+
+        private BodyRules(long maxBytes, boolean uploadsToS3, String schemaLocation, JsonSchema schema) {
+            this.maxBytes = maxBytes;
+            this.uploadsToS3 = uploadsToS3;
+            this.schemaLocation = schemaLocation;
+            this.schema = schema;
+        }
+    }
+}
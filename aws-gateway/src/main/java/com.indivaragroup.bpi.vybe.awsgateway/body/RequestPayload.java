@@ -0,0 +1,34 @@
+package com.indivaragroup.bpi.vybe.awsgateway.body;
+
+import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyResponseEvent;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Outcome of {@link RequestBodyProcessor}: the body bytes to forward with their content type, or
+ * the response rejecting the request. Multipart bodies carry no bytes here, since they are
+ * streamed to S3 from the event itself.
+ */
+@Getter
+@RequiredArgsConstructor(access = AccessLevel.PRIVATE)
+public class RequestPayload {
+
+    public static final RequestPayload NONE = new RequestPayload(null, null, null);
+
+    private final byte[] bytes;
+    private final String contentType;
+    private final APIGatewayProxyResponseEvent rejection;
+
+    static RequestPayload of(byte[] bytes, String contentType) {
+        return new RequestPayload(bytes, contentType, null);
+    }
+
+    static RequestPayload rejected(APIGatewayProxyResponseEvent rejection) {
+        return new RequestPayload(null, null, rejection);
+    }
+
+    public boolean hasBody() {
+        return bytes != null && bytes.length > 0;
+    }
+}
@@ -0,0 +1,82 @@
+package com.indivaragroup.bpi.vybe.awsgateway.cache;
+
+import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyResponseEvent;
+import lombok.Getter;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * An immutable copy of a cacheable upstream response and its freshness window. Entries are
+ * replaced, never updated in place, so they can be shared between threads and stores.
+ */
+@Getter
+public class CachedResponse {
+
+    private final int statusCode;
+    private final Map<String, String> headers;
+    private final String body;
+    private final boolean base64Encoded;
+    private final String etag;
+    private final long freshUntilMillis;
+    private final long staleUntilMillis;
+
+    public CachedResponse(APIGatewayProxyResponseEvent response, String etag, long freshUntilMillis,
+                          long staleUntilMillis) {
+        this.statusCode = response.getStatusCode();
+        this.headers = response.getHeaders() == null
+                ? Collections.emptyMap() : Collections.unmodifiableMap(new HashMap<>(response.getHeaders()));
+        this.body = response.getBody();
+        this.base64Encoded = Boolean.TRUE.equals(response.getIsBase64Encoded());
+        this.etag = etag;
+        this.freshUntilMillis = freshUntilMillis;
+        this.staleUntilMillis = staleUntilMillis;
+    }
+
+    private CachedResponse(CachedResponse source, long freshUntilMillis, long staleUntilMillis) {
+        this.statusCode = source.statusCode;
+        this.headers = source.headers;
+        this.body = source.body;
+        this.base64Encoded = source.base64Encoded;
+        this.etag = source.etag;
+        this.freshUntilMillis = freshUntilMillis;
+        this.staleUntilMillis = staleUntilMillis;
+    }
+
+    /**
+     * Same response with a new freshness window, after the upstream confirmed it with a 304.
+     */
+    public CachedResponse renew(long freshUntilMillis, long staleUntilMillis) {
+        return new CachedResponse(this, freshUntilMillis, staleUntilMillis);
+    }
+
+    public boolean isFresh(long nowMillis) {
+        return nowMillis < freshUntilMillis;
+    }
+
+    public boolean isUsableStale(long nowMillis) {
+        return nowMillis < staleUntilMillis;
+    }
+
+    /**
+     * Approximate heap footprint, used to bound the store by bytes.
+     */
+    public long weight() {
+        long weight = 64L + (body != null ? 2L * body.length() : 0);
+        for (Map.Entry<String, String> header : headers.entrySet()) {
+            weight += 2L * (header.getKey().length() + header.getValue().length());
+        }
+        return weight;
+    }
+
+    public APIGatewayProxyResponseEvent toResponse(String cacheStatus) {
+        Map<String, String> responseHeaders = new HashMap<>(headers);
+        responseHeaders.put("X-Cache", cacheStatus);
+        return new APIGatewayProxyResponseEvent()
+                .withStatusCode(statusCode)
+                .withHeaders(responseHeaders)
+                .withBody(body)
+                .withIsBase64Encoded(base64Encoded);
+    }
+}
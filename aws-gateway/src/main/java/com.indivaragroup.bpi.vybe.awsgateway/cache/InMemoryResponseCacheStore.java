@@ -0,0 +1,66 @@
+package com.indivaragroup.bpi.vybe.awsgateway.cache;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Least-recently-used store bounded by entry count and by the approximate size of the cached
+ * bodies ({@code gateway.response-cache.max-entries} / {@code max-bytes}).
+ */
+@Component
+public class InMemoryResponseCacheStore implements ResponseCacheStore {
+
+    @Value("${gateway.response-cache.max-entries:10000}")
+    private int maxEntries;
+    @Value("${gateway.response-cache.max-bytes:33554432}")
+    private long maxBytes;
+
+    private final Map<String, CachedResponse> entries = new LinkedHashMap<>(256, 0.75f, true);
+    private long totalWeight;
+
+    @Override
+    public synchronized CachedResponse get(String key) {
+        return entries.get(key);
+    }
+
+    @Override
+    public synchronized void put(String key, CachedResponse response) {
+        long weight = response.weight();
+        if (weight > maxBytes) {
+            return;
+        }
+        CachedResponse previous = entries.put(key, response);
+        if (previous != null) {
+            totalWeight -= previous.weight();
+        }
+        totalWeight += weight;
+
+        Iterator<CachedResponse> eldest = entries.values().iterator();
+        while ((entries.size() > maxEntries || totalWeight > maxBytes) && eldest.hasNext()) {
+            totalWeight -= eldest.next().weight();
+            eldest.remove();
+        }
+    }
+
+    @Override
+    public synchronized void remove(String key) {
+        CachedResponse removed = entries.remove(key);
+        if (removed != null) {
+            totalWeight -= removed.weight();
+        }
+    }
+
+    @Override
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    @Override
+    public synchronized long weight() {
+        return totalWeight;
+    }
+}
@@ -0,0 +1,372 @@
+package com.indivaragroup.bpi.vybe.awsgateway.cache;
+
+import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyRequestEvent;
+import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyResponseEvent;
+import com.indivaragroup.bpi.vybe.awsgateway.metrics.ComponentStats;
+import com.indivaragroup.bpi.vybe.awsgateway.routing.Route;
+import com.indivaragroup.bpi.vybe.awsgateway.routing.RouteOptionsValidator;
+import com.indivaragroup.bpi.vybe.awsgateway.routing.RoutePolicy;
+import com.indivaragroup.bpi.vybe.awsgateway.serverless.LambdaContextHolder;
+import com.indivaragroup.bpi.vybe.awsgateway.util.HeaderUtils;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Opt-in cache for GET routes. A route is cached when it sets the {@code cache.ttl-seconds}
+ * option; {@code cache.stale-seconds} allows serving an expired entry while it is refreshed in
+ * the background, {@code cache.vary} lists request headers that select distinct entries and
+ * entries are keyed by the caller's Authorization header on {@code TOKEN} routes, and on others
+ * that set {@code cache.per-principal=true}. A {@code TOKEN} route shares entries across callers
+ * only with an explicit {@code cache.per-principal=false}.
+ *
+ * <p>Upstream {@code Cache-Control} can only shorten the route TTL: {@code no-store}, and
+ * {@code private} on shared entries, are never stored, {@code max-age}/{@code s-maxage} cap the
+ * TTL and {@code no-cache} stores the entry for revalidation only. Expired entries carrying an
+ * {@code ETag} are revalidated with {@code If-None-Match}. In Lambda, where the container is
+ * frozen between invocations and a background refresh would not run, a stale entry is
+ * revalidated before answering instead and only served when the upstream fails.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ResponseCache implements RouteOptionsValidator, ComponentStats {
+
+    public static final String TTL_OPTION = "cache.ttl-seconds";
+    public static final String STALE_OPTION = "cache.stale-seconds";
+    public static final String VARY_OPTION = "cache.vary";
+    public static final String PER_PRINCIPAL_OPTION = "cache.per-principal";
+
+    private static final String GET = "GET";
+    private static final String IF_NONE_MATCH = "If-None-Match";
+    private static final String CACHE_CONTROL = "Cache-Control";
+
+    private final ResponseCacheStore store;
+
+    @Value("${gateway.response-cache.enabled:true}")
+    private boolean enabled;
+    @Value("${gateway.response-cache.revalidate-threads:2}")
+    private int revalidateThreads;
+
+    /**
+     * Set by the Lambda runtime. The invocation's context is not visible on batch or async worker
+     * threads, so it cannot tell on its own whether background work survives the response.
+     */
+    private boolean inLambda = System.getenv("AWS_LAMBDA_FUNCTION_NAME") != null;
+
+    private final Set<String> revalidating = ConcurrentHashMap.newKeySet();
+    private volatile ExecutorService revalidator;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder staleHits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder revalidated = new LongAdder();
+    private final LongAdder notModified = new LongAdder();
+    private final LongAdder bytesSaved = new LongAdder();
+
+    @Override
+    public void validate(Route route) {
+        for (String option : new String[]{TTL_OPTION, STALE_OPTION}) {
+            if (route.getLongOption(option, 0) < 0) {
+                throw route.invalidOption(option, route.getOption(option, null), "zero or more");
+            }
+        }
+        perPrincipal(route);
+    }
+
+    public boolean isCacheable(Route route, APIGatewayProxyRequestEvent event) {
+        return enabled && GET.equals(event.getHttpMethod()) && route.getLongOption(TTL_OPTION, 0) > 0;
+    }
+
+    /**
+     * Serves {@code event} from the cache when possible, otherwise calls {@code upstream} with
+     * the outbound headers (plus {@code If-None-Match} when revalidating) and stores the result.
+     */
+    public APIGatewayProxyResponseEvent fetch(Route route, APIGatewayProxyRequestEvent event,
+                                              Map<String, String> headers,
+                                              Function<Map<String, String>, APIGatewayProxyResponseEvent> upstream) {
+        String key = key(route, event);
+        long now = System.currentTimeMillis();
+        boolean clientNoCache = hasDirective(HeaderUtils.getHeader(event.getHeaders(), CACHE_CONTROL), "no-cache");
+        CachedResponse cached = store.get(key);
+
+        if (cached != null && !clientNoCache) {
+            if (cached.isFresh(now)) {
+                hits.increment();
+                return serve(cached, event, "HIT");
+            }
+            if (cached.isUsableStale(now) && (inLambda || LambdaContextHolder.get() != null)) {
+                return revalidateInline(key, route, cached, headers, upstream, event);
+            }
+            if (cached.isUsableStale(now)) {
+                staleHits.increment();
+                revalidateInBackground(key, route, cached, headers, upstream);
+                return serve(cached, event, "STALE");
+            }
+        }
+        misses.increment();
+        return load(key, route, cached, headers, upstream, event);
+    }
+
+    @Override
+    public String getStatsName() {
+        return "ResponseCache";
+    }
+
+    @Override
+    public Map<String, Object> getStats() {
+        long hitCount = hits.sum() + staleHits.sum();
+        long total = hitCount + misses.sum();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("hits", hits.sum());
+        stats.put("staleHits", staleHits.sum());
+        stats.put("misses", misses.sum());
+        stats.put("revalidated", revalidated.sum());
+        stats.put("notModified", notModified.sum());
+        stats.put("hitRatio", total == 0 ? 0.0 : (double) hitCount / total);
+        stats.put("bytesSaved", bytesSaved.sum());
+        stats.put("entries", store.size());
+        stats.put("weight", store.weight());
+        return stats;
+    }
+
+    @PreDestroy
+    void shutdown() {
+        if (revalidator != null) {
+            revalidator.shutdownNow();
+        }
+    }
+
+    /**
+     * Calls the upstream and updates the store. A 304 answer to a revalidation renews the cached
+     * entry, which is then served to {@code event}; background refreshes pass no event.
+     */
+    private APIGatewayProxyResponseEvent load(String key, Route route, CachedResponse cached,
+                                              Map<String, String> headers,
+                                              Function<Map<String, String>, APIGatewayProxyResponseEvent> upstream,
+                                              APIGatewayProxyRequestEvent event) {
+        Map<String, String> outbound = headers;
+        if (cached != null && cached.getEtag() != null) {
+            outbound = new HashMap<>(headers);
+            outbound.put(IF_NONE_MATCH, cached.getEtag());
+        }
+        APIGatewayProxyResponseEvent response = upstream.apply(outbound);
+        Integer status = response.getStatusCode();
+        long now = System.currentTimeMillis();
+
+        if (status != null && status == 304 && cached != null) {
+            revalidated.increment();
+            long freshUntil = now + ttlMillis(route, response);
+            CachedResponse renewed = cached.renew(freshUntil, staleUntil(route, freshUntil));
+            store.put(key, renewed);
+            return event != null ? serve(renewed, event, "REVALIDATED") : response;
+        }
+        if (status != null && status == 200 && isStorable(route, response)) {
+            long freshUntil = now + ttlMillis(route, response);
+            store.put(key, new CachedResponse(response, HeaderUtils.getHeader(response.getHeaders(), "ETag"),
+                                              freshUntil, staleUntil(route, freshUntil)));
+        } else if (cached != null && status != null && status < 500) {
+            // The upstream's answer supersedes the entry; after a 5xx it is kept for serving stale
+            store.remove(key);
+        }
+        if (event != null && response.getHeaders() != null) {
+            Map<String, String> responseHeaders = new HashMap<>(response.getHeaders());
+            responseHeaders.put("X-Cache", "MISS");
+            response.setHeaders(responseHeaders);
+        }
+        return response;
+    }
+
+    private APIGatewayProxyResponseEvent revalidateInline(String key, Route route, CachedResponse cached,
+                                                          Map<String, String> headers,
+                                                          Function<Map<String, String>, APIGatewayProxyResponseEvent> upstream,
+                                                          APIGatewayProxyRequestEvent event) {
+        APIGatewayProxyResponseEvent response = load(key, route, cached, headers, upstream, event);
+        Integer status = response.getStatusCode();
+        if (status == null || status >= 500) {
+            staleHits.increment();
+            return serve(cached, event, "STALE");
+        }
+        misses.increment();
+        return response;
+    }
+
+    private void revalidateInBackground(String key, Route route, CachedResponse cached, Map<String, String> headers,
+                                        Function<Map<String, String>, APIGatewayProxyResponseEvent> upstream) {
+        if (!revalidating.add(key)) {
+            return;
+        }
+        try {
+            executor().execute(() -> {
+                try {
+                    load(key, route, cached, headers, upstream, null);
+                } catch (RuntimeException e) {
+                    log.warn("Background revalidation of {} failed : {}", route.getPattern(), e.getMessage());
+                } finally {
+                    revalidating.remove(key);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            revalidating.remove(key);
+        }
+    }
+
+    private APIGatewayProxyResponseEvent serve(CachedResponse cached, APIGatewayProxyRequestEvent event,
+                                               String cacheStatus) {
+        String clientEtag = HeaderUtils.getHeader(event.getHeaders(), IF_NONE_MATCH);
+        bytesSaved.add(bodyBytes(cached));
+        if (clientEtag != null && clientEtag.equals(cached.getEtag())) {
+            notModified.increment();
+            Map<String, String> headers = new HashMap<>();
+            headers.put("ETag", cached.getEtag());
+            headers.put("X-Cache", cacheStatus);
+            return new APIGatewayProxyResponseEvent().withStatusCode(304).withHeaders(headers);
+        }
+        return cached.toResponse(cacheStatus);
+    }
+
+    private boolean isStorable(Route route, APIGatewayProxyResponseEvent response) {
+        Map<String, String> headers = response.getHeaders();
+        String cacheControl = HeaderUtils.getHeader(headers, CACHE_CONTROL);
+        if (hasDirective(cacheControl, "no-store") || HeaderUtils.getHeader(headers, "Set-Cookie") != null
+            || response.getMultiValueHeaders() != null && response.getMultiValueHeaders().containsKey("Set-Cookie")) {
+            return false;
+        }
+        return perPrincipal(route) || !hasDirective(cacheControl, "private");
+    }
+
+    private static boolean perPrincipal(Route route) {
+        return route.getBooleanOption(PER_PRINCIPAL_OPTION, route.getPolicy() == RoutePolicy.TOKEN);
+    }
+
+    private static long ttlMillis(Route route, APIGatewayProxyResponseEvent response) {
+        long ttlSeconds = route.getLongOption(TTL_OPTION, 0);
+        String cacheControl = HeaderUtils.getHeader(response.getHeaders(), CACHE_CONTROL);
+        if (cacheControl != null) {
+            if (hasDirective(cacheControl, "no-cache")) {
+                return 0;
+            }
+            long maxAge = directiveSeconds(cacheControl, "s-maxage");
+            if (maxAge < 0) {
+                maxAge = directiveSeconds(cacheControl, "max-age");
+            }
+            if (maxAge >= 0) {
+                ttlSeconds = Math.min(ttlSeconds, maxAge);
+            }
+        }
+        return TimeUnit.SECONDS.toMillis(ttlSeconds);
+    }
+
+    private static long staleUntil(Route route, long freshUntil) {
+        return freshUntil + TimeUnit.SECONDS.toMillis(route.getLongOption(STALE_OPTION, 0));
+    }
+
+    /**
+     * Method, path, sorted query parameters, the route's vary headers, the accepted encoding
+     * (bodies may be stored gzipped) and, for per-principal routes, a hash of the credentials.
+     */
+    private static String key(Route route, APIGatewayProxyRequestEvent event) {
+        StringBuilder key = new StringBuilder(GET).append(' ').append(event.getPath());
+        Map<String, String> query = event.getQueryStringParameters();
+        if (query != null && !query.isEmpty()) {
+            char separator = '?';
+            for (Map.Entry<String, String> parameter : new TreeMap<>(query).entrySet()) {
+                key.append(separator).append(parameter.getKey()).append('=').append(parameter.getValue());
+                separator = '&';
+            }
+        }
+        Map<String, String> headers = event.getHeaders();
+        String vary = route.getOption(VARY_OPTION, "");
+        if (!vary.isEmpty()) {
+            SortedSet<String> names = new TreeSet<>();
+            for (String name : vary.split(",")) {
+                names.add(name.trim().toLowerCase(Locale.ROOT));
+            }
+            for (String name : names) {
+                key.append('|').append(name).append('=').append(HeaderUtils.getHeader(headers, name));
+            }
+        }
+        key.append("|gzip=").append(HeaderUtils.acceptsEncoding(HeaderUtils.getHeader(headers, "Accept-Encoding"), "gzip"));
+        if (perPrincipal(route)) {
+            key.append("|principal=").append(sha256(HeaderUtils.getHeader(headers, "Authorization")));
+        }
+        return key.toString();
+    }
+
+    private static boolean hasDirective(String cacheControl, String directive) {
+        return cacheControl != null && directiveIndex(cacheControl, directive) >= 0;
+    }
+
+    private static long directiveSeconds(String cacheControl, String directive) {
+        int index = directiveIndex(cacheControl, directive);
+        if (index < 0 || index + directive.length() >= cacheControl.length()
+            || cacheControl.charAt(index + directive.length()) != '=') {
+            return -1;
+        }
+        int start = index + directive.length() + 1;
+        int end = start;
+        while (end < cacheControl.length() && Character.isDigit(cacheControl.charAt(end))) {
+            end++;
+        }
+        return end > start ? Long.parseLong(cacheControl.substring(start, end)) : -1;
+    }
+
+    private static int directiveIndex(String cacheControl, String directive) {
+        String lower = cacheControl.toLowerCase(Locale.ROOT);
+        for (int index = lower.indexOf(directive); index >= 0; index = lower.indexOf(directive, index + 1)) {
+            int end = index + directive.length();
+            boolean startsToken = index == 0 || lower.charAt(index - 1) == ',' || lower.charAt(index - 1) == ' ';
+            boolean endsToken = end == lower.length() || lower.charAt(end) == ',' || lower.charAt(end) == '='
+                                || lower.charAt(end) == ' ';
+            if (startsToken && endsToken) {
+                return index;
+            }
+        }
+        return -1;
+    }
+
+    private static long bodyBytes(CachedResponse cached) {
+        return cached.getBody() != null ? cached.getBody().length() : 0;
+    }
+
+    private static String sha256(String value) {
+        if (value == null) {
+            return "-";
+        }
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().encodeToString(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private ExecutorService executor() {
+        if (revalidator == null) {
+            synchronized (this) {
+                if (revalidator == null) {
+                    ThreadPoolExecutor executor = new ThreadPoolExecutor(
+                            revalidateThreads, revalidateThreads, 30, TimeUnit.SECONDS, new LinkedBlockingQueue<>(1000),
+                            runnable -> {
+                                Thread thread = new Thread(runnable, "response-cache-revalidate");
+                                thread.setDaemon(true);
+                                return thread;
+                            });
+                    executor.allowCoreThreadTimeOut(true);
+                    revalidator = executor;
+                }
+            }
+        }
+        return revalidator;
+    }
+}
@@ -0,0 +1,19 @@
+package com.indivaragroup.bpi.vybe.awsgateway.cache;
+
+/**
+ * Storage behind {@link ResponseCache}. The default keeps entries on the container heap; a
+ * shared implementation (e.g. a Redis-compatible store reachable from every container) can be
+ * declared as the {@code @Primary} bean instead.
+ */
+public interface ResponseCacheStore {
+
+    CachedResponse get(String key);
+
+    void put(String key, CachedResponse response);
+
+    void remove(String key);
+
+    int size();
+
+    long weight();
+}
@@ -0,0 +1,81 @@
+package com.indivaragroup.bpi.vybe.awsgateway.config;
+
+import com.indivaragroup.bpi.vybe.awsgateway.metrics.TimingHttpRequestExecutor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.conn.ConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Container-wide outbound HTTP client. The Spring context outlives a single Lambda invocation,
+ * so pooled keep-alive connections to {@code outbound.baseUrl} are reused by warm containers.
+ */
+@Slf4j
+@Configuration
+public class HttpClientConfig {
+
+    @Value("${outbound.http.max-total:50}")
+    private int maxTotal;
+    @Value("${outbound.http.max-per-route:20}")
+    private int maxPerRoute;
+    @Value("${outbound.http.connect-timeout-ms:2000}")
+    private int connectTimeoutMs;
+    @Value("${outbound.http.socket-timeout-ms:25000}")
+    private int socketTimeoutMs;
+    @Value("${outbound.http.pool-acquire-timeout-ms:1000}")
+    private int poolAcquireTimeoutMs;
+    @Value("${outbound.http.keep-alive-ms:30000}")
+    private long keepAliveMs;
+    @Value("${outbound.http.idle-evict-ms:20000}")
+    private long idleEvictMs;
+    @Value("${outbound.http.validate-after-inactivity-ms:2000}")
+    private int validateAfterInactivityMs;
+
+    @Bean(destroyMethod = "close")
+    public PoolingHttpClientConnectionManager outboundConnectionManager() {
+        PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager();
+        connectionManager.setMaxTotal(maxTotal);
+        connectionManager.setDefaultMaxPerRoute(maxPerRoute);
+        // Re-check connections that sat idle while the Lambda container was frozen
+        connectionManager.setValidateAfterInactivity(validateAfterInactivityMs);
+        return connectionManager;
+    }
+
+    @Bean(destroyMethod = "close")
+    public CloseableHttpClient outboundHttpClient(PoolingHttpClientConnectionManager outboundConnectionManager) {
+        log.info("Outbound HTTP pool : maxTotal={}, maxPerRoute={}, connectTimeout={}ms, socketTimeout={}ms",
+                 maxTotal, maxPerRoute, connectTimeoutMs, socketTimeoutMs);
+        RequestConfig requestConfig = RequestConfig.custom()
+                .setConnectTimeout(connectTimeoutMs)
+                .setSocketTimeout(socketTimeoutMs)
+                .setConnectionRequestTimeout(poolAcquireTimeoutMs)
+                .build();
+
+        return HttpClients.custom()
+                .setConnectionManager(outboundConnectionManager)
+                .setDefaultRequestConfig(requestConfig)
+                .setKeepAliveStrategy(keepAliveStrategy())
+                .setRequestExecutor(new TimingHttpRequestExecutor())
+                // Content-Encoding is negotiated by the client and handled in UpstreamResponseMapper
+                .disableContentCompression()
+                .evictExpiredConnections()
+                .evictIdleConnections(idleEvictMs, TimeUnit.MILLISECONDS)
+                .build();
+    }
+
+    private ConnectionKeepAliveStrategy keepAliveStrategy() {
+        // Honour the upstream Keep-Alive header, but never hold a connection longer than configured
+        return (response, context) -> {
+            long upstreamKeepAlive = DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(response, context);
+            return upstreamKeepAlive > 0 ? Math.min(upstreamKeepAlive, keepAliveMs) : keepAliveMs;
+        };
+    }
+}
@@ -0,0 +1,85 @@
+package com.indivaragroup.bpi.vybe.awsgateway.config;
+
+import com.indivaragroup.bpi.vybe.awsgateway.async.AsyncHttpConfig;
+import com.indivaragroup.bpi.vybe.awsgateway.async.AsyncHttpExecutor;
+import com.indivaragroup.bpi.vybe.awsgateway.batch.BatchHandler;
+import com.indivaragroup.bpi.vybe.awsgateway.body.RequestBodyProcessor;
+import com.indivaragroup.bpi.vybe.awsgateway.cache.InMemoryResponseCacheStore;
+import com.indivaragroup.bpi.vybe.awsgateway.cache.ResponseCache;
+import com.indivaragroup.bpi.vybe.awsgateway.header.HeaderFilter;
+import com.indivaragroup.bpi.vybe.awsgateway.logging.AccessLogger;
+import com.indivaragroup.bpi.vybe.awsgateway.metrics.GatewayMetrics;
+import com.indivaragroup.bpi.vybe.awsgateway.ratelimit.InMemoryRateLimitStore;
+import com.indivaragroup.bpi.vybe.awsgateway.ratelimit.LoadShedder;
+import com.indivaragroup.bpi.vybe.awsgateway.ratelimit.RateLimiter;
+import com.indivaragroup.bpi.vybe.awsgateway.resilience.UpstreamResilience;
+import com.indivaragroup.bpi.vybe.awsgateway.response.UpstreamResponseMapper;
+import com.indivaragroup.bpi.vybe.awsgateway.routing.RouteConfig;
+import com.indivaragroup.bpi.vybe.awsgateway.serverless.AwsGatewayMain;
+import com.indivaragroup.bpi.vybe.awsgateway.serverless.GatewayPrimer;
+import com.indivaragroup.bpi.vybe.awsgateway.signature.SignatureKeyProvider;
+import com.indivaragroup.bpi.vybe.awsgateway.signature.SignatureVerifier;
+import com.indivaragroup.bpi.vybe.awsgateway.upload.MultipartS3Uploader;
+import com.indivaragroup.bpi.vybe.awsgateway.validation.TokenValidationCache;
+import com.indivaragroup.bpi.vybe.awsgateway.validation.ValidatorService;
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.config.AutowireCapableBeanFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.context.annotation.Profile;
+import org.springframework.context.annotation.PropertySource;
+import org.springframework.context.support.PropertySourcesPlaceholderConfigurer;
+
+/**
+ * Explicit bean list for {@code LightweightLambdaHandler}: no component scanning, no Spring Boot
+ * auto-configuration and no Spring Cloud Function adapter. Properties come from
+ * {@code application.properties} when present, then system properties and environment variables
+ * (e.g. {@code OUTBOUND_BASEURL}). New gateway beans must be added here as well. The class only
+ * applies with the {@value #PROFILE} profile active, so component scanning in the Spring Boot
+ * handler skips it.
+ *
+ * <p>{@link ValidatorService} is normally found by component scanning and its dependencies are not
+ * listed here, so it is built by {@link #lightweightValidatorService} rather than imported. If it
+ * needs a bean this list does not declare, startup fails with a message saying so. Set
+ * {@code gateway.lightweight.validator-service.enabled=false} to supply one yourself.
+ */
+@Configuration
+@Profile(LightweightGatewayConfiguration.PROFILE)
+@PropertySource(value = "classpath:application.properties", ignoreResourceNotFound = true)
+@Import({
+        HttpClientConfig.class, S3Config.class, RouteConfig.class, AsyncHttpConfig.class,
+        TokenValidationCache.class, MultipartS3Uploader.class, UpstreamResponseMapper.class,
+        AccessLogger.class, HeaderFilter.class, AsyncHttpExecutor.class, GatewayPrimer.class,
+        UpstreamResilience.class, SignatureKeyProvider.class, SignatureVerifier.class,
+        InMemoryResponseCacheStore.class, ResponseCache.class, GatewayMetrics.class, BatchHandler.class,
+        InMemoryRateLimitStore.class, RateLimiter.class, LoadShedder.class, RequestBodyProcessor.class,
+        AwsGatewayMain.class
+})
+public class LightweightGatewayConfiguration {
+
+    public static final String PROFILE = "lightweight";
+
+    @Bean
+    public static PropertySourcesPlaceholderConfigurer propertySourcesPlaceholderConfigurer() {
+        return new PropertySourcesPlaceholderConfigurer();
+    }
+
+    /**
+     * Constructor injection from the beans above; field injection and init callbacks follow as
+     * for any other bean.
+     */
+    @Bean
+    @ConditionalOnProperty(name = "gateway.lightweight.validator-service.enabled", havingValue = "true",
+                           matchIfMissing = true)
+    public ValidatorService lightweightValidatorService(AutowireCapableBeanFactory beanFactory) {
+        try {
+            return (ValidatorService) beanFactory.autowire(
+                    ValidatorService.class, AutowireCapableBeanFactory.AUTOWIRE_CONSTRUCTOR, false);
+        } catch (BeansException e) {
+            throw new IllegalStateException("ValidatorService cannot be built from LightweightGatewayConfiguration, "
+                                            + "declare the beans it needs there: " + e.getMostSpecificCause().getMessage(), e);
+        }
+    }
+}
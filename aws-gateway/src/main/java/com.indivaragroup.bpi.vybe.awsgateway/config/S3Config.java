@@ -0,0 +1,24 @@
+package com.indivaragroup.bpi.vybe.awsgateway.config;
+
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.AmazonS3ClientBuilder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * One S3 client per container instead of one per uploaded request.
+ */
+@Configuration
+public class S3Config {
+
+    @Value("${upload.s3.region:ap-southeast-1}")
+    private String region;
+
+    @Bean(destroyMethod = "shutdown")
+    public AmazonS3 amazonS3() {
+        return AmazonS3ClientBuilder.standard()
+                .withRegion(region)
+                .build();
+    }
+}
@@ -0,0 +1,139 @@
+package com.indivaragroup.bpi.vybe.awsgateway.context;
+
+import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyRequestEvent;
+import com.indivaragroup.bpi.vybe.awsgateway.metrics.Stage;
+import com.indivaragroup.bpi.vybe.awsgateway.util.HeaderUtils;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Per-request bookkeeping carried through the gateway for the access log line and metrics:
+ * identifiers, W3C trace context, outcome and per-{@link Stage} timings.
+ */
+@Getter
+@Setter
+public class RequestContext {
+
+    private final long startNanos = System.nanoTime();
+    private final String requestId;
+    private final String method;
+    private final String path;
+    private final String clientIp;
+    private final long bytesIn;
+    private final String traceId;
+    private final String spanId;
+    private final String traceFlags;
+
+    private String route;
+    private int status;
+    private long upstreamNanos = -1;
+    private long bytesOut;
+    private CacheOutcome tokenCache = CacheOutcome.BYPASS;
+    /** Caller identity established by token validation, {@code null} before or without it. */
+    private String principal;
+
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private final long[] stageNanos = new long[Stage.values().length];
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private long markNanos;
+
+    public enum CacheOutcome {
+        HIT, MISS, BYPASS
+    }
+
+    private RequestContext(String requestId, String method, String path, String clientIp, long bytesIn,
+                           String traceparent) {
+        this.requestId = requestId;
+        this.method = method;
+        this.path = path;
+        this.clientIp = clientIp;
+        this.bytesIn = bytesIn;
+        Arrays.fill(stageNanos, -1);
+
+        // Continue the caller's trace when it sent a valid traceparent, otherwise start one
+        String[] parts = traceparent != null ? traceparent.trim().toLowerCase(Locale.ROOT).split("-") : null;
+        if (parts != null && parts.length >= 4 && parts[1].length() == 32 && parts[3].length() == 2
+            && isHex(parts[1]) && isHex(parts[3]) && !parts[1].equals("00000000000000000000000000000000")) {
+            this.traceId = parts[1];
+            this.traceFlags = parts[3];
+        } else {
+            this.traceId = randomHex(16);
+            this.traceFlags = "01";
+        }
+        this.spanId = randomHex(8);
+    }
+
+    public static RequestContext start(APIGatewayProxyRequestEvent event) {
+        APIGatewayProxyRequestEvent.ProxyRequestContext proxyContext = event.getRequestContext();
+        String requestId = proxyContext != null && proxyContext.getRequestId() != null
+                ? proxyContext.getRequestId() : UUID.randomUUID().toString();
+        String clientIp = proxyContext != null && proxyContext.getIdentity() != null
+                ? proxyContext.getIdentity().getSourceIp() : null;
+        long bytesIn = event.getBody() != null ? event.getBody().length() : 0;
+        return new RequestContext(requestId, event.getHttpMethod(), event.getPath(), clientIp, bytesIn,
+                                  HeaderUtils.getHeader(event.getHeaders(), "traceparent"));
+    }
+
+    public long elapsedNanos() {
+        return System.nanoTime() - startNanos;
+    }
+
+    /**
+     * The {@code traceparent} header for calls made on behalf of this request.
+     */
+    public String traceparent() {
+        return "00-" + traceId + "-" + spanId + "-" + traceFlags;
+    }
+
+    /**
+     * Starts timing the next stage.
+     */
+    public void mark() {
+        markNanos = System.nanoTime();
+    }
+
+    /**
+     * Adds the time since the last {@link #mark()} or {@code lap} to {@code stage}, so a stage
+     * repeated by retries accumulates.
+     */
+    public void lap(Stage stage) {
+        long now = System.nanoTime();
+        long previous = stageNanos[stage.ordinal()];
+        stageNanos[stage.ordinal()] = (previous < 0 ? 0 : previous) + (now - markNanos);
+        markNanos = now;
+    }
+
+    /**
+     * Recorded time for {@code stage}, or -1 when the request never went through it.
+     */
+    public long getStageNanos(Stage stage) {
+        return stageNanos[stage.ordinal()];
+    }
+
+    private static boolean isHex(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            if (Character.digit(value.charAt(i), 16) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String randomHex(int bytes) {
+        StringBuilder hex = new StringBuilder(bytes * 2);
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int i = 0; i < bytes; i++) {
+            int value = random.nextInt(256);
+            hex.append(Character.forDigit(value >> 4, 16)).append(Character.forDigit(value & 0xF, 16));
+        }
+        return hex.toString();
+    }
+}
@@ -0,0 +1,43 @@
+package com.indivaragroup.bpi.vybe.awsgateway.context;
+
+import com.indivaragroup.bpi.vybe.awsgateway.metrics.Stage;
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+
+/**
+ * The {@link RequestContext} of the request being proxied on the current thread, so the HTTP
+ * client and response mapper can record stage timings without it being passed through every
+ * call. It is set while a thread works on a request, which for async calls ends at the hand-off
+ * to the HTTP client; elsewhere the helpers are no-ops.
+ */
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+public final class RequestContextHolder {
+
+    private static final ThreadLocal<RequestContext> CURRENT = new ThreadLocal<>();
+
+    public static void set(RequestContext context) {
+        CURRENT.set(context);
+    }
+
+    public static RequestContext get() {
+        return CURRENT.get();
+    }
+
+    public static void clear() {
+        CURRENT.remove();
+    }
+
+    public static void mark() {
+        RequestContext context = CURRENT.get();
+        if (context != null) {
+            context.mark();
+        }
+    }
+
+    public static void lap(Stage stage) {
+        RequestContext context = CURRENT.get();
+        if (context != null) {
+            context.lap(stage);
+        }
+    }
+}
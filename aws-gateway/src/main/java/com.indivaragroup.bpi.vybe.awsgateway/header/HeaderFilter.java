@@ -0,0 +1,137 @@
+package com.indivaragroup.bpi.vybe.awsgateway.header;
+
+import com.indivaragroup.bpi.vybe.awsgateway.context.RequestContext;
+import com.indivaragroup.bpi.vybe.awsgateway.logging.LogRedaction;
+import com.indivaragroup.bpi.vybe.awsgateway.util.HeaderUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.*;
+
+/**
+ * Turns the client's headers into the outbound header set in a single pass. The deny list,
+ * optional allow list, renames and injected headers are compiled once at startup into maps keyed
+ * by lowercase name, so {@code x-forwarded-for} and {@code X-Forwarded-For} are treated alike.
+ * Headers the gateway sets itself (injected, request id and traceparent) are never taken from the
+ * client in any letter case, so a client cannot send a second copy that competes with them.
+ * {@code Accept-Encoding} is reduced to {@code gzip} when the client accepts it and
+ * {@code identity} otherwise, the only codings {@code UpstreamResponseMapper} can handle.
+ */
+@Slf4j
+@Component
+public class HeaderFilter {
+
+    private static final String[] DEFAULT_DENIED = {
+            "CloudFront-Forwarded-Proto", "CloudFront-Is-Desktop-Viewer", "CloudFront-Is-Mobile-Viewer",
+            "CloudFront-Is-SmartTV-Viewer", "CloudFront-Is-Tablet-Viewer", "CloudFront-Viewer-ASN",
+            "CloudFront-Viewer-Country", "Host", "Postman-Token", "User-Agent", "Via", "X-Amz-Cf-Id",
+            "X-Amzn-Trace-Id", "X-Forwarded-For", "X-Forwarded-Port", "X-Forwarded-Proto"
+    };
+
+    private static final String TRACEPARENT = "traceparent";
+    private static final String ACCEPT_ENCODING = "Accept-Encoding";
+
+    @Value("${gateway.headers.deny:}")
+    private String[] extraDenied;
+    @Value("${gateway.headers.allow:}")
+    private String[] allowed;
+    /** {@code from:to} pairs. */
+    @Value("${gateway.headers.rename:}")
+    private String[] renames;
+    /** {@code Name:value} pairs added to every outbound request. */
+    @Value("${gateway.headers.inject:}")
+    private String[] injections;
+    @Value("${gateway.headers.request-id-header:X-Request-Id}")
+    private String requestIdHeader;
+    /** Sends a W3C {@code traceparent} for this hop; an incoming {@code tracestate} passes through. */
+    @Value("${gateway.headers.trace-context:true}")
+    private boolean traceContext;
+
+    private final Set<String> deniedNames = new HashSet<>();
+    private final Set<String> allowedNames = new HashSet<>();
+    private final Map<String, String> renamedNames = new HashMap<>();
+    private final Map<String, String> injectedHeaders = new LinkedHashMap<>();
+    private final Set<String> injectedNames = new HashSet<>();
+
+    @PostConstruct
+    void compile() {
+        for (String name : DEFAULT_DENIED) {
+            deniedNames.add(lower(name));
+        }
+        // Replaced below by a coding the response mapper can decode
+        deniedNames.add(lower(ACCEPT_ENCODING));
+        if (traceContext) {
+            // Replaced by the gateway's own span below
+            deniedNames.add(TRACEPARENT);
+        }
+        for (String name : extraDenied) {
+            if (!name.trim().isEmpty()) {
+                deniedNames.add(lower(name.trim()));
+            }
+        }
+        for (String name : allowed) {
+            if (!name.trim().isEmpty()) {
+                allowedNames.add(lower(name.trim()));
+            }
+        }
+        for (String pair : renames) {
+            int colon = pair.indexOf(':');
+            if (colon > 0) {
+                renamedNames.put(lower(pair.substring(0, colon).trim()), pair.substring(colon + 1).trim());
+            }
+        }
+        for (String pair : injections) {
+            int colon = pair.indexOf(':');
+            if (colon > 0) {
+                injectedHeaders.put(pair.substring(0, colon).trim(), pair.substring(colon + 1).trim());
+                injectedNames.add(lower(pair.substring(0, colon).trim()));
+            }
+        }
+        if (traceContext) {
+            injectedNames.add(TRACEPARENT);
+        }
+        log.info("Header filter : {} denied, {} allowed, {} renamed, {} injected",
+                 deniedNames.size(), allowedNames.size(), renamedNames.size(), injectedHeaders.size());
+    }
+
+    public Map<String, String> filter(Map<String, String> headers, RequestContext context) {
+        int incoming = headers != null ? headers.size() : 0;
+        Map<String, String> filteredHeaders = new HashMap<>((incoming + injectedHeaders.size() + 1) * 4 / 3 + 1);
+        boolean assignsRequestId = !requestIdHeader.isEmpty() && context != null;
+        if (headers != null) {
+            for (Map.Entry<String, String> entry : headers.entrySet()) {
+                String lowerName = lower(entry.getKey());
+                if (deniedNames.contains(lowerName)
+                    || (!allowedNames.isEmpty() && !allowedNames.contains(lowerName))) {
+                    continue;
+                }
+                String renamed = renamedNames.get(lowerName);
+                String name = renamed != null ? renamed : entry.getKey();
+                String lowerOutbound = renamed != null ? lower(renamed) : lowerName;
+                if (injectedNames.contains(lowerOutbound)
+                    || (assignsRequestId && lowerOutbound.equalsIgnoreCase(requestIdHeader))) {
+                    continue;
+                }
+                filteredHeaders.put(name, entry.getValue());
+            }
+        }
+        filteredHeaders.putAll(injectedHeaders);
+        boolean gzip = HeaderUtils.acceptsEncoding(HeaderUtils.getHeader(headers, ACCEPT_ENCODING), "gzip");
+        filteredHeaders.put(ACCEPT_ENCODING, gzip ? "gzip" : "identity");
+        if (assignsRequestId) {
+            filteredHeaders.put(requestIdHeader, context.getRequestId());
+        }
+        if (traceContext && context != null) {
+            filteredHeaders.put(TRACEPARENT, context.traceparent());
+        }
+
+        log.debug("filteredHeaders : {}", LogRedaction.headers(filteredHeaders));
+        return filteredHeaders;
+    }
+
+    private static String lower(String name) {
+        return name.toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,86 @@
+package com.indivaragroup.bpi.vybe.awsgateway.logging;
+
+import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyResponseEvent;
+import com.indivaragroup.bpi.vybe.awsgateway.context.RequestContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Emits one JSON access-log line per request on the {@code ACCESS} logger and decides whether a
+ * request is sampled for DEBUG dumps of headers and bodies.
+ */
+@Component
+public class AccessLogger {
+
+    private static final Logger ACCESS_LOG = LoggerFactory.getLogger("ACCESS");
+
+    @Value("${logging.access.enabled:true}")
+    private boolean enabled;
+    @Value("${logging.debug-sample-rate:0.05}")
+    private double debugSampleRate;
+
+    /**
+     * True when this request's payloads should be dumped at DEBUG for the given logger.
+     */
+    public boolean sampleDebug(Logger logger) {
+        return logger.isDebugEnabled()
+               && (debugSampleRate >= 1.0 || ThreadLocalRandom.current().nextDouble() < debugSampleRate);
+    }
+
+    public void log(RequestContext context, APIGatewayProxyResponseEvent response) {
+        // Recorded even when the line is not written; metrics read them afterwards
+        if (response != null) {
+            context.setStatus(response.getStatusCode() != null ? response.getStatusCode() : 0);
+            context.setBytesOut(response.getBody() != null ? response.getBody().length() : 0);
+        }
+        if (!enabled || !ACCESS_LOG.isInfoEnabled()) {
+            return;
+        }
+
+        StringBuilder line = new StringBuilder(256).append('{');
+        field(line, "requestId", context.getRequestId());
+        field(line, "traceId", context.getTraceId());
+        field(line, "method", context.getMethod());
+        field(line, "path", context.getPath());
+        field(line, "route", context.getRoute());
+        field(line, "clientIp", context.getClientIp());
+        field(line, "status", context.getStatus());
+        field(line, "latencyMs", context.elapsedNanos() / 1_000_000);
+        if (context.getUpstreamNanos() >= 0) {
+            field(line, "upstreamMs", context.getUpstreamNanos() / 1_000_000);
+        }
+        field(line, "bytesIn", context.getBytesIn());
+        field(line, "bytesOut", context.getBytesOut());
+        field(line, "tokenCache", context.getTokenCache().name());
+        line.setLength(line.length() - 1);
+        ACCESS_LOG.info(line.append('}').toString());
+    }
+
+    private static void field(StringBuilder line, String name, long value) {
+        line.append('"').append(name).append("\":").append(value).append(',');
+    }
+
+    private static void field(StringBuilder line, String name, String value) {
+        line.append('"').append(name).append("\":");
+        if (value == null) {
+            line.append("null,");
+            return;
+        }
+        line.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                line.append('\\').append(c);
+            } else if (c < 0x20) {
+                line.append(String.format("\\u%04x", (int) c));
+            } else {
+                line.append(c);
+            }
+        }
+        line.append("\",");
+    }
+}
@@ -0,0 +1,63 @@
+package com.indivaragroup.bpi.vybe.awsgateway.logging;
+
+import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyRequestEvent;
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Log arguments that mask credentials. Formatting happens in {@code toString()}, so nothing is
+ * built unless the log statement is actually enabled.
+ */
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+public final class LogRedaction {
+
+    private static final String MASK = "***";
+    private static final Set<String> SENSITIVE_HEADERS = new HashSet<>(Arrays.asList(
+            "authorization", "proxy-authorization", "cookie", "set-cookie", "x-api-key", "x-auth-token",
+            "x-signature", "signature", "x-amz-security-token"));
+
+    public static Object headers(Map<String, String> headers) {
+        return new Object() {
+            @Override
+            public String toString() {
+                if (headers == null) {
+                    return "{}";
+                }
+                StringBuilder out = new StringBuilder(headers.size() * 32).append('{');
+                for (Map.Entry<String, String> entry : headers.entrySet()) {
+                    if (out.length() > 1) {
+                        out.append(", ");
+                    }
+                    out.append(entry.getKey()).append('=')
+                       .append(isSensitive(entry.getKey()) ? MASK : entry.getValue());
+                }
+                return out.append('}').toString();
+            }
+        };
+    }
+
+    /**
+     * Method, path, masked headers and body size; the body itself is never rendered.
+     */
+    public static Object event(APIGatewayProxyRequestEvent event) {
+        return new Object() {
+            @Override
+            public String toString() {
+                return event.getHttpMethod() + " " + event.getPath()
+                       + " query=" + event.getQueryStringParameters()
+                       + " headers=" + headers(event.getHeaders())
+                       + " body=" + (event.getBody() == null ? 0 : event.getBody().length()) + " chars";
+            }
+        };
+    }
+
+    public static boolean isSensitive(String headerName) {
+        return SENSITIVE_HEADERS.contains(headerName.toLowerCase(Locale.ROOT));
+    }
+}
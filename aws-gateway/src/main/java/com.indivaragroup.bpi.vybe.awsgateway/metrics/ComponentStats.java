@@ -0,0 +1,45 @@
+package com.indivaragroup.bpi.vybe.awsgateway.metrics;
+
+import java.util.Map;
+
+/**
+ * Implemented by components that keep their own counters. {@link GatewayMetrics} writes them as
+ * EMF lines with a {@code Component} dimension whenever it flushes, and
+ * {@link MicrometerRequestMetrics} exposes them as gauges. Counters are cumulative since the
+ * container started.
+ */
+public interface ComponentStats {
+
+    /**
+     * Component name, e.g. {@code ResponseCache}.
+     */
+    String getStatsName();
+
+    /**
+     * Current values by metric name. A metric tracked per upstream is a map from the upstream
+     * (host or base URL) to its value; anything that is not a number is left out of the metrics.
+     */
+    Map<String, ?> getStats();
+
+    /**
+     * Calls {@code consumer} for every numeric value of {@code stats}; {@code upstream} is
+     * {@code null} for values that are not per upstream.
+     */
+    static void forEachValue(Map<String, ?> stats, ValueConsumer consumer) {
+        stats.forEach((metric, value) -> {
+            if (value instanceof Number) {
+                consumer.accept(metric, null, (Number) value);
+            } else if (value instanceof Map) {
+                ((Map<?, ?>) value).forEach((upstream, upstreamValue) -> {
+                    if (upstreamValue instanceof Number) {
+                        consumer.accept(metric, String.valueOf(upstream), (Number) upstreamValue);
+                    }
+                });
+            }
+        });
+    }
+
+    interface ValueConsumer {
+        void accept(String metric, String upstream, Number value);
+    }
+}
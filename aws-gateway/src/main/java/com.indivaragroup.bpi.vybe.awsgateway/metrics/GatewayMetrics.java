@@ -0,0 +1,292 @@
+package com.indivaragroup.bpi.vybe.awsgateway.metrics;
+
+import com.indivaragroup.bpi.vybe.awsgateway.context.RequestContext;
+import com.indivaragroup.bpi.vybe.awsgateway.serverless.LambdaContextHolder;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.pool.PoolStats;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Per-route request metrics written as CloudWatch Embedded Metric Format lines on the
+ * {@code METRICS} logger, so publishing costs a log write rather than an API call. Samples are
+ * queued per route without locking and written, at most {@code metrics.emf.max-values} per line
+ * (the EMF per-metric limit), when a route reaches that many or {@code metrics.emf.flush-interval-ms}
+ * has passed. Inside Lambda everything is also written at the end of each invocation by
+ * {@link #endInvocation()}: a frozen container may never run again, and samples written later
+ * would carry the wrong timestamp. Every flush also writes the counters of each
+ * {@link ComponentStats} bean. Each request is also passed to any {@link RequestMetricsListener}
+ * beans, e.g. a Micrometer registry in service mode, which also get the components on every flush.
+ */
+@Component
+public class GatewayMetrics {
+
+    private static final Logger METRICS_LOG = LoggerFactory.getLogger("METRICS");
+    private static final double NANOS_PER_MILLI = 1_000_000.0;
+    private static final Stage[] STAGES = Stage.values();
+
+    private final PoolingHttpClientConnectionManager connectionManager;
+    private final List<RequestMetricsListener> listeners;
+    private final ObjectProvider<ComponentStats> components;
+
+    @Value("${metrics.enabled:true}")
+    private boolean enabled;
+    @Value("${metrics.emf.enabled:true}")
+    private boolean emfEnabled;
+    @Value("${metrics.namespace:AwsGateway}")
+    private String namespace;
+    @Value("${metrics.emf.flush-interval-ms:60000}")
+    private long flushIntervalMs;
+    @Value("${metrics.emf.max-values:100}")
+    private int maxValues;
+
+    private final ConcurrentMap<String, RouteBuffer> routes = new ConcurrentHashMap<>();
+    private final AtomicLong nextFlushMillis = new AtomicLong(System.currentTimeMillis());
+
+    public GatewayMetrics(ObjectProvider<PoolingHttpClientConnectionManager> connectionManager,
+                          ObjectProvider<RequestMetricsListener> listeners,
+                          ObjectProvider<ComponentStats> components) {
+        this.connectionManager = connectionManager.getIfAvailable();
+        this.listeners = listeners.orderedStream().collect(Collectors.toList());
+        // Looked up on each flush: components may themselves depend on this bean
+        this.components = components;
+    }
+
+    public void record(RequestContext context) {
+        if (!enabled) {
+            return;
+        }
+        for (RequestMetricsListener listener : listeners) {
+            listener.onRequest(context);
+        }
+        long now = System.currentTimeMillis();
+        if (emfEnabled) {
+            String route = context.getRoute() != null ? context.getRoute() : "unmatched";
+            RouteBuffer buffer = routes.computeIfAbsent(route, RouteBuffer::new);
+            if (buffer.add(new Sample(context)) >= maxValues) {
+                buffer.drain(now);
+            }
+        }
+        long next = nextFlushMillis.get();
+        if (now >= next && nextFlushMillis.compareAndSet(next, now + flushIntervalMs)) {
+            flush(now);
+        }
+    }
+
+    /**
+     * Writes every buffered sample when called inside a Lambda invocation; a no-op in service
+     * mode, where the flush interval applies.
+     */
+    public void endInvocation() {
+        if (enabled && emfEnabled && LambdaContextHolder.get() != null) {
+            long now = System.currentTimeMillis();
+            nextFlushMillis.set(now + flushIntervalMs);
+            flush(now);
+        }
+    }
+
+    private void flush(long now) {
+        if (emfEnabled) {
+            routes.values().forEach(buffer -> buffer.drain(now));
+            if (connectionManager != null) {
+                METRICS_LOG.info(poolEmf(now));
+            }
+        }
+        components.orderedStream().forEach(component -> {
+            for (RequestMetricsListener listener : listeners) {
+                listener.onComponentStats(component);
+            }
+            if (emfEnabled) {
+                componentEmf(now, component.getStatsName(), component.getStats()).forEach(METRICS_LOG::info);
+            }
+        });
+    }
+
+    /**
+     * One line for the component's own values and one per upstream for values tracked per upstream.
+     */
+    private List<String> componentEmf(long now, String component, Map<String, ?> stats) {
+        Map<String, Map<String, Number>> byUpstream = new TreeMap<>(Comparator.nullsFirst(Comparator.naturalOrder()));
+        ComponentStats.forEachValue(stats, (metric, upstream, value) -> byUpstream
+                .computeIfAbsent(upstream, key -> new LinkedHashMap<>())
+                .put(Character.toUpperCase(metric.charAt(0)) + metric.substring(1), value));
+        List<String> lines = new ArrayList<>(byUpstream.size());
+        byUpstream.forEach((upstream, values) -> {
+            StringBuilder line = new StringBuilder(256 + values.size() * 48);
+            String[] dimensions = upstream == null ? new String[]{"Component"} : new String[]{"Component", "Upstream"};
+            header(line, now, dimensions, values.keySet().toArray(new String[0]));
+            line.append(",\"Component\":\"").append(escape(component)).append('"');
+            if (upstream != null) {
+                line.append(",\"Upstream\":\"").append(escape(upstream)).append('"');
+            }
+            values.forEach((metric, value) -> line.append(",\"").append(metric).append("\":").append(value));
+            lines.add(line.append('}').toString());
+        });
+        return lines;
+    }
+
+    private String poolEmf(long now) {
+        PoolStats stats = connectionManager.getTotalStats();
+        StringBuilder line = new StringBuilder(320);
+        header(line, now, new String[0], "PoolLeased", "PoolAvailable", "PoolPending", "PoolMax");
+        line.append(",\"PoolLeased\":").append(stats.getLeased())
+            .append(",\"PoolAvailable\":").append(stats.getAvailable())
+            .append(",\"PoolPending\":").append(stats.getPending())
+            .append(",\"PoolMax\":").append(stats.getMax())
+            .append('}');
+        return line.toString();
+    }
+
+    private void header(StringBuilder line, long now, String[] dimensions, String... metrics) {
+        line.append("{\"_aws\":{\"Timestamp\":").append(now)
+            .append(",\"CloudWatchMetrics\":[{\"Namespace\":\"").append(namespace).append("\",\"Dimensions\":[[");
+        for (int i = 0; i < dimensions.length; i++) {
+            line.append(i > 0 ? ",\"" : "\"").append(dimensions[i]).append('"');
+        }
+        line.append("]],\"Metrics\":[");
+        for (int i = 0; i < metrics.length; i++) {
+            String unit = metrics[i].endsWith("Ms") ? "Milliseconds" : "Count";
+            line.append(i > 0 ? "," : "").append("{\"Name\":\"").append(metrics[i])
+                .append("\",\"Unit\":\"").append(unit).append("\"}");
+        }
+        line.append("]}]}");
+    }
+
+    private static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"");
+    }
+
+    /**
+     * Samples of one route since they were last written. Any thread may add or drain; each
+     * sample is polled exactly once, so concurrent drains only split the output across lines.
+     */
+    private final class RouteBuffer {
+        private final String route;
+        private final Queue<Sample> samples = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger size = new AtomicInteger();
+
+        private RouteBuffer(String route) {
+            this.route = route;
+        }
+
+        private int add(Sample sample) {
+            samples.add(sample);
+            return size.incrementAndGet();
+        }
+
+        private void drain(long now) {
+            List<Sample> batch = new ArrayList<>(Math.min(size.get(), maxValues));
+            Sample sample;
+            while ((sample = samples.poll()) != null) {
+                size.decrementAndGet();
+                batch.add(sample);
+                if (batch.size() == maxValues) {
+                    METRICS_LOG.info(toEmf(batch, now));
+                    batch.clear();
+                }
+            }
+            if (!batch.isEmpty()) {
+                METRICS_LOG.info(toEmf(batch, now));
+            }
+        }
+
+        /**
+         * Stage values only come from samples that went through the stage, so their counts differ.
+         */
+        private String toEmf(List<Sample> batch, long now) {
+            int clientErrors = 0;
+            int serverErrors = 0;
+            int[] stageCounts = new int[STAGES.length];
+            for (Sample sample : batch) {
+                if (sample.status >= 500) {
+                    serverErrors++;
+                } else if (sample.status >= 400) {
+                    clientErrors++;
+                }
+                for (int i = 0; i < STAGES.length; i++) {
+                    if (sample.stageMs[i] >= 0) {
+                        stageCounts[i]++;
+                    }
+                }
+            }
+            List<String> names = new ArrayList<>();
+            names.add("Requests");
+            names.add("ClientErrors");
+            names.add("ServerErrors");
+            names.add("LatencyMs");
+            for (Stage stage : STAGES) {
+                if (stageCounts[stage.ordinal()] > 0) {
+                    names.add(stage.getMetricName());
+                }
+            }
+            StringBuilder line = new StringBuilder(256 + batch.size() * 8 * (names.size() - 2));
+            header(line, now, new String[]{"Route"}, names.toArray(new String[0]));
+            line.append(",\"Route\":\"").append(escape(route))
+                .append("\",\"Requests\":").append(batch.size())
+                .append(",\"ClientErrors\":").append(clientErrors)
+                .append(",\"ServerErrors\":").append(serverErrors);
+            values(line, "LatencyMs", batch, -1);
+            for (Stage stage : STAGES) {
+                if (stageCounts[stage.ordinal()] > 0) {
+                    values(line, stage.getMetricName(), batch, stage.ordinal());
+                }
+            }
+            return line.append('}').toString();
+        }
+
+        /**
+         * Appends the latency ({@code stage} -1) or one stage's values of {@code batch}.
+         */
+        private void values(StringBuilder line, String name, List<Sample> batch, int stage) {
+            line.append(",\"").append(name).append("\":[");
+            boolean first = true;
+            for (Sample sample : batch) {
+                double value = stage < 0 ? sample.latencyMs : sample.stageMs[stage];
+                if (value < 0) {
+                    continue;
+                }
+                if (!first) {
+                    line.append(',');
+                }
+                line.append(Math.round(value * 1000) / 1000.0);
+                first = false;
+            }
+            line.append(']');
+        }
+    }
+
+    /**
+     * One request's latency, per-stage times (-1 when the stage did not run) and status.
+     */
+    private static final class Sample {
+        private final double latencyMs;
+        private final double[] stageMs = new double[STAGES.length];
+        private final int status;
+
+        private Sample(RequestContext context) {
+            latencyMs = context.elapsedNanos() / NANOS_PER_MILLI;
+            for (Stage stage : STAGES) {
+                long nanos = context.getStageNanos(stage);
+                stageMs[stage.ordinal()] = nanos >= 0 ? nanos / NANOS_PER_MILLI : -1;
+            }
+            status = context.getStatus();
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.indivaragroup.bpi.vybe.awsgateway.metrics;
+
+import com.indivaragroup.bpi.vybe.awsgateway.context.RequestContext;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mirrors the gateway metrics into a Micrometer registry when the gateway runs as a service with
+ * one configured: {@code gateway.requests} and {@code gateway.stage} timers tagged by route (and
+ * status or stage), connection pool gauges and a {@code gateway.<component>.<metric>} gauge per
+ * {@link ComponentStats} value, tagged by upstream where the value is per upstream. Component
+ * gauges read the component live and are registered on the first flush that sees them. Inactive
+ * when no registry bean exists.
+ */
+@Component
+@ConditionalOnClass(name = "io.micrometer.core.instrument.MeterRegistry")
+public class MicrometerRequestMetrics implements RequestMetricsListener {
+
+    private static final Stage[] STAGES = Stage.values();
+
+    private final MeterRegistry registry;
+    private final PoolingHttpClientConnectionManager connectionManager;
+
+    public MicrometerRequestMetrics(ObjectProvider<MeterRegistry> registry,
+                                    ObjectProvider<PoolingHttpClientConnectionManager> connectionManager) {
+        this.registry = registry.getIfAvailable();
+        this.connectionManager = connectionManager.getIfAvailable();
+    }
+
+    @PostConstruct
+    void registerPoolGauges() {
+        if (registry == null || connectionManager == null) {
+            return;
+        }
+        Gauge.builder("gateway.pool.leased", connectionManager, manager -> manager.getTotalStats().getLeased())
+                .register(registry);
+        Gauge.builder("gateway.pool.available", connectionManager, manager -> manager.getTotalStats().getAvailable())
+                .register(registry);
+        Gauge.builder("gateway.pool.pending", connectionManager, manager -> manager.getTotalStats().getPending())
+                .register(registry);
+        Gauge.builder("gateway.pool.max", connectionManager, manager -> manager.getTotalStats().getMax())
+                .register(registry);
+    }
+
+    @Override
+    public void onComponentStats(ComponentStats component) {
+        if (registry == null) {
+            return;
+        }
+        String prefix = "gateway." + component.getStatsName().toLowerCase(Locale.ROOT) + ".";
+        ComponentStats.forEachValue(component.getStats(), (metric, upstream, value) -> {
+            Gauge.Builder<ComponentStats> gauge = Gauge.builder(prefix + metric, component,
+                                                                 source -> currentValue(source, metric, upstream));
+            if (upstream != null) {
+                gauge.tag("upstream", upstream);
+            }
+            // Returns the existing gauge once registered
+            gauge.register(registry);
+        });
+    }
+
+    private static double currentValue(ComponentStats component, String metric, String upstream) {
+        Object value = component.getStats().get(metric);
+        if (upstream != null && value instanceof Map) {
+            value = ((Map<?, ?>) value).get(upstream);
+        }
+        return value instanceof Number ? ((Number) value).doubleValue() : Double.NaN;
+    }
+
+    @Override
+    public void onRequest(RequestContext context) {
+        if (registry == null) {
+            return;
+        }
+        String route = context.getRoute() != null ? context.getRoute() : "unmatched";
+        Timer.builder("gateway.requests")
+                .tag("route", route)
+                .tag("status", Integer.toString(context.getStatus()))
+                .register(registry)
+                .record(context.elapsedNanos(), TimeUnit.NANOSECONDS);
+        for (Stage stage : STAGES) {
+            long nanos = context.getStageNanos(stage);
+            if (nanos >= 0) {
+                Timer.builder("gateway.stage")
+                        .tag("route", route)
+                        .tag("stage", stage.name().toLowerCase(Locale.ROOT))
+                        .register(registry)
+                        .record(nanos, TimeUnit.NANOSECONDS);
+            }
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package com.indivaragroup.bpi.vybe.awsgateway.metrics;
+
+import com.indivaragroup.bpi.vybe.awsgateway.context.RequestContext;
+
+/**
+ * Receives every completed request from {@link GatewayMetrics}. Called on the request thread, so
+ * implementations must be cheap and must not block.
+ */
+public interface RequestMetricsListener {
+
+    void onRequest(RequestContext context);
+
+    /**
+     * Called for each {@link ComponentStats} bean whenever {@link GatewayMetrics} flushes.
+     */
+    default void onComponentStats(ComponentStats component) {
+    }
+}
@@ -0,0 +1,26 @@
+package com.indivaragroup.bpi.vybe.awsgateway.metrics;
+
+/**
+ * Phases of a proxied request that are timed separately. Upstream connect includes waiting for
+ * a pooled connection; TTFB runs from sending the request to receiving the response headers.
+ */
+public enum Stage {
+    BODY("BodyMs"),
+    VALIDATION("ValidationMs"),
+    HEADER_FILTER("HeaderFilterMs"),
+    S3_UPLOAD("S3UploadMs"),
+    UPSTREAM_CONNECT("UpstreamConnectMs"),
+    UPSTREAM_TTFB("UpstreamTtfbMs"),
+    UPSTREAM_TRANSFER("UpstreamTransferMs"),
+    RESPONSE_MAPPING("ResponseMappingMs");
+
+    private final String metricName;
+
+    Stage(String metricName) {
+        this.metricName = metricName;
+    }
+
+    public String getMetricName() {
+        return metricName;
+    }
+}
@@ -0,0 +1,34 @@
+package com.indivaragroup.bpi.vybe.awsgateway.metrics;
+
+import com.indivaragroup.bpi.vybe.awsgateway.context.RequestContextHolder;
+import org.apache.http.HttpClientConnection;
+import org.apache.http.HttpException;
+import org.apache.http.HttpRequest;
+import org.apache.http.HttpResponse;
+import org.apache.http.protocol.HttpContext;
+import org.apache.http.protocol.HttpRequestExecutor;
+
+import java.io.IOException;
+
+/**
+ * Splits the blocking client's call into connect and time-to-first-byte. It runs once a pooled
+ * connection is leased and open, so everything before {@link #doSendRequest} is connect time and
+ * everything until the response headers are parsed is TTFB.
+ */
+public class TimingHttpRequestExecutor extends HttpRequestExecutor {
+
+    @Override
+    protected HttpResponse doSendRequest(HttpRequest request, HttpClientConnection connection, HttpContext context)
+            throws IOException, HttpException {
+        RequestContextHolder.lap(Stage.UPSTREAM_CONNECT);
+        return super.doSendRequest(request, connection, context);
+    }
+
+    @Override
+    protected HttpResponse doReceiveResponse(HttpRequest request, HttpClientConnection connection,
+                                             HttpContext context) throws HttpException, IOException {
+        HttpResponse response = super.doReceiveResponse(request, connection, context);
+        RequestContextHolder.lap(Stage.UPSTREAM_TTFB);
+        return response;
+    }
+}
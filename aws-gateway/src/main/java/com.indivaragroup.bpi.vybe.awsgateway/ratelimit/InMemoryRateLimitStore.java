@@ -0,0 +1,85 @@
+package com.indivaragroup.bpi.vybe.awsgateway.ratelimit;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free token buckets. Each bucket is a single {@link AtomicLong} holding the time at which
+ * it will be full again (the GCRA form of a token bucket), updated by compare-and-set, so a
+ * check allocates nothing once the key exists. A bucket whose refill time has passed is full and
+ * indistinguishable from a new one, which makes dropping it free: when
+ * {@code gateway.rate-limit.max-keys} is exceeded those are swept, and if every bucket is still
+ * active new clients share one overflow bucket per route instead of growing the map.
+ */
+@Component
+public class InMemoryRateLimitStore implements RateLimitStore {
+
+    private static final String OVERFLOW_SUFFIX = "|*";
+
+    @Value("${gateway.rate-limit.max-keys:100000}")
+    private int maxKeys;
+
+    private final Map<String, AtomicLong> buckets = new ConcurrentHashMap<>();
+    private final AtomicBoolean sweeping = new AtomicBoolean();
+    private final LongAdder overflows = new LongAdder();
+
+    @Override
+    public long acquire(String key, double permitsPerSecond, int burst) {
+        long now = System.nanoTime();
+        long interval = (long) (1_000_000_000L / permitsPerSecond);
+        long capacity = interval * burst;
+        AtomicLong bucket = bucketFor(key, now);
+        while (true) {
+            long fullAt = bucket.get();
+            long next = Math.max(fullAt, now) + interval;
+            if (next - now > capacity) {
+                return next - now - capacity;
+            }
+            if (bucket.compareAndSet(fullAt, next)) {
+                return 0;
+            }
+        }
+    }
+
+    @Override
+    public int size() {
+        return buckets.size();
+    }
+
+    public long getOverflows() {
+        return overflows.sum();
+    }
+
+    private AtomicLong bucketFor(String key, long now) {
+        AtomicLong bucket = buckets.get(key);
+        if (bucket != null) {
+            return bucket;
+        }
+        if (buckets.size() >= maxKeys) {
+            sweep(now);
+            if (buckets.size() >= maxKeys) {
+                overflows.increment();
+                int separator = key.indexOf('|');
+                key = (separator > 0 ? key.substring(0, separator) : key) + OVERFLOW_SUFFIX;
+            }
+        }
+        return buckets.computeIfAbsent(key, ignored -> new AtomicLong(now));
+    }
+
+    private void sweep(long now) {
+        if (!sweeping.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            buckets.entrySet().removeIf(entry -> entry.getValue().get() - now <= 0);
+        } finally {
+            sweeping.set(false);
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.indivaragroup.bpi.vybe.awsgateway.ratelimit;
+
+import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyResponseEvent;
+import com.indivaragroup.bpi.vybe.awsgateway.context.RequestContext;
+import com.indivaragroup.bpi.vybe.awsgateway.metrics.ComponentStats;
+import com.indivaragroup.bpi.vybe.awsgateway.routing.Route;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import static com.indivaragroup.bpi.vybe.awsgateway.error.ErrorUtils.createErrorResponse;
+
+/**
+ * Rejects requests with 503 before any validation or upstream work when the gateway is
+ * overloaded: when {@code gateway.load-shedding.max-in-flight} requests are already being proxied,
+ * or when the moving average of the route's upstream latency exceeds
+ * {@code gateway.load-shedding.max-upstream-latency-ms}. Latency is averaged per upstream base URL,
+ * so one slow backend does not shed routes served by another, and only after
+ * {@code min-samples} calls. Latency shedding is probabilistic and grows with the excess up to
+ * {@code max-shed-ratio}, so some requests still reach the upstream and keep the average
+ * current. Both thresholds are off at 0.
+ */
+@Slf4j
+@Component
+public class LoadShedder implements ComponentStats {
+
+    @Value("${gateway.load-shedding.max-in-flight:0}")
+    private int maxInFlight;
+    @Value("${gateway.load-shedding.max-upstream-latency-ms:0}")
+    private long maxUpstreamLatencyMs;
+    @Value("${gateway.load-shedding.max-shed-ratio:0.9}")
+    private double maxShedRatio;
+    /** Weight of each new sample in the latency average. */
+    @Value("${gateway.load-shedding.latency-smoothing:0.2}")
+    private double smoothing;
+    @Value("${gateway.load-shedding.min-samples:20}")
+    private int minSamples;
+    @Value("${gateway.load-shedding.retry-after-seconds:1}")
+    private int retryAfterSeconds;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final Map<String, LatencyAverage> latencies = new ConcurrentHashMap<>();
+    private final LongAdder shedInFlight = new LongAdder();
+    private final LongAdder shedLatency = new LongAdder();
+
+    /**
+     * Admits a request, returning {@code null}, or returns the 503 to send instead. Every
+     * admitted request must be followed by {@link #exit}.
+     */
+    public APIGatewayProxyResponseEvent tryEnter(Route route) {
+        if (maxInFlight > 0 && inFlight.incrementAndGet() > maxInFlight) {
+            inFlight.decrementAndGet();
+            shedInFlight.increment();
+            return overloaded("Gateway is at its concurrency limit");
+        }
+        LatencyAverage latency = maxUpstreamLatencyMs > 0 ? latencies.get(route.getTargetBaseUrl()) : null;
+        if (latency != null && latency.samples.get() >= minSamples) {
+            double excess = latency.averageNanos.get() / (maxUpstreamLatencyMs * 1_000_000.0) - 1;
+            if (excess > 0 && ThreadLocalRandom.current().nextDouble() < Math.min(maxShedRatio, excess)) {
+                if (maxInFlight > 0) {
+                    inFlight.decrementAndGet();
+                }
+                shedLatency.increment();
+                return overloaded("Upstream latency is above the shedding threshold");
+            }
+        }
+        return null;
+    }
+
+    public void exit(Route route, RequestContext context) {
+        if (maxInFlight > 0) {
+            inFlight.decrementAndGet();
+        }
+        long sample = context.getUpstreamNanos();
+        if (maxUpstreamLatencyMs > 0 && sample >= 0) {
+            LatencyAverage latency = latencies.computeIfAbsent(route.getTargetBaseUrl(), key -> new LatencyAverage());
+            latency.averageNanos.updateAndGet(average -> latency.samples.getAndIncrement() == 0
+                    ? sample : (long) (average + smoothing * (sample - average)));
+        }
+    }
+
+    @Override
+    public String getStatsName() {
+        return "LoadShedder";
+    }
+
+    @Override
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("inFlight", inFlight.get());
+        Map<String, Long> averageLatencyMs = new TreeMap<>();
+        latencies.forEach((target, latency) -> averageLatencyMs.put(target, latency.averageNanos.get() / 1_000_000));
+        stats.put("averageLatencyMs", averageLatencyMs);
+        stats.put("shedInFlight", shedInFlight.sum());
+        stats.put("shedLatency", shedLatency.sum());
+        return stats;
+    }
+
+    private APIGatewayProxyResponseEvent overloaded(String message) {
+        log.debug("Shedding request : {}", message);
+        APIGatewayProxyResponseEvent response = createErrorResponse(503, "503", message);
+        Map<String, String> headers = response.getHeaders() != null
+                ? new HashMap<>(response.getHeaders()) : new HashMap<>();
+        headers.put("Retry-After", String.valueOf(retryAfterSeconds));
+        return response.withHeaders(headers);
+    }
+
+    private static final class LatencyAverage {
+        private final AtomicLong averageNanos = new AtomicLong();
+        private final AtomicInteger samples = new AtomicInteger();
+    }
+}
@@ -0,0 +1,18 @@
+package com.indivaragroup.bpi.vybe.awsgateway.ratelimit;
+
+/**
+ * Token buckets behind {@link RateLimiter}. The default keeps them on the container heap, so
+ * limits hold per container; a shared implementation (e.g. a Redis-compatible store reachable
+ * from every container) can be declared as the {@code @Primary} bean instead.
+ */
+public interface RateLimitStore {
+
+    /**
+     * Takes one token from the bucket {@code key}, which refills at {@code permitsPerSecond} up
+     * to {@code burst} tokens. Returns 0 when granted, otherwise the nanoseconds until a token
+     * becomes available.
+     */
+    long acquire(String key, double permitsPerSecond, int burst);
+
+    int size();
+}
@@ -0,0 +1,218 @@
+package com.indivaragroup.bpi.vybe.awsgateway.ratelimit;
+
+import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyRequestEvent;
+import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyResponseEvent;
+import com.indivaragroup.bpi.vybe.awsgateway.context.RequestContext;
+import com.indivaragroup.bpi.vybe.awsgateway.metrics.ComponentStats;
+import com.indivaragroup.bpi.vybe.awsgateway.routing.Route;
+import com.indivaragroup.bpi.vybe.awsgateway.routing.RouteOptionsValidator;
+import com.indivaragroup.bpi.vybe.awsgateway.routing.RoutePolicy;
+import com.indivaragroup.bpi.vybe.awsgateway.util.HeaderUtils;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import static com.indivaragroup.bpi.vybe.awsgateway.error.ErrorUtils.createErrorResponse;
+
+/**
+ * Per-route, per-client token buckets, enabled with {@code gateway.rate-limit.enabled=true}.
+ * Open (NONE) routes get the {@code gateway.rate-limit.open-routes.*} limit; any route can set
+ * its own with the {@code rate-limit.per-second}, {@code rate-limit.burst} and
+ * {@code rate-limit.key} options, where a rate of 0 turns limiting off. The key selects the
+ * client identity: {@code ip} (the source IP), {@code device} (the device header) or
+ * {@code user} (the principal token validation established, so it is checked after validation).
+ * The principal is the user header of the validation response, never the one the client sent.
+ * A missing device header or principal falls back to the source IP. The device header is chosen
+ * by the client, which can evade a {@code device} limit by sending a new value with each request;
+ * use it to share a limit fairly among well-behaved devices, and {@code ip} or {@code user} where
+ * the limit must hold.
+ *
+ * <p>With the default per-container store, {@code gateway.rate-limit.containers} divides every
+ * limit so that the expected number of warm containers together stay close to it.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class RateLimiter implements RouteOptionsValidator, ComponentStats {
+
+    public static final String PER_SECOND_OPTION = "rate-limit.per-second";
+    public static final String BURST_OPTION = "rate-limit.burst";
+    public static final String KEY_OPTION = "rate-limit.key";
+
+    private static final Limit UNLIMITED = new Limit(0, 0, KeyType.IP);
+
+    private final RateLimitStore store;
+
+    @Value("${gateway.rate-limit.enabled:false}")
+    private boolean enabled;
+    @Value("${gateway.rate-limit.open-routes.per-second:5}")
+    private double openRoutePerSecond;
+    @Value("${gateway.rate-limit.open-routes.burst:20}")
+    private int openRouteBurst;
+    @Value("${gateway.rate-limit.open-routes.key:ip}")
+    private String openRouteKey;
+    @Value("${gateway.rate-limit.containers:1}")
+    private int containers;
+    @Value("${gateway.rate-limit.user-header:X-User-Id}")
+    private String userHeader;
+    @Value("${gateway.rate-limit.device-header:X-Device-Id}")
+    private String deviceHeader;
+
+    private final Map<Route, Limit> limits = new ConcurrentHashMap<>();
+    private final LongAdder allowed = new LongAdder();
+    private final LongAdder limited = new LongAdder();
+
+    @Override
+    public void validate(Route route) {
+        limits.computeIfAbsent(route, this::compile);
+    }
+
+    /**
+     * Check made before validation. Returns {@code null} when the request may continue,
+     * otherwise a 429 response.
+     */
+    public APIGatewayProxyResponseEvent checkBeforeValidation(Route route, APIGatewayProxyRequestEvent event,
+                                                              RequestContext context) {
+        Limit limit = limitFor(route);
+        return limit.keyType == KeyType.USER ? null : check(route, limit, event, context);
+    }
+
+    /**
+     * Check for {@code user}-keyed routes, made once validation has identified the caller.
+     */
+    public APIGatewayProxyResponseEvent checkAfterValidation(Route route, APIGatewayProxyRequestEvent event,
+                                                             RequestContext context) {
+        Limit limit = limitFor(route);
+        return limit.keyType == KeyType.USER ? check(route, limit, event, context) : null;
+    }
+
+    /**
+     * The caller's identity in the headers token validation returned, for
+     * {@link RequestContext#setPrincipal}; {@code null} when validation named none.
+     */
+    public String principal(Map<String, String> validatedHeaders) {
+        String principal = HeaderUtils.getHeader(validatedHeaders, userHeader);
+        return principal == null || principal.isEmpty() ? null : principal;
+    }
+
+    @Override
+    public String getStatsName() {
+        return "RateLimiter";
+    }
+
+    @Override
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("allowed", allowed.sum());
+        stats.put("limited", limited.sum());
+        stats.put("buckets", store.size());
+        return stats;
+    }
+
+    private APIGatewayProxyResponseEvent check(Route route, Limit limit, APIGatewayProxyRequestEvent event,
+                                               RequestContext context) {
+        if (limit.permitsPerSecond <= 0) {
+            return null;
+        }
+        String key = route.getPattern() + '|' + identity(limit.keyType, event, context);
+        long waitNanos = store.acquire(key, limit.permitsPerSecond, limit.burst);
+        if (waitNanos == 0) {
+            allowed.increment();
+            return null;
+        }
+        limited.increment();
+        log.debug("Rate limited {} for {} ms", key, waitNanos / 1_000_000);
+        APIGatewayProxyResponseEvent response = createErrorResponse(429, "429", "Too many requests");
+        Map<String, String> headers = response.getHeaders() != null
+                ? new HashMap<>(response.getHeaders()) : new HashMap<>();
+        headers.put("Retry-After", String.valueOf(Math.max(1, (waitNanos + 999_999_999L) / 1_000_000_000L)));
+        return response.withHeaders(headers);
+    }
+
+    private String identity(KeyType keyType, APIGatewayProxyRequestEvent event, RequestContext context) {
+        String identity = null;
+        if (keyType == KeyType.USER) {
+            identity = context.getPrincipal();
+        } else if (keyType == KeyType.DEVICE) {
+            identity = HeaderUtils.getHeader(event.getHeaders(), deviceHeader);
+        }
+        if (identity != null && !identity.isEmpty()) {
+            return keyType.name() + ':' + identity;
+        }
+        return context.getClientIp() != null ? context.getClientIp() : "unknown";
+    }
+
+    private Limit limitFor(Route route) {
+        if (!enabled) {
+            return UNLIMITED;
+        }
+        return limits.computeIfAbsent(route, this::compile);
+    }
+
+    private Limit compile(Route route) {
+        boolean open = route.getPolicy() == RoutePolicy.NONE;
+        double perSecond = perSecond(route, open ? openRoutePerSecond : 0);
+        long burst = route.getLongOption(BURST_OPTION, open ? openRouteBurst : Math.max(1, (long) Math.ceil(perSecond)));
+        if (burst < 1) {
+            throw route.invalidOption(BURST_OPTION, route.getOption(BURST_OPTION, null), "one or more");
+        }
+        KeyType keyType = keyType(route, open ? openRouteKey : "ip");
+        if (perSecond <= 0) {
+            return UNLIMITED;
+        }
+        int share = Math.max(1, containers);
+        Limit limit = new Limit(perSecond / share, (int) Math.max(1, Math.min(Integer.MAX_VALUE, burst) / share), keyType);
+        if (enabled) {
+            log.info("Rate limit for {} : {}/s, burst {}, keyed by {}",
+                     route.getPattern(), limit.permitsPerSecond, limit.burst, keyType.name().toLowerCase(Locale.ROOT));
+        }
+        return limit;
+    }
+
+    private static double perSecond(Route route, double defaultValue) {
+        String value = route.getOption(PER_SECOND_OPTION, null);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            double perSecond = Double.parseDouble(value.trim());
+            if (perSecond >= 0 && !Double.isInfinite(perSecond)) {
+                return perSecond;
+            }
+        } catch (NumberFormatException e) {
+            // Reported below
+        }
+        throw route.invalidOption(PER_SECOND_OPTION, value, "a rate of zero or more");
+    }
+
+    private static KeyType keyType(Route route, String defaultValue) {
+        String value = route.getOption(KEY_OPTION, defaultValue);
+        try {
+            return KeyType.valueOf(value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw route.invalidOption(KEY_OPTION, value, "ip, device or user");
+        }
+    }
+
+    private enum KeyType { IP, DEVICE, USER }
+
+    private static final class Limit {
+        private final double permitsPerSecond;
+        private final int burst;
+        private final KeyType keyType;
+
+        private Limit(double permitsPerSecond, int burst, KeyType keyType) {
+            this.permitsPerSecond = permitsPerSecond;
+            this.burst = burst;
+            this.keyType = keyType;
+        }
+    }
+}
@@ -0,0 +1,324 @@
+package com.indivaragroup.bpi.vybe.awsgateway.resilience;
+
+import com.amazonaws.services.lambda.runtime.Context;
+import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyResponseEvent;
+import com.indivaragroup.bpi.vybe.awsgateway.metrics.ComponentStats;
+import com.indivaragroup.bpi.vybe.awsgateway.response.UpstreamResponseMapper;
+import com.indivaragroup.bpi.vybe.awsgateway.serverless.LambdaContextHolder;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.http.client.config.RequestConfig;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.net.URI;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.LongFunction;
+import java.util.function.Supplier;
+
+import static com.indivaragroup.bpi.vybe.awsgateway.error.ErrorUtils.createErrorResponse;
+
+/**
+ * Per-upstream-host circuit breaker, bulkhead and retry policy around outbound calls. Every
+ * attempt gets timeouts derived from the invocation deadline: the Lambda context's remaining
+ * time minus a safety margin, or a fixed budget outside Lambda. Only idempotent methods are
+ * retried, with full-jitter exponential backoff, and only on 502/503/504 outcomes. Errors the
+ * gateway produced itself ({@link UpstreamResponseMapper#isGatewayError}) are neither retried nor
+ * counted by the breaker, and a call that throws is answered with a 502 after its permits are
+ * returned.
+ */
+@Slf4j
+@Component
+public class UpstreamResilience implements ComponentStats {
+
+    private static final Set<String> IDEMPOTENT_METHODS = new HashSet<>(
+            Arrays.asList("GET", "HEAD", "OPTIONS", "PUT", "DELETE"));
+
+    @Value("${outbound.resilience.enabled:true}")
+    private boolean enabled;
+    @Value("${outbound.resilience.breaker.failure-threshold:5}")
+    private int failureThreshold;
+    @Value("${outbound.resilience.breaker.open-ms:10000}")
+    private long openMillis;
+    @Value("${outbound.resilience.breaker.half-open-permits:1}")
+    private int halfOpenPermits;
+    @Value("${outbound.resilience.bulkhead.max-concurrent:20}")
+    private int maxConcurrent;
+    @Value("${outbound.resilience.bulkhead.max-wait-ms:50}")
+    private long bulkheadMaxWaitMillis;
+    @Value("${outbound.resilience.retry.max-attempts:3}")
+    private int maxAttempts;
+    @Value("${outbound.resilience.retry.backoff-base-ms:50}")
+    private long backoffBaseMillis;
+    @Value("${outbound.resilience.retry.backoff-max-ms:1000}")
+    private long backoffMaxMillis;
+    @Value("${outbound.resilience.deadline-margin-ms:500}")
+    private long deadlineMarginMillis;
+    @Value("${outbound.resilience.default-deadline-ms:28000}")
+    private long defaultDeadlineMillis;
+    @Value("${outbound.resilience.min-attempt-ms:100}")
+    private long minAttemptMillis;
+    @Value("${outbound.http.connect-timeout-ms:2000}")
+    private int connectTimeoutMs;
+    @Value("${outbound.http.socket-timeout-ms:25000}")
+    private int socketTimeoutMs;
+    @Value("${outbound.http.pool-acquire-timeout-ms:1000}")
+    private int poolAcquireTimeoutMs;
+
+    private static final ThreadLocal<Long> DEADLINE = new ThreadLocal<>();
+
+    private final Map<String, UpstreamGuard> guards = new ConcurrentHashMap<>();
+    private final LongAdder retries = new LongAdder();
+    private final LongAdder deadlineExceeded = new LongAdder();
+
+    /**
+     * Runs {@code call} with the given per-attempt {@link RequestConfig}.
+     */
+    public APIGatewayProxyResponseEvent execute(String url, String method,
+                                                Function<RequestConfig, APIGatewayProxyResponseEvent> call) {
+        if (!enabled) {
+            return invoke(url, call, null);
+        }
+        UpstreamGuard guard = guardFor(url);
+        long deadline = currentDeadline();
+        boolean retryable = IDEMPOTENT_METHODS.contains(method);
+
+        for (int attempt = 1; ; attempt++) {
+            long remaining = deadline - System.currentTimeMillis();
+            if (remaining < minAttemptMillis) {
+                deadlineExceeded.increment();
+                return createErrorResponse(504, "504", "Upstream deadline exceeded");
+            }
+            if (!guard.breaker.tryAcquirePermission()) {
+                return unavailable("Upstream circuit is open", guard.breaker.remainingOpenMillis());
+            }
+            if (!guard.bulkhead.tryAcquire(Math.min(bulkheadMaxWaitMillis, remaining))) {
+                guard.breaker.releasePermission();
+                return unavailable("Upstream concurrency limit reached", 1000);
+            }
+
+            APIGatewayProxyResponseEvent response;
+            try {
+                response = invoke(url, call, requestConfig(remaining));
+            } finally {
+                guard.bulkhead.release();
+            }
+
+            if (UpstreamResponseMapper.isGatewayError(response)) {
+                guard.breaker.releasePermission();
+                return response;
+            }
+            if (!isFailure(response)) {
+                guard.breaker.onSuccess();
+                return response;
+            }
+            guard.breaker.onFailure();
+
+            long backoff = backoff(attempt);
+            if (!retryable || attempt >= maxAttempts
+                || deadline - System.currentTimeMillis() - backoff < minAttemptMillis) {
+                return response;
+            }
+            log.debug("Retrying {} {} after {} ms (attempt {} returned {})",
+                      method, url, backoff, attempt, response.getStatusCode());
+            retries.increment();
+            if (!sleep(backoff)) {
+                return response;
+            }
+        }
+    }
+
+    /**
+     * Breaker and deadline only: {@code call} gets the milliseconds left until
+     * {@link #currentDeadline()} as its timeout (0 when resilience is disabled). The async client
+     * enforces its own per-host limits and is not retried.
+     */
+    public CompletableFuture<APIGatewayProxyResponseEvent> executeAsync(
+            String url, LongFunction<CompletableFuture<APIGatewayProxyResponseEvent>> call) {
+        if (!enabled) {
+            return invokeAsync(url, call, 0);
+        }
+        long remaining = currentDeadline() - System.currentTimeMillis();
+        if (remaining < minAttemptMillis) {
+            deadlineExceeded.increment();
+            return CompletableFuture.completedFuture(createErrorResponse(504, "504", "Upstream deadline exceeded"));
+        }
+        UpstreamGuard guard = guardFor(url);
+        if (!guard.breaker.tryAcquirePermission()) {
+            return CompletableFuture.completedFuture(
+                    unavailable("Upstream circuit is open", guard.breaker.remainingOpenMillis()));
+        }
+        return invokeAsync(url, call, remaining).whenComplete((response, error) -> {
+            if (error == null && UpstreamResponseMapper.isGatewayError(response)) {
+                guard.breaker.releasePermission();
+            } else if (error != null || isFailure(response)) {
+                guard.breaker.onFailure();
+            } else {
+                guard.breaker.onSuccess();
+            }
+        });
+    }
+
+    /**
+     * Epoch millis by which outbound calls made on this thread must finish.
+     */
+    public long currentDeadline() {
+        Long override = DEADLINE.get();
+        if (override != null) {
+            return override;
+        }
+        Context context = LambdaContextHolder.get();
+        long budget = context != null ? context.getRemainingTimeInMillis() - deadlineMarginMillis : defaultDeadlineMillis;
+        return System.currentTimeMillis() + budget;
+    }
+
+    /**
+     * Runs {@code call} with {@link #currentDeadline()} fixed to {@code deadlineMillis}, e.g. on a
+     * worker thread that has no Lambda context of its own.
+     */
+    public <T> T withDeadline(long deadlineMillis, Supplier<T> call) {
+        Long previous = DEADLINE.get();
+        DEADLINE.set(deadlineMillis);
+        try {
+            return call.get();
+        } finally {
+            if (previous != null) {
+                DEADLINE.set(previous);
+            } else {
+                DEADLINE.remove();
+            }
+        }
+    }
+
+    public Map<String, Map<String, Object>> getMetrics() {
+        Map<String, Map<String, Object>> metrics = new TreeMap<>();
+        guards.forEach((host, guard) -> {
+            Map<String, Object> hostMetrics = new LinkedHashMap<>();
+            hostMetrics.put("breakerState", guard.breaker.getState().name());
+            hostMetrics.put("breakerOpened", guard.breaker.getOpenedCount());
+            hostMetrics.put("breakerRejections", guard.breaker.getRejectedCount());
+            hostMetrics.put("bulkheadInFlight", guard.bulkhead.getInFlight());
+            hostMetrics.put("bulkheadRejections", guard.bulkhead.getRejectedCount());
+            metrics.put(host, hostMetrics);
+        });
+        Map<String, Object> totals = new LinkedHashMap<>();
+        totals.put("retries", retries.sum());
+        totals.put("deadlineExceeded", deadlineExceeded.sum());
+        metrics.put("_all", totals);
+        return metrics;
+    }
+
+    @Override
+    public String getStatsName() {
+        return "UpstreamResilience";
+    }
+
+    /**
+     * {@link #getMetrics()} shaped for {@link ComponentStats}: totals at the top level and the
+     * breaker and bulkhead values by metric, then host. {@code breakerOpen} is 1 while the
+     * breaker rejects calls.
+     */
+    @Override
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("retries", retries.sum());
+        stats.put("deadlineExceeded", deadlineExceeded.sum());
+        Map<String, Long> breakerOpen = new TreeMap<>();
+        Map<String, Long> breakerOpened = new TreeMap<>();
+        Map<String, Long> breakerRejections = new TreeMap<>();
+        Map<String, Long> bulkheadInFlight = new TreeMap<>();
+        Map<String, Long> bulkheadRejections = new TreeMap<>();
+        guards.forEach((host, guard) -> {
+            breakerOpen.put(host, guard.breaker.getState() == CircuitBreaker.State.OPEN ? 1L : 0L);
+            breakerOpened.put(host, guard.breaker.getOpenedCount());
+            breakerRejections.put(host, guard.breaker.getRejectedCount());
+            bulkheadInFlight.put(host, (long) guard.bulkhead.getInFlight());
+            bulkheadRejections.put(host, guard.bulkhead.getRejectedCount());
+        });
+        stats.put("breakerOpen", breakerOpen);
+        stats.put("breakerOpened", breakerOpened);
+        stats.put("breakerRejections", breakerRejections);
+        stats.put("bulkheadInFlight", bulkheadInFlight);
+        stats.put("bulkheadRejections", bulkheadRejections);
+        return stats;
+    }
+
+    private UpstreamGuard guardFor(String url) {
+        URI uri = URI.create(url);
+        String host = uri.getHost() + (uri.getPort() > 0 ? ":" + uri.getPort() : "");
+        return guards.computeIfAbsent(host, key -> new UpstreamGuard(
+                new CircuitBreaker(failureThreshold, openMillis, halfOpenPermits), new Bulkhead(maxConcurrent)));
+    }
+
+    private static APIGatewayProxyResponseEvent invoke(String url,
+                                                       Function<RequestConfig, APIGatewayProxyResponseEvent> call,
+                                                       RequestConfig requestConfig) {
+        try {
+            return call.apply(requestConfig);
+        } catch (RuntimeException e) {
+            log.error("Error while calling upstream {}", url, e);
+            return UpstreamResponseMapper.gatewayError(502, "Upstream call failed");
+        }
+    }
+
+    private static CompletableFuture<APIGatewayProxyResponseEvent> invokeAsync(
+            String url, LongFunction<CompletableFuture<APIGatewayProxyResponseEvent>> call, long timeoutMillis) {
+        try {
+            return call.apply(timeoutMillis);
+        } catch (RuntimeException e) {
+            log.error("Error while calling upstream {}", url, e);
+            return CompletableFuture.completedFuture(UpstreamResponseMapper.gatewayError(502, "Upstream call failed"));
+        }
+    }
+
+    private RequestConfig requestConfig(long remainingMillis) {
+        int remaining = (int) Math.min(Integer.MAX_VALUE, remainingMillis);
+        return RequestConfig.custom()
+                .setConnectTimeout(Math.min(connectTimeoutMs, remaining))
+                .setConnectionRequestTimeout(Math.min(poolAcquireTimeoutMs, remaining))
+                .setSocketTimeout(Math.min(socketTimeoutMs, remaining))
+                .build();
+    }
+
+    private long backoff(int attempt) {
+        long ceiling = Math.min(backoffMaxMillis, backoffBaseMillis << Math.min(attempt - 1, 20));
+        return ThreadLocalRandom.current().nextLong(ceiling + 1);
+    }
+
+    private static boolean isFailure(APIGatewayProxyResponseEvent response) {
+        Integer status = response != null ? response.getStatusCode() : null;
+        return status == null || status == 502 || status == 503 || status == 504;
+    }
+
+    private static APIGatewayProxyResponseEvent unavailable(String message, long retryAfterMillis) {
+        APIGatewayProxyResponseEvent response = createErrorResponse(503, "503", message);
+        Map<String, String> headers = response.getHeaders() != null
+                ? new HashMap<>(response.getHeaders()) : new HashMap<>();
+        headers.put("Retry-After", String.valueOf(Math.max(1, (retryAfterMillis + 999) / 1000)));
+        return response.withHeaders(headers);
+    }
+
+    private static boolean sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private static final class UpstreamGuard {
+        private final CircuitBreaker breaker;
+        private final Bulkhead bulkhead;
+
+        private UpstreamGuard(CircuitBreaker breaker, Bulkhead bulkhead) {
+            this.breaker = breaker;
+            this.bulkhead = bulkhead;
+        }
+    }
+}
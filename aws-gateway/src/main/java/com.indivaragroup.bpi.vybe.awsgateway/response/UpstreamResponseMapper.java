@@ -0,0 +1,269 @@
+package com.indivaragroup.bpi.vybe.awsgateway.response;
+
+import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyResponseEvent;
+import com.indivaragroup.bpi.vybe.awsgateway.context.RequestContextHolder;
+import com.indivaragroup.bpi.vybe.awsgateway.metrics.Stage;
+import com.indivaragroup.bpi.vybe.awsgateway.util.HeaderUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpResponse;
+import org.apache.http.ParseException;
+import org.apache.http.entity.ContentType;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static com.indivaragroup.bpi.vybe.awsgateway.error.ErrorUtils.createErrorResponse;
+
+/**
+ * Copies an upstream response into an {@link APIGatewayProxyResponseEvent}: status, end-to-end
+ * headers and body. Textual bodies are decoded with their declared charset; anything else is
+ * returned base64 encoded with {@code isBase64Encoded} set, which requires binary media types to
+ * be enabled on the API Gateway stage. Upstream gzip is decoded here unless
+ * {@code outbound.response.gzip.enabled=true}; only then is it passed through to clients that
+ * accept it, and text bodies of {@code compress-min-bytes} or more compressed for them. Leave it
+ * off on stages without binary media types, whose clients would get base64 text. Any other
+ * upstream Content-Encoding is answered with a 502, since it can be neither decoded nor relayed
+ * as text.
+ */
+@Slf4j
+@Component
+public class UpstreamResponseMapper {
+
+    /**
+     * Set on errors the gateway produces itself around an upstream call, e.g. for an oversized
+     * body or a local concurrency limit. Retrying them cannot help and they say nothing about the
+     * upstream's health, so they must not count against its circuit breaker.
+     */
+    public static final String GATEWAY_ERROR_HEADER = "X-Gateway-Error";
+
+    private static final String CONTENT_ENCODING = "Content-Encoding";
+    private static final String GZIP = "gzip";
+    private static final String IDENTITY = "identity";
+    private static final String SET_COOKIE = "Set-Cookie";
+    private static final Set<String> HOP_BY_HOP_HEADERS = new HashSet<>(Arrays.asList(
+            "connection", "keep-alive", "proxy-authenticate", "proxy-authorization", "te", "trailer",
+            "transfer-encoding", "upgrade", "content-length"));
+
+    @Value("${outbound.response.max-bytes:6000000}")
+    private long maxBytes;
+    @Value("${outbound.response.gzip.enabled:false}")
+    private boolean gzipEnabled;
+    @Value("${outbound.response.compress-min-bytes:1024}")
+    private int compressMinBytes;
+
+    public APIGatewayProxyResponseEvent toResponseEvent(HttpResponse response, Map<String, String> requestHeaders)
+            throws IOException {
+        List<Map.Entry<String, String>> upstreamHeaders = new ArrayList<>();
+        for (Header header : response.getAllHeaders()) {
+            upstreamHeaders.add(new AbstractMap.SimpleImmutableEntry<>(header.getName(), header.getValue()));
+        }
+        HttpEntity entity = response.getEntity();
+        if (entity == null) {
+            return toResponseEvent(response.getStatusLine().getStatusCode(), upstreamHeaders, null, 0, requestHeaders);
+        }
+        try (InputStream content = entity.getContent()) {
+            return toResponseEvent(response.getStatusLine().getStatusCode(), upstreamHeaders, content,
+                                   entity.getContentLength(), requestHeaders);
+        }
+    }
+
+    /**
+     * Client-agnostic form; {@code contentLength} is negative when unknown. The caller owns and
+     * closes {@code content}.
+     */
+    public APIGatewayProxyResponseEvent toResponseEvent(int statusCode, List<Map.Entry<String, String>> upstreamHeaders,
+                                                        InputStream content, long contentLength,
+                                                        Map<String, String> requestHeaders) throws IOException {
+        APIGatewayProxyResponseEvent responseEvent = map(statusCode, upstreamHeaders, content, contentLength,
+                                                         requestHeaders);
+        RequestContextHolder.lap(Stage.RESPONSE_MAPPING);
+        return responseEvent;
+    }
+
+    private APIGatewayProxyResponseEvent map(int statusCode, List<Map.Entry<String, String>> upstreamHeaders,
+                                             InputStream content, long contentLength,
+                                             Map<String, String> requestHeaders) throws IOException {
+        Map<String, String> headers = copyHeaders(upstreamHeaders);
+        APIGatewayProxyResponseEvent responseEvent = new APIGatewayProxyResponseEvent()
+                .withStatusCode(statusCode)
+                .withHeaders(headers)
+                .withMultiValueHeaders(cookies(upstreamHeaders));
+        if (content == null) {
+            return responseEvent;
+        }
+        if (contentLength > maxBytes) {
+            return tooLarge();
+        }
+        byte[] body = readCapped(content, contentLength);
+        RequestContextHolder.lap(Stage.UPSTREAM_TRANSFER);
+        if (body == null) {
+            return tooLarge();
+        }
+
+        ContentType contentType = parseContentType(HeaderUtils.getHeader(headers, "Content-Type"));
+        boolean clientAcceptsGzip = gzipEnabled && acceptsGzip(requestHeaders);
+        String contentEncoding = HeaderUtils.getHeader(headers, CONTENT_ENCODING);
+
+        if (contentEncoding != null && !IDENTITY.equalsIgnoreCase(contentEncoding.trim())) {
+            if (!GZIP.equalsIgnoreCase(contentEncoding.trim())) {
+                // HeaderFilter only asks for gzip or identity
+                log.warn("Upstream response has unsupported Content-Encoding {}", contentEncoding);
+                return gatewayError(502, "Upstream response encoding is not supported");
+            }
+            if (clientAcceptsGzip) {
+                return encoded(responseEvent, body);
+            }
+            body = gunzip(body);
+            if (body == null) {
+                return tooLarge();
+            }
+            headers.remove(HeaderUtils.findName(headers, CONTENT_ENCODING));
+        } else if (contentEncoding != null) {
+            headers.remove(HeaderUtils.findName(headers, CONTENT_ENCODING));
+        }
+
+        if (!isText(contentType)) {
+            return encoded(responseEvent, body);
+        }
+        if (clientAcceptsGzip && body.length >= compressMinBytes) {
+            headers.put(CONTENT_ENCODING, GZIP);
+            headers.put("Vary", "Accept-Encoding");
+            return encoded(responseEvent, gzip(body));
+        }
+        Charset charset = contentType != null && contentType.getCharset() != null
+                ? contentType.getCharset() : StandardCharsets.UTF_8;
+        return responseEvent.withBody(new String(body, charset));
+    }
+
+    private APIGatewayProxyResponseEvent tooLarge() {
+        log.warn("Upstream response exceeds {} bytes, discarding", maxBytes);
+        return gatewayError(502, "Upstream response is too large");
+    }
+
+    public static APIGatewayProxyResponseEvent gatewayError(int statusCode, String message) {
+        APIGatewayProxyResponseEvent response = createErrorResponse(statusCode, String.valueOf(statusCode), message);
+        Map<String, String> headers = response.getHeaders() != null
+                ? new HashMap<>(response.getHeaders()) : new HashMap<>();
+        headers.put(GATEWAY_ERROR_HEADER, "true");
+        return response.withHeaders(headers);
+    }
+
+    public static boolean isGatewayError(APIGatewayProxyResponseEvent response) {
+        return response != null && HeaderUtils.getHeader(response.getHeaders(), GATEWAY_ERROR_HEADER) != null;
+    }
+
+    private static APIGatewayProxyResponseEvent encoded(APIGatewayProxyResponseEvent responseEvent, byte[] body) {
+        return responseEvent
+                .withIsBase64Encoded(true)
+                .withBody(Base64.getEncoder().encodeToString(body));
+    }
+
+    /**
+     * Reads at most {@code maxBytes}; returns {@code null} when the body is larger. A declared
+     * length lets the body be read straight into an exactly sized array.
+     */
+    private byte[] readCapped(InputStream content, long declaredLength) throws IOException {
+        if (declaredLength >= 0) {
+            byte[] body = content.readNBytes((int) declaredLength);
+            return content.read() == -1 ? body : null;
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream(8192);
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = content.read(buffer)) != -1) {
+            if (out.size() + read > maxBytes) {
+                return null;
+            }
+            out.write(buffer, 0, read);
+        }
+        return out.toByteArray();
+    }
+
+    private static Map<String, String> copyHeaders(List<Map.Entry<String, String>> upstreamHeaders) {
+        Map<String, String> headers = new LinkedHashMap<>(upstreamHeaders.size() * 2);
+        for (Map.Entry<String, String> header : upstreamHeaders) {
+            String name = header.getKey();
+            if (HOP_BY_HOP_HEADERS.contains(name.toLowerCase(Locale.ROOT)) || SET_COOKIE.equalsIgnoreCase(name)) {
+                continue;
+            }
+            // Repeated headers are folded as allowed by RFC 7230
+            headers.merge(name, header.getValue(), (first, second) -> first + ", " + second);
+        }
+        return headers;
+    }
+
+    /**
+     * Set-Cookie cannot be folded into one value, so every cookie goes out through
+     * {@code multiValueHeaders}; {@code null} when there are none.
+     */
+    private static Map<String, List<String>> cookies(List<Map.Entry<String, String>> upstreamHeaders) {
+        List<String> cookies = null;
+        for (Map.Entry<String, String> header : upstreamHeaders) {
+            if (SET_COOKIE.equalsIgnoreCase(header.getKey())) {
+                if (cookies == null) {
+                    cookies = new ArrayList<>(2);
+                }
+                cookies.add(header.getValue());
+            }
+        }
+        return cookies == null ? null : Collections.singletonMap(SET_COOKIE, cookies);
+    }
+
+    /**
+     * A Content-Type that cannot be parsed, or names a charset this JVM lacks, is treated as
+     * binary so the bytes still reach the client untouched.
+     */
+    private static ContentType parseContentType(String contentTypeHeader) {
+        if (contentTypeHeader == null) {
+            return null;
+        }
+        try {
+            return ContentType.parse(contentTypeHeader);
+        } catch (ParseException | IllegalArgumentException e) {
+            log.debug("Unusable upstream Content-Type '{}', passing the body through as bytes : {}",
+                      contentTypeHeader, e.getMessage());
+            return ContentType.APPLICATION_OCTET_STREAM;
+        }
+    }
+
+    private static boolean isText(ContentType contentType) {
+        if (contentType == null) {
+            return true;
+        }
+        String mimeType = contentType.getMimeType().toLowerCase(Locale.ROOT);
+        return mimeType.startsWith("text/") || mimeType.contains("json") || mimeType.contains("xml")
+               || mimeType.contains("javascript") || mimeType.equals("application/x-www-form-urlencoded");
+    }
+
+    private static boolean acceptsGzip(Map<String, String> requestHeaders) {
+        return HeaderUtils.acceptsEncoding(HeaderUtils.getHeader(requestHeaders, "Accept-Encoding"), GZIP);
+    }
+
+    private static byte[] gzip(byte[] body) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, body.length / 4));
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(body);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * {@code null} when the decompressed body exceeds {@code max-bytes}.
+     */
+    private byte[] gunzip(byte[] body) throws IOException {
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(body))) {
+            return readCapped(in, -1);
+        }
+    }
+}
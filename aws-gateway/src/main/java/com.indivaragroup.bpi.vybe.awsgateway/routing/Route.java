@@ -0,0 +1,64 @@
+package com.indivaragroup.bpi.vybe.awsgateway.routing;
+
+import lombok.Builder;
+import lombok.Getter;
+import lombok.Singular;
+import lombok.ToString;
+
+import java.util.Map;
+
+/**
+ * A compiled gateway route. Patterns are either exact ({@code /auth/login}), prefix
+ * ({@code /transactions/**}, which also matches {@code /transactions}) or templated
+ * ({@code /member/{id}}, one segment per variable).
+ */
+@Getter
+@Builder
+@ToString
+public class Route {
+
+    private final String pattern;
+    private final RoutePolicy policy;
+    private final String targetBaseUrl;
+    @Singular
+    private final Map<String, String> options;
+
+    public String getOption(String key, String defaultValue) {
+        return options.getOrDefault(key, defaultValue);
+    }
+
+    public long getLongOption(String key, long defaultValue) {
+        String value = options.get(key);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            throw invalidOption(key, value, "a whole number");
+        }
+    }
+
+    public boolean getBooleanOption(String key) {
+        return getBooleanOption(key, false);
+    }
+
+    public boolean getBooleanOption(String key, boolean defaultValue) {
+        String value = options.get(key);
+        if (value == null) {
+            return defaultValue;
+        }
+        if ("false".equalsIgnoreCase(value.trim())) {
+            return false;
+        }
+        if ("true".equalsIgnoreCase(value.trim())) {
+            return true;
+        }
+        throw invalidOption(key, value, "true or false");
+    }
+
+    public IllegalArgumentException invalidOption(String key, String value, String expected) {
+        return new IllegalArgumentException(
+                "Route " + pattern + " option " + key + "=" + value + " must be " + expected);
+    }
+}
@@ -0,0 +1,86 @@
+package com.indivaragroup.bpi.vybe.awsgateway.routing;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static com.indivaragroup.bpi.vybe.awsgateway.ApiPath.Idp.*;
+import static com.indivaragroup.bpi.vybe.awsgateway.ApiPath.Notification.NOTIF_OTP_SEND;
+import static com.indivaragroup.bpi.vybe.awsgateway.ApiPath.Notification.NOTIF_OTP_VERIFY;
+import static com.indivaragroup.bpi.vybe.awsgateway.ApiPath.Transactions.ADDMONEY_OTHER_BANK;
+import static com.indivaragroup.bpi.vybe.awsgateway.ApiPath.Transactions.ADDMONEY_VIA_NG;
+
+/**
+ * Builds the {@link RouteTable} once at startup. The built-in routes mirror the paths the
+ * gateway has always treated specially; {@code gateway.routes[*]} entries are layered on top
+ * and replace a built-in route with the same pattern. Anything unmatched requires a token.
+ * Route options are checked by every {@link RouteOptionsValidator} bean before the table is
+ * returned, so a bad option fails startup.
+ */
+@Slf4j
+@Configuration
+@EnableConfigurationProperties(RouteProperties.class)
+public class RouteConfig {
+
+    private static final String[] OPEN_PATHS = {
+            AUTH_LOGIN, NOTIF_IDP, MEMBER_FORGOT_PASSWORD, MEMBER_FORGOT_PASSWORD_OTP,
+            MEMBER_REGISTER_VYBE_PRO, MEMBER_SET_PIN_VYBE_PRO, MEMBER_REGISTER_VYBE_LITE, MEMBER_SET_MPIN_VYBE_LITE,
+            NOTIF_OTP_SEND, NOTIF_OTP_VERIFY, CHECK_VYBE_MEMBER, NOTIF_VERIFY_IDP
+    };
+    private static final String[] SIGNATURE_PATHS = {ADDMONEY_VIA_NG, ADDMONEY_OTHER_BANK};
+
+    @Value("${outbound.baseUrl}")
+    private String baseUrl;
+
+    @Bean
+    public RouteTable routeTable(RouteProperties routeProperties, ObjectProvider<RouteOptionsValidator> validators) {
+        Map<String, Route> routes = new LinkedHashMap<>();
+        for (String path : OPEN_PATHS) {
+            routes.put(path, route(path, RoutePolicy.NONE, baseUrl, null));
+        }
+        for (String path : SIGNATURE_PATHS) {
+            // Previously matched with contains(); now anchored to the path and its sub-paths
+            String pattern = path.endsWith("/") ? path + "**" : path + "/**";
+            routes.put(pattern, route(pattern, RoutePolicy.SIGNATURE, baseUrl, null));
+        }
+        for (RouteDefinition definition : routeProperties.getRoutes()) {
+            String target = definition.getTarget() != null ? definition.getTarget() : baseUrl;
+            routes.put(definition.getPath(),
+                       route(definition.getPath(), definition.getPolicy(), target, definition.getOptions()));
+        }
+
+        Route defaultRoute = route("/**", RoutePolicy.TOKEN, baseUrl, null);
+        validate(routes.values(), defaultRoute, validators.orderedStream().collect(Collectors.toList()));
+
+        log.info("Registered {} gateway routes", routes.size());
+        return new RouteTable(routes.values(), defaultRoute);
+    }
+
+    private static void validate(Iterable<Route> routes, Route defaultRoute, List<RouteOptionsValidator> validators) {
+        for (RouteOptionsValidator validator : validators) {
+            for (Route route : routes) {
+                validator.validate(route);
+            }
+            validator.validate(defaultRoute);
+        }
+    }
+
+    private static Route route(String pattern, RoutePolicy policy, String target, Map<String, String> options) {
+        Route.RouteBuilder builder = Route.builder()
+                .pattern(pattern)
+                .policy(policy)
+                .targetBaseUrl(target);
+        if (options != null) {
+            builder.options(options);
+        }
+        return builder.build();
+    }
+}
@@ -0,0 +1,24 @@
+package com.indivaragroup.bpi.vybe.awsgateway.routing;
+
+import lombok.Data;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Route as bound from configuration, e.g.
+ * <pre>
+ * gateway.routes[0].path=/member/{id}
+ * gateway.routes[0].policy=TOKEN
+ * gateway.routes[0].target=https://member.internal
+ * gateway.routes[0].options.cache.ttl-seconds=60
+ * </pre>
+ */
+@Data
+public class RouteDefinition {
+
+    private String path;
+    private RoutePolicy policy = RoutePolicy.TOKEN;
+    private String target;
+    private Map<String, String> options = new LinkedHashMap<>();
+}
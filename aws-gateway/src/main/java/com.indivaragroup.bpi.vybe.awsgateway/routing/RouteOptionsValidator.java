@@ -0,0 +1,15 @@
+package com.indivaragroup.bpi.vybe.awsgateway.routing;
+
+/**
+ * Implemented by components that read route options. {@link RouteConfig} runs every validator
+ * against each route while building the {@link RouteTable}, so a mistyped option fails startup
+ * instead of every request that reaches the route.
+ */
+public interface RouteOptionsValidator {
+
+    /**
+     * Throws {@link IllegalArgumentException} naming the option when {@code route} carries a value
+     * the component cannot use.
+     */
+    void validate(Route route);
+}
@@ -0,0 +1,10 @@
+package com.indivaragroup.bpi.vybe.awsgateway.routing;
+
+/**
+ * Validation applied to a request before it is forwarded upstream.
+ */
+public enum RoutePolicy {
+    NONE,
+    TOKEN,
+    SIGNATURE
+}
@@ -0,0 +1,14 @@
+package com.indivaragroup.bpi.vybe.awsgateway.routing;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@ConfigurationProperties(prefix = "gateway")
+public class RouteProperties {
+
+    private List<RouteDefinition> routes = new ArrayList<>();
+}
@@ -0,0 +1,178 @@
+package com.indivaragroup.bpi.vybe.awsgateway.routing;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Immutable route lookup built once at startup. Exact paths resolve through a single hash
+ * lookup; prefix and templated patterns are compiled into a segment trie, so a lookup walks
+ * the request path once. Exact matches win over templates, templates over prefixes, and the
+ * longest prefix wins among prefixes. Dot segments are resolved before matching, as the HTTP
+ * clients do before sending, so {@code /open/../member} is matched as {@code /member}.
+ */
+public class RouteTable {
+
+    private static final String PREFIX_SUFFIX = "/**";
+
+    private final Map<String, Route> exactRoutes = new HashMap<>();
+    private final Node root = new Node();
+    private final Route defaultRoute;
+
+    public RouteTable(Iterable<Route> routes, Route defaultRoute) {
+        this.defaultRoute = defaultRoute;
+        for (Route route : routes) {
+            register(route);
+        }
+    }
+
+    public Route match(String path) {
+        path = removeDotSegments(path);
+        Route exact = exactRoutes.get(path);
+        if (exact != null) {
+            return exact;
+        }
+        int start = skipSlash(path, 0);
+        Route matched = matchTemplate(root, path, start);
+        if (matched == null) {
+            PrefixMatch prefix = matchPrefix(root, path, start, 0);
+            matched = prefix != null ? prefix.route : null;
+        }
+        return matched != null ? matched : defaultRoute;
+    }
+
+    public Route getDefaultRoute() {
+        return defaultRoute;
+    }
+
+    private void register(Route route) {
+        String pattern = route.getPattern();
+        if (pattern.endsWith(PREFIX_SUFFIX)) {
+            String base = pattern.substring(0, pattern.length() - PREFIX_SUFFIX.length());
+            nodeFor(base).prefixRoute = route;
+        } else if (pattern.indexOf('{') >= 0) {
+            nodeFor(pattern).route = route;
+        } else {
+            exactRoutes.put(pattern, route);
+        }
+    }
+
+    private Node nodeFor(String pattern) {
+        Node node = root;
+        for (String segment : pattern.split("/")) {
+            if (segment.isEmpty()) {
+                continue;
+            }
+            if (segment.startsWith("{") && segment.endsWith("}")) {
+                if (node.variable == null) {
+                    node.variable = new Node();
+                }
+                node = node.variable;
+            } else {
+                node = node.children.computeIfAbsent(segment, key -> new Node());
+            }
+        }
+        return node;
+    }
+
+    /**
+     * A full template match, trying literal segments before variables and backtracking.
+     */
+    private static Route matchTemplate(Node node, String path, int start) {
+        if (start >= path.length()) {
+            return node.route;
+        }
+        int end = segmentEnd(path, start);
+        int next = skipSlash(path, end);
+        Node literal = node.children.get(path.substring(start, end));
+        if (literal != null) {
+            Route matched = matchTemplate(literal, path, next);
+            if (matched != null) {
+                return matched;
+            }
+        }
+        return node.variable != null ? matchTemplate(node.variable, path, next) : null;
+    }
+
+    /**
+     * The deepest prefix route covering the path; a literal segment wins a tie with a variable.
+     */
+    private static PrefixMatch matchPrefix(Node node, String path, int start, int depth) {
+        PrefixMatch best = node.prefixRoute != null ? new PrefixMatch(node.prefixRoute, depth) : null;
+        if (start >= path.length()) {
+            return best;
+        }
+        int end = segmentEnd(path, start);
+        int next = skipSlash(path, end);
+        Node literal = node.children.get(path.substring(start, end));
+        if (literal != null) {
+            best = deeper(best, matchPrefix(literal, path, next, depth + 1));
+        }
+        if (node.variable != null) {
+            best = deeper(best, matchPrefix(node.variable, path, next, depth + 1));
+        }
+        return best;
+    }
+
+    private static PrefixMatch deeper(PrefixMatch current, PrefixMatch candidate) {
+        return candidate != null && (current == null || candidate.depth > current.depth) ? candidate : current;
+    }
+
+    /**
+     * Resolves {@code .} and {@code ..} segments (also percent-encoded) the way RFC 3986 does;
+     * {@code ..} never climbs above the root.
+     */
+    static String removeDotSegments(String path) {
+        if (path.indexOf('.') < 0 && path.indexOf('%') < 0) {
+            return path;
+        }
+        Deque<String> segments = new ArrayDeque<>();
+        boolean dotSegment = false;
+        for (String segment : path.split("/", -1)) {
+            String decoded = segment.replace("%2e", ".").replace("%2E", ".");
+            dotSegment = decoded.equals(".") || decoded.equals("..");
+            if (decoded.equals("..")) {
+                if (segments.size() > 1) {
+                    segments.removeLast();
+                }
+            } else if (!decoded.equals(".")) {
+                segments.addLast(segment);
+            }
+        }
+        String normalized = String.join("/", segments);
+        if (dotSegment) {
+            normalized += "/";
+        }
+        return normalized.startsWith("/") || !path.startsWith("/") ? normalized : "/" + normalized;
+    }
+
+    private static int segmentEnd(String path, int start) {
+        int end = path.indexOf('/', start);
+        return end < 0 ? path.length() : end;
+    }
+
+    private static int skipSlash(String path, int index) {
+        while (index < path.length() && path.charAt(index) == '/') {
+            index++;
+        }
+        return index;
+    }
+
+    private static final class PrefixMatch {
+        private final Route route;
+        private final int depth;
+
+        private PrefixMatch(Route route, int depth) {
+            this.route = route;
+            this.depth = depth;
+        }
+    }
+
+    private static final class Node {
+        private final Map<String, Node> children = new HashMap<>();
+        private Node variable;
+        private Route route;
+        private Route prefixRoute;
+    }
+}
@@ -1,8 +1,19 @@
 package com.indivaragroup.bpi.vybe.awsgateway.serverless;
 
+import com.amazonaws.services.lambda.runtime.Context;
 import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyRequestEvent;
 import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyResponseEvent;
 import org.springframework.cloud.function.adapter.aws.SpringBootRequestHandler;
 
 public class AWSLambdaHandler extends SpringBootRequestHandler<APIGatewayProxyRequestEvent, APIGatewayProxyResponseEvent> {
+
+    @Override
+    public Object handleRequest(APIGatewayProxyRequestEvent event, Context context) {
+        LambdaContextHolder.set(context);
+        try {
+            return super.handleRequest(event, context);
+        } finally {
+            LambdaContextHolder.clear();
+        }
+    }
 }
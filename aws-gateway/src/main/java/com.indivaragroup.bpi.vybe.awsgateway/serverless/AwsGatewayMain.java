@@ -3,23 +3,47 @@ package com.indivaragroup.bpi.vybe.awsgateway.serverless;
 import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyRequestEvent;
 import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyResponseEvent;
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.indivaragroup.bpi.vybe.awsgateway.async.AsyncHttpExecutor;
+import com.indivaragroup.bpi.vybe.awsgateway.batch.BatchHandler;
+import com.indivaragroup.bpi.vybe.awsgateway.batch.BatchRequest;
+import com.indivaragroup.bpi.vybe.awsgateway.batch.BatchToken;
+import com.indivaragroup.bpi.vybe.awsgateway.body.RequestBodyProcessor;
+import com.indivaragroup.bpi.vybe.awsgateway.body.RequestPayload;
+import com.indivaragroup.bpi.vybe.awsgateway.cache.ResponseCache;
+import com.indivaragroup.bpi.vybe.awsgateway.context.RequestContext;
+import com.indivaragroup.bpi.vybe.awsgateway.context.RequestContextHolder;
+import com.indivaragroup.bpi.vybe.awsgateway.header.HeaderFilter;
+import com.indivaragroup.bpi.vybe.awsgateway.logging.AccessLogger;
+import com.indivaragroup.bpi.vybe.awsgateway.logging.LogRedaction;
+import com.indivaragroup.bpi.vybe.awsgateway.metrics.GatewayMetrics;
+import com.indivaragroup.bpi.vybe.awsgateway.metrics.Stage;
+import com.indivaragroup.bpi.vybe.awsgateway.ratelimit.LoadShedder;
+import com.indivaragroup.bpi.vybe.awsgateway.ratelimit.RateLimiter;
+import com.indivaragroup.bpi.vybe.awsgateway.resilience.UpstreamResilience;
+import com.indivaragroup.bpi.vybe.awsgateway.response.UpstreamResponseMapper;
+import com.indivaragroup.bpi.vybe.awsgateway.routing.Route;
+import com.indivaragroup.bpi.vybe.awsgateway.routing.RoutePolicy;
+import com.indivaragroup.bpi.vybe.awsgateway.routing.RouteTable;
+import com.indivaragroup.bpi.vybe.awsgateway.signature.SignatureVerifier;
+import com.indivaragroup.bpi.vybe.awsgateway.upload.MultipartS3Uploader;
+import com.indivaragroup.bpi.vybe.awsgateway.util.HeaderUtils;
 import com.indivaragroup.bpi.vybe.awsgateway.util.HttpUtils;
+import com.indivaragroup.bpi.vybe.awsgateway.validation.TokenValidationCache;
 import com.indivaragroup.bpi.vybe.awsgateway.validation.ValidatorService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.http.client.config.RequestConfig;
 import org.apache.http.client.methods.*;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.stereotype.Component;
-import org.springframework.beans.factory.annotation.Value;
 
-import java.util.HashMap;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.function.Function;
+import java.util.function.Supplier;
 
-import static com.indivaragroup.bpi.vybe.awsgateway.ApiPath.Idp.*;
-import static com.indivaragroup.bpi.vybe.awsgateway.ApiPath.Notification.NOTIF_OTP_SEND;
-import static com.indivaragroup.bpi.vybe.awsgateway.ApiPath.Notification.NOTIF_OTP_VERIFY;
-import static com.indivaragroup.bpi.vybe.awsgateway.ApiPath.Transactions.ADDMONEY_OTHER_BANK;
-import static com.indivaragroup.bpi.vybe.awsgateway.ApiPath.Transactions.ADDMONEY_VIA_NG;
 import static com.indivaragroup.bpi.vybe.awsgateway.constant.HttpMethod.*;
 import static com.indivaragroup.bpi.vybe.awsgateway.error.ErrorUtils.createErrorResponse;
 
@@ -28,147 +52,382 @@ import static com.indivaragroup.bpi.vybe.awsgateway.error.ErrorUtils.createError
 @RequiredArgsConstructor
 public class AwsGatewayMain implements Function<APIGatewayProxyRequestEvent, APIGatewayProxyResponseEvent> {
 
+    private static final Set<String> SUPPORTED_METHODS = Set.of(GET, POST, PUT, OPTIONS, HEAD, PATCH, DELETE);
+
     private final ValidatorService validatorService;
-    @Value("${outbound.baseUrl}")
-    private String baseUrl;
+    private final CloseableHttpClient httpClient;
+    private final RouteTable routeTable;
+    private final TokenValidationCache tokenValidationCache;
+    private final MultipartS3Uploader multipartS3Uploader;
+    private final UpstreamResponseMapper responseMapper;
+    private final ObjectProvider<AsyncHttpExecutor> asyncHttpExecutor;
+    private final AccessLogger accessLogger;
+    private final HeaderFilter headerFilter;
+    private final UpstreamResilience upstreamResilience;
+    private final SignatureVerifier signatureVerifier;
+    private final ResponseCache responseCache;
+    private final GatewayMetrics gatewayMetrics;
+    private final BatchHandler batchHandler;
+    private final RateLimiter rateLimiter;
+    private final LoadShedder loadShedder;
+    private final RequestBodyProcessor bodyProcessor;
 
     @Override
     public APIGatewayProxyResponseEvent apply(APIGatewayProxyRequestEvent eventFromGateway) {
-        log.info("event : {}", eventFromGateway);
+        try {
+            RequestContext context = RequestContext.start(eventFromGateway);
+            if (batchHandler.isBatchRequest(eventFromGateway)) {
+                return applyBatch(eventFromGateway, context);
+            }
+            return proxy(eventFromGateway, context, null);
+        } finally {
+            gatewayMetrics.endInvocation();
+        }
+    }
+
+    private APIGatewayProxyResponseEvent proxy(APIGatewayProxyRequestEvent eventFromGateway, RequestContext context,
+                                               BatchToken batchToken) {
+        RequestContextHolder.set(context);
+        APIGatewayProxyResponseEvent response = null;
+        try {
+            Route route = resolveRoute(eventFromGateway, context);
+            String apiUrl = route.getTargetBaseUrl() + eventFromGateway.getPath();
+
+            response = admit(route, eventFromGateway, context);
+            if (response != null) {
+                return response;
+            }
+            try {
+                RequestPayload payload = bodyProcessor.process(route, eventFromGateway, context);
+                response = payload.getRejection();
+                if (response == null) {
+                    response = validateRequest(route, eventFromGateway, apiUrl, context, batchToken);
+                }
+                if (response == null) {
+                    response = rateLimiter.checkAfterValidation(route, eventFromGateway, context);
+                }
+                if (response == null) {
+                    response = bodyProcessor.checkSchema(route, eventFromGateway, payload, context);
+                }
+                if (response == null) {
+                    long upstreamStart = System.nanoTime();
+                    response = hitToUrl(route, eventFromGateway, apiUrl, payload, context);
+                    context.setUpstreamNanos(System.nanoTime() - upstreamStart);
+                }
+                return response;
+            } finally {
+                loadShedder.exit(route, context);
+            }
+        } finally {
+            RequestContextHolder.clear();
+            complete(context, response);
+        }
+    }
 
-        String apiUrl = baseUrl + eventFromGateway.getPath();
+    /**
+     * Same routing and validation as {@link #apply}, but the upstream call does not block the
+     * caller when {@code outbound.execution-mode=async}. Validation itself stays synchronous and
+     * records its stages; the upstream call is bounded by the same deadline but is not retried
+     * and has no connect or first-byte timings.
+     * {@link #apply} always takes the blocking path, since a Lambda invocation waits anyway.
+     */
+    public CompletableFuture<APIGatewayProxyResponseEvent> applyAsync(APIGatewayProxyRequestEvent eventFromGateway) {
+        RequestContext context = RequestContext.start(eventFromGateway);
+        if (batchHandler.isBatchRequest(eventFromGateway)) {
+            // Sub-requests use the blocking client on the batch workers
+            return CompletableFuture.completedFuture(applyBatch(eventFromGateway, context));
+        }
+        RequestContextHolder.set(context);
+        try {
+            return proxyAsync(eventFromGateway, context);
+        } finally {
+            RequestContextHolder.clear();
+        }
+    }
 
-        if (isAddMoneyViaNgAndOtherBankTransaction(eventFromGateway.getPath())) {
-            log.info("Transaction NG or Add Money From Other Bank");
-            return handleWithSignatureKeyValidation(eventFromGateway, apiUrl);
+    /**
+     * The part of {@link #applyAsync} that runs on the caller thread, up to handing off the call.
+     */
+    private CompletableFuture<APIGatewayProxyResponseEvent> proxyAsync(APIGatewayProxyRequestEvent eventFromGateway,
+                                                                      RequestContext context) {
+        Route route = resolveRoute(eventFromGateway, context);
+        String apiUrl = route.getTargetBaseUrl() + eventFromGateway.getPath();
+
+        APIGatewayProxyResponseEvent rejection = admit(route, eventFromGateway, context);
+        if (rejection != null) {
+            complete(context, rejection);
+            return CompletableFuture.completedFuture(rejection);
+        }
+        CompletableFuture<APIGatewayProxyResponseEvent> response;
+        try {
+            response = forwardAsync(route, eventFromGateway, apiUrl, context);
+        } catch (RuntimeException e) {
+            // No future to hang the exit on, so settle the admission here
+            loadShedder.exit(route, context);
+            complete(context, null);
+            throw e;
+        }
+        return response.whenComplete((result, error) -> {
+            loadShedder.exit(route, context);
+            complete(context, result);
+        });
+    }
+
+    /**
+     * The admitted part of {@link #applyAsync}: body checks, validation and the upstream call.
+     * Rejections come back as completed futures.
+     */
+    private CompletableFuture<APIGatewayProxyResponseEvent> forwardAsync(Route route,
+                                                                         APIGatewayProxyRequestEvent eventFromGateway,
+                                                                         String apiUrl, RequestContext context) {
+        RequestPayload payload = bodyProcessor.process(route, eventFromGateway, context);
+        APIGatewayProxyResponseEvent rejection = payload.getRejection();
+        if (rejection == null) {
+            rejection = validateRequest(route, eventFromGateway, apiUrl, context, null);
+        }
+        if (rejection == null) {
+            rejection = rateLimiter.checkAfterValidation(route, eventFromGateway, context);
+        }
+        if (rejection == null) {
+            rejection = bodyProcessor.checkSchema(route, eventFromGateway, payload, context);
+        }
+        if (rejection != null) {
+            return CompletableFuture.completedFuture(rejection);
+        }
+        long upstreamStart = System.nanoTime();
+        return hitToUrlAsync(route, eventFromGateway, apiUrl, payload, context).whenComplete(
+                (response, error) -> context.setUpstreamNanos(System.nanoTime() - upstreamStart));
+    }
+
+    /**
+     * Edge checks made before any validation work: the client's rate limit, then load shedding.
+     * Returns {@code null} once admitted, after which {@link LoadShedder#exit} is owed.
+     */
+    private APIGatewayProxyResponseEvent admit(Route route, APIGatewayProxyRequestEvent eventFromGateway,
+                                               RequestContext context) {
+        APIGatewayProxyResponseEvent rejection = rateLimiter.checkBeforeValidation(route, eventFromGateway, context);
+        return rejection != null ? rejection : loadShedder.tryEnter(route);
+    }
+
+    /**
+     * Fans the envelope out through {@link #proxy}, so every sub-request is routed and checked
+     * against its own route policy. The bearer token is validated once for all TOKEN routes.
+     */
+    private APIGatewayProxyResponseEvent applyBatch(APIGatewayProxyRequestEvent envelope, RequestContext context) {
+        context.setRoute(batchHandler.getPath());
+        APIGatewayProxyResponseEvent response = null;
+        try {
+            BatchRequest batch;
+            try {
+                batch = batchHandler.parse(envelope, context);
+            } catch (IllegalArgumentException e) {
+                response = createErrorResponse(400, "400", e.getMessage());
+                return response;
+            }
+            boolean needsToken = batch.getEvents().stream()
+                    .anyMatch(event -> routeTable.match(event.getPath()).getPolicy() == RoutePolicy.TOKEN);
+            BatchToken batchToken = needsToken ? validateBatchToken(envelope, context) : null;
 
-        } else if (isPathNoNeedValidation(eventFromGateway.getPath())) {
-            log.info("APIs That don't need any validation");
-            return handleWithoutAnyValidation(eventFromGateway, apiUrl);
+            long upstreamStart = System.nanoTime();
+            response = batchHandler.execute(batch, event -> proxy(event, RequestContext.start(event), batchToken));
+            context.setUpstreamNanos(System.nanoTime() - upstreamStart);
+            return response;
+        } finally {
+            complete(context, response);
+        }
+    }
 
-        } else {
-            log.info("hit endpoint to : {}", apiUrl);
-            return handleWithTokenValidation(eventFromGateway, apiUrl);
+    private BatchToken validateBatchToken(APIGatewayProxyRequestEvent envelope, RequestContext context) {
+        Map<String, String> sent = batchHandler.inheritedHeaders(envelope.getHeaders());
+        context.mark();
+        APIGatewayProxyResponseEvent rejection;
+        try {
+            rejection = validateToken(envelope, context);
+        } finally {
+            context.lap(Stage.VALIDATION);
         }
+        return new BatchToken(rejection, context.getPrincipal(), sent,
+                              batchHandler.inheritedHeaders(envelope.getHeaders()));
     }
-    private APIGatewayProxyResponseEvent handleWithoutAnyValidation(APIGatewayProxyRequestEvent eventFromGateway,
-                                                                    String url) {
-        return hitToUrl(eventFromGateway, url);
+
+    private void complete(RequestContext context, APIGatewayProxyResponseEvent response) {
+        accessLogger.log(context, response);
+        gatewayMetrics.record(context);
+    }
+
+    private Route resolveRoute(APIGatewayProxyRequestEvent eventFromGateway, RequestContext context) {
+        if (accessLogger.sampleDebug(log)) {
+            log.debug("event : {}", LogRedaction.event(eventFromGateway));
+        }
+        Route route = routeTable.match(eventFromGateway.getPath());
+        context.setRoute(route.getPattern());
+        return route;
     }
-    private boolean isAddMoneyViaNgAndOtherBankTransaction(String eventPath) {
-        return eventPath.contains(ADDMONEY_VIA_NG) ||
-                eventPath.contains(ADDMONEY_OTHER_BANK);
+
+    /**
+     * Applies the route policy. Returns {@code null} when the request may be forwarded, otherwise
+     * the response to send back instead.
+     */
+    private APIGatewayProxyResponseEvent validateRequest(Route route, APIGatewayProxyRequestEvent eventFromGateway,
+                                                         String apiUrl, RequestContext context, BatchToken batchToken) {
+        if (route.getPolicy() == RoutePolicy.NONE) {
+            log.debug("APIs That don't need any validation : {}", apiUrl);
+            return null;
+        }
+        context.mark();
+        try {
+            return validateByPolicy(route, eventFromGateway, apiUrl, context, batchToken);
+        } finally {
+            context.lap(Stage.VALIDATION);
+        }
     }
-    private boolean isPathNoNeedValidation(String eventPath) {
-        return  eventPath.equals(AUTH_LOGIN) || eventPath.equals(NOTIF_IDP) ||
-                eventPath.equals(MEMBER_FORGOT_PASSWORD) || eventPath.equals(MEMBER_FORGOT_PASSWORD_OTP) ||
-                eventPath.equals(MEMBER_REGISTER_VYBE_PRO) || eventPath.equals(MEMBER_SET_PIN_VYBE_PRO) ||
-                eventPath.equals(MEMBER_REGISTER_VYBE_LITE) || eventPath.equals(MEMBER_SET_MPIN_VYBE_LITE) ||
-                eventPath.equals(NOTIF_OTP_SEND) || eventPath.equals(NOTIF_OTP_VERIFY) ||
-                eventPath.equals(CHECK_VYBE_MEMBER) || eventPath.equals(NOTIF_VERIFY_IDP);
+    private APIGatewayProxyResponseEvent validateByPolicy(Route route, APIGatewayProxyRequestEvent eventFromGateway,
+                                                          String apiUrl, RequestContext context, BatchToken batchToken) {
+        switch (route.getPolicy()) {
+            case SIGNATURE:
+                log.debug("Signature route {} : {}", route.getPattern(), apiUrl);
+                return validateSignatureKey(eventFromGateway);
+            default:
+                log.debug("hit endpoint to : {}", apiUrl);
+                if (batchToken == null) {
+                    return validateToken(eventFromGateway, context);
+                }
+                context.setPrincipal(batchToken.getPrincipal());
+                return batchToken.applyTo(eventFromGateway);
+        }
     }
-    private APIGatewayProxyResponseEvent handleWithSignatureKeyValidation(APIGatewayProxyRequestEvent eventFromGateway,
-                                                                                    String url) {
+    private APIGatewayProxyResponseEvent validateSignatureKey(APIGatewayProxyRequestEvent eventFromGateway) {
+        if (signatureVerifier.isEnabled()) {
+            return signatureVerifier.verify(eventFromGateway);
+        }
         APIGatewayProxyResponseEvent eventFromSignatureValidation;
         try {
-            log.info("Signature Validation");
             eventFromSignatureValidation = validatorService.validateSignature(eventFromGateway.getBody(), eventFromGateway.getPath());
         } catch (Exception e) {
             return createErrorResponse(500, "500", e.getMessage());
         }
 
-        if (eventFromSignatureValidation.getStatusCode() == 200) {
-            eventFromSignatureValidation = hitToUrl(eventFromGateway, url);
-        }
-        return eventFromSignatureValidation;
+        return eventFromSignatureValidation.getStatusCode() == 200 ? null : eventFromSignatureValidation;
     }
-    private APIGatewayProxyResponseEvent handleWithTokenValidation(APIGatewayProxyRequestEvent eventFromGateway, String url) {
+    private APIGatewayProxyResponseEvent validateToken(APIGatewayProxyRequestEvent eventFromGateway,
+                                                       RequestContext context) {
         APIGatewayProxyResponseEvent eventFromService;
 
         try {
-            log.info("Token Validation");
-            eventFromService = validatorService.validateResponseToken(eventFromGateway);
+            eventFromService = tokenValidationCache.validate(eventFromGateway, context);
             eventFromGateway.setHeaders(eventFromService.getHeaders());
         } catch (JsonProcessingException e) {
             return createErrorResponse(500, "500", e.getMessage());
         }
 
-        log.info("Header from gateway : {}", eventFromGateway.getHeaders());
-        if (eventFromService.getStatusCode() == 200) {
-            eventFromService = hitToUrl(eventFromGateway, url);
+        log.debug("Header from gateway : {}", LogRedaction.headers(eventFromGateway.getHeaders()));
+        if (eventFromService.getStatusCode() != 200) {
+            return eventFromService;
         }
-        return eventFromService;
+        context.setPrincipal(rateLimiter.principal(eventFromService.getHeaders()));
+        return null;
     }
-    private APIGatewayProxyResponseEvent hitToUrl(APIGatewayProxyRequestEvent eventFromGateway, String url) {
-        if (eventFromGateway.getHttpMethod().equals(GET)) {
-            log.info("START GET METHOD : {}", url);
-            return HttpUtils.makeHttpGetRequest(url, resetHeaders(eventFromGateway.getHeaders()),
-                                                eventFromGateway.getQueryStringParameters());
-        } else if (eventFromGateway.getHttpMethod().equals(POST)) {
-            log.info("START POST METHOD : {}", url);
-            if (eventFromGateway.getHeaders().get("Content-Type").contains("multipart/form-data")) {
-                return HttpUtils.makeHttpPostRequest(url, resetHeaders(eventFromGateway.getHeaders()),
-                        eventFromGateway.getBody(), eventFromGateway.getQueryStringParameters(), true);
-            } else {
-                return HttpUtils.makeHttpPostRequest(url, resetHeaders(eventFromGateway.getHeaders()),
-                        eventFromGateway.getBody(), eventFromGateway.getQueryStringParameters(), false);
-            }
+    private CompletableFuture<APIGatewayProxyResponseEvent> hitToUrlAsync(Route route,
+                                                                          APIGatewayProxyRequestEvent eventFromGateway,
+                                                                          String url, RequestPayload payload,
+                                                                          RequestContext context) {
+        AsyncHttpExecutor executor = asyncHttpExecutor.getIfAvailable();
+        if (executor == null) {
+            return CompletableFuture.completedFuture(hitToUrl(route, eventFromGateway, url, payload, context));
+        }
 
-        } else if (eventFromGateway.getHttpMethod().equals(PUT)) {
-            log.info("START PUT METHOD : {}", url);
-            return HttpUtils.makeHttpRequest(url, resetHeaders(eventFromGateway.getHeaders()),
-                                             eventFromGateway.getBody(), new HttpPut());
-        } else if (eventFromGateway.getHttpMethod().equals(OPTIONS)) {
-            log.info("START OPTIONS METHOD : {}", url);
-            return HttpUtils.makeHttpRequest(url, resetHeaders(eventFromGateway.getHeaders()),
-                                             eventFromGateway.getBody(), new HttpOptions());
-        } else if (eventFromGateway.getHttpMethod().equals(HEAD)) {
-            log.info("START HEAD METHOD : {}", url);
-            return HttpUtils.makeHttpRequest(url, resetHeaders(eventFromGateway.getHeaders()),
-                                             eventFromGateway.getBody(), new HttpHead());
-        } else if (eventFromGateway.getHttpMethod().equals(PATCH)) {
-            log.info("START PATCH METHOD : {}", url);
-            return HttpUtils.makeHttpRequest(url, resetHeaders(eventFromGateway.getHeaders()),
-                                             eventFromGateway.getBody(), new HttpPatch());
-        } else if (eventFromGateway.getHttpMethod().equals(DELETE)) {
-            log.info("START DELETE METHOD : {}", url);
-            return HttpUtils.makeHttpRequest(url, resetHeaders(eventFromGateway.getHeaders()),
-                                             eventFromGateway.getBody(), new HttpDelete());
-        } else {
-            return createErrorResponse(405, "405", "Http Method is invalid");
+        String method = eventFromGateway.getHttpMethod();
+        if (!SUPPORTED_METHODS.contains(method)) {
+            return CompletableFuture.completedFuture(createErrorResponse(405, "405", "Http Method is invalid"));
+        }
+        if (POST.equals(method) && isS3Upload(route, eventFromGateway)) {
+            // S3 uploads stay on the blocking client, just off the caller thread
+            return executor.supplyBlocking(onWorker(context, () -> hitToUrl(route, eventFromGateway, url, payload,
+                                                                             context)));
         }
+        if (responseCache.isCacheable(route, eventFromGateway)) {
+            return CompletableFuture.completedFuture(hitToUrl(route, eventFromGateway, url, payload, context));
+        }
+
+        log.debug("START ASYNC {} METHOD : {}", method, url);
+        context.mark();
+        Map<String, String> headers = headerFilter.filter(eventFromGateway.getHeaders(), context);
+        context.lap(Stage.HEADER_FILTER);
+        return upstreamResilience.executeAsync(url, timeoutMillis -> executor.execute(
+                method, url, headers, payload, eventFromGateway.getQueryStringParameters(), timeoutMillis));
     }
-    private Map<String, String> resetHeaders(Map<String, String> headers) {
-        // Create a new map to store filtered headers
-        Map<String, String> filteredHeaders = new HashMap<>();
-        log.info("RESET HEADER : {}", headers);
-        // Create a set of headers to exclude
-        String[] keysToExclude = {"Accept-Encoding", "CloudFront-Forwarded-Proto", "CloudFront-Is-Desktop-Viewer",
-                                  "CloudFront-Is-Mobile-Viewer", "CloudFront-Is-SmartTV-Viewer", "CloudFront-Is-Tablet-Viewer",
-                                  "CloudFront-Viewer-ASN", "CloudFront-Viewer-Country", "Host", "Postman-Token", "User-Agent",
-                                  "Via", "X-Amz-Cf-Id", "X-Amzn-Trace-Id", "X-Forwarded-For", "X-Forwarded-Port",
-                                  "X-Forwarded-Proto"};
-
-        log.info("headers.entrySet() : {}", headers.entrySet());
-        for (Map.Entry<String, String> entry : headers.entrySet()) {
-            String key = entry.getKey();
-            String value = entry.getValue();
-
-            // Check if the key should be excluded
-            if (!shouldExcludeKey(key, keysToExclude)) {
-                filteredHeaders.put(key, value);
+
+    /**
+     * Runs {@code call} on another thread with this request's context and outbound deadline.
+     */
+    private Supplier<APIGatewayProxyResponseEvent> onWorker(RequestContext context,
+                                                            Supplier<APIGatewayProxyResponseEvent> call) {
+        long deadline = upstreamResilience.currentDeadline();
+        return () -> {
+            RequestContextHolder.set(context);
+            try {
+                return upstreamResilience.withDeadline(deadline, call);
+            } finally {
+                RequestContextHolder.clear();
             }
+        };
+    }
+    private APIGatewayProxyResponseEvent hitToUrl(Route route, APIGatewayProxyRequestEvent eventFromGateway,
+                                                  String url, RequestPayload payload, RequestContext context) {
+        String method = eventFromGateway.getHttpMethod();
+        if (!SUPPORTED_METHODS.contains(method)) {
+            return createErrorResponse(405, "405", "Http Method is invalid");
         }
-
-        log.info("filteredHeaders : {}", filteredHeaders);
-        return filteredHeaders;
+        context.mark();
+        Map<String, String> headers = headerFilter.filter(eventFromGateway.getHeaders(), context);
+        context.lap(Stage.HEADER_FILTER);
+        log.debug("START {} METHOD : {}", method, url);
+        if (responseCache.isCacheable(route, eventFromGateway)) {
+            return responseCache.fetch(route, eventFromGateway, headers, outboundHeaders -> upstreamResilience.execute(
+                    url, method, requestConfig -> dispatch(route, eventFromGateway, method, url, outboundHeaders, payload,
+                                                           requestConfig)));
+        }
+        return upstreamResilience.execute(url, method, requestConfig -> dispatch(route, eventFromGateway, method, url,
+                                                                                 headers, payload, requestConfig));
     }
-    private static boolean shouldExcludeKey(String key, String[] keysToExclude) {
-        for (String excludedKey : keysToExclude) {
-            if (key.equals(excludedKey)) {
-                return true;
+    private APIGatewayProxyResponseEvent dispatch(Route route, APIGatewayProxyRequestEvent eventFromGateway,
+                                                  String method, String url, Map<String, String> headers,
+                                                  RequestPayload payload, RequestConfig requestConfig) {
+        if (GET.equals(method)) {
+            return HttpUtils.makeHttpGetRequest(httpClient, responseMapper, requestConfig, url, headers,
+                                                eventFromGateway.getQueryStringParameters());
+        } else if (POST.equals(method)) {
+            if (isS3Upload(route, eventFromGateway)) {
+                return HttpUtils.makeHttpMultipartPostRequest(httpClient, responseMapper, requestConfig,
+                                                              multipartS3Uploader, url, headers,
+                                                              eventFromGateway.getBody(),
+                                                              Boolean.TRUE.equals(eventFromGateway.getIsBase64Encoded()),
+                                                              eventFromGateway.getQueryStringParameters());
             }
+            return HttpUtils.makeHttpPostRequest(httpClient, responseMapper, requestConfig, url, headers, payload,
+                                                 eventFromGateway.getQueryStringParameters());
         }
-        return false;
+        return HttpUtils.makeHttpRequest(httpClient, responseMapper, requestConfig, url, headers,
+                                         payload, newRequest(method));
+    }
+    private static HttpRequestBase newRequest(String method) {
+        if (PUT.equals(method)) {
+            return new HttpPut();
+        } else if (OPTIONS.equals(method)) {
+            return new HttpOptions();
+        } else if (HEAD.equals(method)) {
+            return new HttpHead();
+        } else if (PATCH.equals(method)) {
+            return new HttpPatch();
+        }
+        return new HttpDelete();
+    }
+    /**
+     * Multipart bodies are only split into S3 objects on routes that opt in; elsewhere they are
+     * forwarded unchanged like any other body.
+     */
+    private boolean isS3Upload(Route route, APIGatewayProxyRequestEvent eventFromGateway) {
+        String mediaType = HeaderUtils.mediaType(HeaderUtils.getHeader(eventFromGateway.getHeaders(), "Content-Type"));
+        return "multipart/form-data".equals(mediaType) && multipartS3Uploader.uploadsToS3(route);
     }
 }
@@ -0,0 +1,133 @@
+package com.indivaragroup.bpi.vybe.awsgateway.serverless;
+
+import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyRequestEvent;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.indivaragroup.bpi.vybe.awsgateway.context.RequestContext;
+import com.indivaragroup.bpi.vybe.awsgateway.header.HeaderFilter;
+import com.indivaragroup.bpi.vybe.awsgateway.response.UpstreamResponseMapper;
+import com.indivaragroup.bpi.vybe.awsgateway.routing.RouteTable;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.util.EntityUtils;
+import org.crac.Core;
+import org.crac.Resource;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Exercises the request path once so classes are loaded and JIT-warm before the first real
+ * request: route lookups, header filtering, response mapping, Jackson event (de)serialization
+ * and, when {@code gateway.prime.url} is set, a real call through the HTTP pool. Runs on context
+ * refresh when {@code gateway.prime.on-startup=true} and before a CRaC / SnapStart checkpoint.
+ * Pooled sockets cannot survive a snapshot, so they are closed before the checkpoint and
+ * optionally re-opened after restore.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class GatewayPrimer implements Resource, ApplicationListener<ContextRefreshedEvent> {
+
+    private static final String[] SAMPLE_PATHS = {"/", "/member/check", "/transactions/history"};
+
+    private final RouteTable routeTable;
+    private final HeaderFilter headerFilter;
+    private final UpstreamResponseMapper responseMapper;
+    private final CloseableHttpClient httpClient;
+    private final PoolingHttpClientConnectionManager connectionManager;
+
+    @Value("${gateway.prime.on-startup:false}")
+    private boolean primeOnStartup;
+    @Value("${gateway.prime.url:}")
+    private String primeUrl;
+    @Value("${gateway.prime.after-restore:true}")
+    private boolean primeAfterRestore;
+
+    private boolean primed;
+    private boolean registered;
+
+    @Override
+    public void onApplicationEvent(ContextRefreshedEvent event) {
+        // Child contexts publish their own refresh events; register and prime once
+        if (registered) {
+            return;
+        }
+        registered = true;
+        // Keep a strong reference; CRaC only holds resources weakly
+        Core.getGlobalContext().register(this);
+        if (primeOnStartup) {
+            prime();
+        }
+    }
+
+    @Override
+    public void beforeCheckpoint(org.crac.Context<? extends Resource> context) {
+        if (!primed) {
+            prime();
+        }
+        connectionManager.closeExpiredConnections();
+        connectionManager.closeIdleConnections(0, TimeUnit.MILLISECONDS);
+        log.info("Outbound connections closed before checkpoint");
+    }
+
+    @Override
+    public void afterRestore(org.crac.Context<? extends Resource> context) {
+        if (primeAfterRestore) {
+            warmConnection();
+        }
+    }
+
+    public synchronized void prime() {
+        long start = System.nanoTime();
+        try {
+            for (String path : SAMPLE_PATHS) {
+                routeTable.match(path);
+            }
+
+            ObjectMapper objectMapper = new ObjectMapper();
+            APIGatewayProxyRequestEvent sample = new APIGatewayProxyRequestEvent()
+                    .withHttpMethod("GET")
+                    .withPath("/")
+                    .withHeaders(Collections.singletonMap("Content-Type", "application/json"))
+                    .withBody("{}");
+            objectMapper.readValue(objectMapper.writeValueAsBytes(sample), APIGatewayProxyRequestEvent.class);
+
+            headerFilter.filter(sample.getHeaders(), RequestContext.start(sample));
+
+            byte[] body = "{\"primed\":true}".getBytes(StandardCharsets.UTF_8);
+            List<Map.Entry<String, String>> headers = Collections.singletonList(
+                    new AbstractMap.SimpleImmutableEntry<>("Content-Type", "application/json"));
+            responseMapper.toResponseEvent(200, headers, new ByteArrayInputStream(body), body.length,
+                                           Collections.singletonMap("Accept-Encoding", "gzip"));
+
+            warmConnection();
+            primed = true;
+        } catch (Exception e) {
+            log.warn("Priming failed, continuing cold : {}", e.getMessage());
+        }
+        log.info("Gateway primed in {} ms", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+
+    private void warmConnection() {
+        if (primeUrl.isEmpty()) {
+            return;
+        }
+        try (CloseableHttpResponse response = httpClient.execute(new HttpGet(primeUrl))) {
+            // Consume the body so the connection goes back to the pool instead of being dropped
+            EntityUtils.consume(response.getEntity());
+            log.info("Priming call to {} returned {}", primeUrl, response.getStatusLine().getStatusCode());
+        } catch (Exception e) {
+            log.warn("Priming call to {} failed : {}", primeUrl, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package com.indivaragroup.bpi.vybe.awsgateway.serverless;
+
+import com.amazonaws.services.lambda.runtime.Context;
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+
+/**
+ * Exposes the Lambda {@link Context} of the invocation running on the current thread. The
+ * function adapter does not hand it to {@link AwsGatewayMain}, so the handlers publish it here.
+ */
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+public final class LambdaContextHolder {
+
+    private static final ThreadLocal<Context> CURRENT = new ThreadLocal<>();
+
+    public static void set(Context context) {
+        CURRENT.set(context);
+    }
+
+    public static Context get() {
+        return CURRENT.get();
+    }
+
+    public static void clear() {
+        CURRENT.remove();
+    }
+}
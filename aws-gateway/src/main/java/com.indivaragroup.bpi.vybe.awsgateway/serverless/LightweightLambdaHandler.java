@@ -0,0 +1,38 @@
+package com.indivaragroup.bpi.vybe.awsgateway.serverless;
+
+import com.amazonaws.services.lambda.runtime.Context;
+import com.amazonaws.services.lambda.runtime.RequestHandler;
+import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyRequestEvent;
+import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyResponseEvent;
+import com.indivaragroup.bpi.vybe.awsgateway.config.LightweightGatewayConfiguration;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+/**
+ * Startup-optimized alternative to {@link AWSLambdaHandler}. The context is built from
+ * {@link LightweightGatewayConfiguration} in the static initializer, i.e. during the Lambda init
+ * phase, which SnapStart captures in its snapshot together with the priming done by
+ * {@link GatewayPrimer}.
+ */
+public class LightweightLambdaHandler implements RequestHandler<APIGatewayProxyRequestEvent, APIGatewayProxyResponseEvent> {
+
+    private static final AnnotationConfigApplicationContext CONTEXT = createContext();
+    private static final AwsGatewayMain GATEWAY = CONTEXT.getBean(AwsGatewayMain.class);
+
+    private static AnnotationConfigApplicationContext createContext() {
+        AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext();
+        context.getEnvironment().addActiveProfile(LightweightGatewayConfiguration.PROFILE);
+        context.register(LightweightGatewayConfiguration.class);
+        context.refresh();
+        return context;
+    }
+
+    @Override
+    public APIGatewayProxyResponseEvent handleRequest(APIGatewayProxyRequestEvent event, Context context) {
+        LambdaContextHolder.set(context);
+        try {
+            return GATEWAY.apply(event);
+        } finally {
+            LambdaContextHolder.clear();
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.indivaragroup.bpi.vybe.awsgateway.signature;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Nonces seen within the accepted timestamp window. Entries are kept in insertion order, so
+ * expired ones are dropped from the head. The window is bounded: once {@code maxEntries} live
+ * nonces are held, new ones are refused instead of evicting entries that are still valid.
+ */
+class ReplayWindow {
+
+    enum Outcome { ACCEPTED, REPLAYED, FULL }
+
+    private final int maxEntries;
+    private final Map<String, Long> expiries = new LinkedHashMap<>();
+
+    ReplayWindow(int maxEntries) {
+        this.maxEntries = maxEntries;
+    }
+
+    synchronized Outcome register(String nonce, long expiresAtMillis, long nowMillis) {
+        evictExpired(nowMillis);
+        Long expiry = expiries.get(nonce);
+        if (expiry != null) {
+            return Outcome.REPLAYED;
+        }
+        if (expiries.size() >= maxEntries) {
+            return Outcome.FULL;
+        }
+        expiries.put(nonce, expiresAtMillis);
+        return Outcome.ACCEPTED;
+    }
+
+    synchronized int size() {
+        return expiries.size();
+    }
+
+    private void evictExpired(long nowMillis) {
+        Iterator<Long> iterator = expiries.values().iterator();
+        while (iterator.hasNext() && iterator.next() <= nowMillis) {
+            iterator.remove();
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.indivaragroup.bpi.vybe.awsgateway.signature;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * HMAC secrets for {@link SignatureVerifier}, loaded once and held as ready-to-use key specs.
+ * Keys come from {@code gateway.signature.keys} ({@code keyId:secret,...}) and, when set, from
+ * the {@code keyId=secret} properties file at {@code gateway.signature.keys-file}. The file is
+ * re-read at most every {@code key-refresh-ms} and only when its modification time changed, so
+ * a new key can be added next to the old one and the old one removed once clients moved over.
+ */
+@Slf4j
+@Component
+public class SignatureKeyProvider {
+
+    @Value("${gateway.signature.keys:}")
+    private String inlineKeys;
+    @Value("${gateway.signature.keys-file:}")
+    private String keysFile;
+    @Value("${gateway.signature.algorithm:HmacSHA256}")
+    private String algorithm;
+    @Value("${gateway.signature.key-refresh-ms:60000}")
+    private long refreshMs;
+
+    private volatile Map<String, SecretKeySpec> keys = Collections.emptyMap();
+    private volatile FileTime loadedFileTime;
+    private volatile long nextRefreshMillis;
+
+    @PostConstruct
+    void init() {
+        reload();
+    }
+
+    /**
+     * Currently active keys by key id. The returned map is never modified; a rotation swaps it.
+     */
+    public Map<String, SecretKeySpec> getKeys() {
+        if (!keysFile.isEmpty() && System.currentTimeMillis() >= nextRefreshMillis) {
+            refreshIfChanged();
+        }
+        return keys;
+    }
+
+    public String getAlgorithm() {
+        return algorithm;
+    }
+
+    private synchronized void refreshIfChanged() {
+        if (System.currentTimeMillis() < nextRefreshMillis) {
+            return;
+        }
+        try {
+            FileTime modified = Files.getLastModifiedTime(Paths.get(keysFile));
+            if (!modified.equals(loadedFileTime)) {
+                reload();
+            }
+        } catch (IOException e) {
+            log.warn("Cannot check signature keys file {} : {}", keysFile, e.getMessage());
+        }
+        nextRefreshMillis = System.currentTimeMillis() + refreshMs;
+    }
+
+    private synchronized void reload() {
+        Map<String, SecretKeySpec> loaded = new LinkedHashMap<>();
+        for (String entry : inlineKeys.split(",")) {
+            int separator = entry.indexOf(':');
+            if (separator > 0) {
+                put(loaded, entry.substring(0, separator), entry.substring(separator + 1));
+            }
+        }
+        if (!keysFile.isEmpty()) {
+            Path path = Paths.get(keysFile);
+            try (InputStream in = Files.newInputStream(path)) {
+                FileTime modified = Files.getLastModifiedTime(path);
+                Properties properties = new Properties();
+                properties.load(in);
+                properties.stringPropertyNames().forEach(keyId -> put(loaded, keyId, properties.getProperty(keyId)));
+                loadedFileTime = modified;
+            } catch (IOException e) {
+                // Keep serving the previous keys rather than failing every signed request
+                log.error("Cannot load signature keys file {} : {}", keysFile, e.getMessage());
+                return;
+            }
+        }
+        keys = Collections.unmodifiableMap(loaded);
+        nextRefreshMillis = System.currentTimeMillis() + refreshMs;
+        log.info("Signature keys loaded : {}", loaded.keySet());
+    }
+
+    private void put(Map<String, SecretKeySpec> target, String keyId, String secret) {
+        String trimmedSecret = secret.trim();
+        if (!trimmedSecret.isEmpty()) {
+            target.put(keyId.trim(), new SecretKeySpec(trimmedSecret.getBytes(StandardCharsets.UTF_8), algorithm));
+        }
+    }
+}
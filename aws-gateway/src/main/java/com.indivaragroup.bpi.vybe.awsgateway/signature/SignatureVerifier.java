@@ -0,0 +1,316 @@
+package com.indivaragroup.bpi.vybe.awsgateway.signature;
+
+import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyRequestEvent;
+import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyResponseEvent;
+import com.indivaragroup.bpi.vybe.awsgateway.metrics.ComponentStats;
+import com.indivaragroup.bpi.vybe.awsgateway.util.HeaderUtils;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.Base64;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+import static com.indivaragroup.bpi.vybe.awsgateway.error.ErrorUtils.createErrorResponse;
+
+/**
+ * In-process verification for {@code SIGNATURE} routes, enabled with
+ * {@code gateway.signature.verifier.enabled=true}. The signature header carries the hex (or
+ * base64) HMAC of
+ * <pre>
+ *   timestamp + "\n" + nonce + "\n" + path + "\n" + body
+ * </pre>
+ * computed with the key named by the key-id header, which is required so a request costs one
+ * HMAC however many keys are active. This header scheme is a new wire contract: clients signing
+ * for the validator service do not send these headers, so a route only moves to in-process
+ * verification once its clients do. The body, or the decoded bytes of a base64 body, is fed to
+ * a per-thread {@link Mac} in small chunks instead of being copied into one byte array, and
+ * digests are compared in constant time. Requests outside the timestamp window or reusing a
+ * nonce seen within it are rejected.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class SignatureVerifier implements ComponentStats {
+
+    private static final int CHUNK_CHARS = 4096;
+
+    private final SignatureKeyProvider keyProvider;
+
+    @Value("${gateway.signature.verifier.enabled:false}")
+    private boolean enabled;
+    @Value("${gateway.signature.header:X-Signature}")
+    private String signatureHeader;
+    @Value("${gateway.signature.key-id-header:X-Key-Id}")
+    private String keyIdHeader;
+    @Value("${gateway.signature.timestamp-header:X-Timestamp}")
+    private String timestampHeader;
+    @Value("${gateway.signature.nonce-header:X-Nonce}")
+    private String nonceHeader;
+    @Value("${gateway.signature.encoding:hex}")
+    private String encoding;
+    @Value("${gateway.signature.max-skew-ms:300000}")
+    private long maxSkewMs;
+    @Value("${gateway.signature.max-nonces:100000}")
+    private int maxNonces;
+
+    private ReplayWindow replayWindow;
+    private final ThreadLocal<MacState> macState = ThreadLocal.withInitial(MacState::new);
+
+    private final LongAdder verified = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder replayed = new LongAdder();
+
+    @PostConstruct
+    void init() {
+        replayWindow = new ReplayWindow(maxNonces);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Returns {@code null} when the request is authentic, otherwise the response to send back.
+     */
+    public APIGatewayProxyResponseEvent verify(APIGatewayProxyRequestEvent event) {
+        Map<String, String> headers = event.getHeaders();
+        String signature = HeaderUtils.getHeader(headers, signatureHeader);
+        String timestamp = HeaderUtils.getHeader(headers, timestampHeader);
+        String nonce = HeaderUtils.getHeader(headers, nonceHeader);
+        String keyId = HeaderUtils.getHeader(headers, keyIdHeader);
+        if (signature == null || timestamp == null || nonce == null || nonce.isEmpty() || keyId == null) {
+            return reject("Missing signature headers");
+        }
+
+        long now = System.currentTimeMillis();
+        long signedAt;
+        try {
+            signedAt = Long.parseLong(timestamp.trim());
+        } catch (NumberFormatException e) {
+            return reject("Invalid signature timestamp");
+        }
+        if (Math.abs(now - signedAt) > maxSkewMs) {
+            return reject("Signature timestamp outside the accepted window");
+        }
+
+        byte[] expected = decodeSignature(signature.trim());
+        SecretKeySpec key = keyProvider.getKeys().get(keyId.trim());
+        if (expected == null || key == null || !MessageDigest.isEqual(expected, digest(key, event, timestamp, nonce))) {
+            return reject("Invalid signature");
+        }
+
+        // Only authentic requests are remembered, so forged ones cannot fill the window
+        switch (replayWindow.register(nonce, now + 2 * maxSkewMs, now)) {
+            case REPLAYED:
+                replayed.increment();
+                return reject("Replayed request");
+            case FULL:
+                log.warn("Signature replay window is full ({} nonces)", maxNonces);
+                return createErrorResponse(503, "503", "Signature replay window is full");
+            default:
+                verified.increment();
+                return null;
+        }
+    }
+
+    @Override
+    public String getStatsName() {
+        return "SignatureVerifier";
+    }
+
+    @Override
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("verified", verified.sum());
+        stats.put("rejected", rejected.sum());
+        stats.put("replayed", replayed.sum());
+        stats.put("nonces", replayWindow.size());
+        return stats;
+    }
+
+    /**
+     * Returns {@code null} when a base64 body cannot be decoded.
+     */
+    private byte[] digest(SecretKeySpec key, APIGatewayProxyRequestEvent event, String timestamp, String nonce) {
+        MacState state = macState.get();
+        Mac mac = state.macFor(key);
+        state.update(mac, timestamp);
+        mac.update((byte) '\n');
+        state.update(mac, nonce);
+        mac.update((byte) '\n');
+        if (event.getPath() != null) {
+            state.update(mac, event.getPath());
+        }
+        mac.update((byte) '\n');
+        String body = event.getBody();
+        if (body != null) {
+            if (Boolean.TRUE.equals(event.getIsBase64Encoded())) {
+                if (!state.updateDecoded(mac, body)) {
+                    mac.reset();
+                    return null;
+                }
+            } else {
+                state.update(mac, body);
+            }
+        }
+        return mac.doFinal();
+    }
+
+    private byte[] decodeSignature(String signature) {
+        try {
+            return "base64".equalsIgnoreCase(encoding) ? Base64.getDecoder().decode(signature) : decodeHex(signature);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static byte[] decodeHex(String hex) {
+        if (hex.length() % 2 != 0) {
+            throw new IllegalArgumentException("Odd hex length");
+        }
+        byte[] bytes = new byte[hex.length() / 2];
+        for (int i = 0; i < bytes.length; i++) {
+            int high = Character.digit(hex.charAt(2 * i), 16);
+            int low = Character.digit(hex.charAt(2 * i + 1), 16);
+            if (high < 0 || low < 0) {
+                throw new IllegalArgumentException("Invalid hex digit");
+            }
+            bytes[i] = (byte) (high << 4 | low);
+        }
+        return bytes;
+    }
+
+    private APIGatewayProxyResponseEvent reject(String reason) {
+        rejected.increment();
+        log.debug("Signature rejected : {}", reason);
+        return createErrorResponse(401, "401", reason);
+    }
+
+    /**
+     * One {@link Mac} per key plus scratch buffers per thread. Text is fed to the Mac in fixed
+     * chunks, with a plain copy for ASCII and the UTF-8 encoder otherwise. Keys dropped by a
+     * rotation are released together with the map when a new key set appears.
+     */
+    private final class MacState {
+        private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        private final char[] chars = new char[CHUNK_CHARS];
+        // Three bytes per char covers any UTF-8 output, so a chunk never overflows
+        private final byte[] bytes = new byte[CHUNK_CHARS * 3];
+        private Map<SecretKeySpec, Mac> macs = new IdentityHashMap<>();
+        private Map<String, SecretKeySpec> keySet;
+
+        Mac macFor(SecretKeySpec key) {
+            Map<String, SecretKeySpec> current = keyProvider.getKeys();
+            if (current != keySet) {
+                macs = new IdentityHashMap<>();
+                keySet = current;
+            }
+            return macs.computeIfAbsent(key, this::newMac);
+        }
+
+        void update(Mac mac, String text) {
+            int length = text.length();
+            for (int start = 0; start < length; ) {
+                int end = Math.min(length, start + CHUNK_CHARS);
+                if (end < length && Character.isHighSurrogate(text.charAt(end - 1))) {
+                    end--;
+                }
+                int count = end - start;
+                text.getChars(start, end, chars, 0);
+                int ascii = 0;
+                while (ascii < count && chars[ascii] < 0x80) {
+                    bytes[ascii] = (byte) chars[ascii];
+                    ascii++;
+                }
+                if (ascii == count) {
+                    mac.update(bytes, 0, count);
+                } else {
+                    ByteBuffer out = ByteBuffer.wrap(bytes);
+                    encoder.reset();
+                    encoder.encode(CharBuffer.wrap(chars, 0, count), out, true);
+                    encoder.flush(out);
+                    mac.update(bytes, 0, out.position());
+                }
+                start = end;
+            }
+        }
+
+        /**
+         * Feeds the bytes a base64 text decodes to; {@code false} when it is not valid base64.
+         */
+        boolean updateDecoded(Mac mac, String base64) {
+            try (InputStream decoded = Base64.getDecoder().wrap(new TextInputStream(base64))) {
+                int count;
+                while ((count = decoded.read(bytes)) != -1) {
+                    mac.update(bytes, 0, count);
+                }
+                return true;
+            } catch (IOException e) {
+                return false;
+            }
+        }
+
+        private Mac newMac(SecretKeySpec key) {
+            try {
+                Mac mac = Mac.getInstance(keyProvider.getAlgorithm());
+                mac.init(key);
+                return mac;
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException("Cannot initialise " + keyProvider.getAlgorithm(), e);
+            }
+        }
+    }
+
+    /**
+     * The chars of a base64 text as bytes, without copying the text; a char outside ASCII
+     * becomes {@code '?'}, which the decoder rejects.
+     */
+    private static final class TextInputStream extends InputStream {
+        private final String text;
+        private int position;
+
+        private TextInputStream(String text) {
+            this.text = text;
+        }
+
+        @Override
+        public int read() {
+            return position < text.length() ? ascii(text.charAt(position++)) : -1;
+        }
+
+        @Override
+        public int read(byte[] target, int offset, int length) {
+            if (position >= text.length()) {
+                return -1;
+            }
+            int count = Math.min(length, text.length() - position);
+            for (int i = 0; i < count; i++) {
+                target[offset + i] = (byte) ascii(text.charAt(position++));
+            }
+            return count;
+        }
+
+        private static int ascii(char c) {
+            return c < 0x80 ? c : '?';
+        }
+    }
+}
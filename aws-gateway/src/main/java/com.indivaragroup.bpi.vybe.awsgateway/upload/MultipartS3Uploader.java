@@ -0,0 +1,189 @@
+package com.indivaragroup.bpi.vybe.awsgateway.upload;
+
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.indivaragroup.bpi.vybe.awsgateway.routing.Route;
+import com.indivaragroup.bpi.vybe.awsgateway.routing.RouteOptionsValidator;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.codec.binary.Base64InputStream;
+import org.apache.commons.fileupload.MultipartStream;
+import org.apache.commons.io.input.CharSequenceInputStream;
+import org.apache.http.NameValuePair;
+import org.apache.http.entity.ContentType;
+import org.apache.http.message.BasicHeaderValueParser;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Streams a multipart/form-data body from API Gateway straight into S3, for routes with the
+ * {@code upload.s3=true} option; other routes forward multipart bodies unchanged. The body is
+ * decoded, when API Gateway delivered it base64 encoded, and split on the fly; each file part is
+ * written to its own object through a bounded part buffer, so no full copy of the decoded payload
+ * is ever held in memory. If the request fails part way, objects already written for it are
+ * deleted again.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class MultipartS3Uploader implements RouteOptionsValidator {
+
+    public static final String S3_OPTION = "upload.s3";
+
+    private static final int STREAM_BUFFER_SIZE = 8192;
+    private static final int MIN_S3_PART_SIZE = 5 * 1024 * 1024;
+
+    private final AmazonS3 s3Client;
+
+    @Value("${upload.s3.bucket:bpi-woi-revamp-sit}")
+    private String bucketName;
+    @Value("${upload.s3.key-prefix:}")
+    private String keyPrefix;
+    @Value("${upload.s3.part-size-bytes:5242880}")
+    private int partSize;
+    @Value("${upload.s3.cache-control:public, max-age=31536000}")
+    private String cacheControl;
+    @Value("${upload.max-field-bytes:65536}")
+    private int maxFieldBytes;
+
+    @Override
+    public void validate(Route route) {
+        uploadsToS3(route);
+    }
+
+    public boolean uploadsToS3(Route route) {
+        return route.getBooleanOption(S3_OPTION);
+    }
+
+    /**
+     * @param base64 whether API Gateway delivered {@code body} base64 encoded; otherwise it is
+     *               the form as UTF-8 text
+     */
+    public List<UploadedPart> upload(String body, boolean base64, String contentTypeHeader) throws IOException {
+        byte[] boundary = extractBoundary(contentTypeHeader);
+        List<UploadedPart> parts = new ArrayList<>();
+
+        try (InputStream decoded = base64
+                ? new Base64InputStream(new CharSequenceInputStream(body, StandardCharsets.US_ASCII, STREAM_BUFFER_SIZE))
+                : new CharSequenceInputStream(body, StandardCharsets.UTF_8, STREAM_BUFFER_SIZE)) {
+            MultipartStream multipartStream = new MultipartStream(decoded, boundary, STREAM_BUFFER_SIZE, null);
+            boolean nextPart = multipartStream.skipPreamble();
+            while (nextPart) {
+                PartHeaders headers = PartHeaders.parse(multipartStream.readHeaders());
+                parts.add(headers.fileName != null && !headers.fileName.isEmpty()
+                        ? uploadFile(multipartStream, headers)
+                        : readField(multipartStream, headers));
+                nextPart = multipartStream.readBoundary();
+            }
+        } catch (IOException | RuntimeException e) {
+            deleteUploaded(parts);
+            throw e;
+        }
+        log.debug("Multipart request split into {} parts", parts.size());
+        return parts;
+    }
+
+    static byte[] extractBoundary(String contentTypeHeader) {
+        if (contentTypeHeader == null) {
+            throw new IllegalArgumentException("Missing Content-Type for multipart request");
+        }
+        String boundary = ContentType.parse(contentTypeHeader).getParameter("boundary");
+        if (boundary == null || boundary.isEmpty()) {
+            throw new IllegalArgumentException("Missing multipart boundary in Content-Type");
+        }
+        return boundary.getBytes(StandardCharsets.ISO_8859_1);
+    }
+
+    private UploadedPart uploadFile(MultipartStream multipartStream, PartHeaders headers) throws IOException {
+        String key = keyPrefix + UUID.randomUUID() + "-" + sanitize(headers.fileName);
+        ObjectMetadata metadata = new ObjectMetadata();
+        metadata.setContentType(headers.contentType != null ? headers.contentType : "application/octet-stream");
+        metadata.setCacheControl(cacheControl);
+
+        S3MultipartOutputStream out = new S3MultipartOutputStream(s3Client, bucketName, key, metadata,
+                                                                  Math.max(partSize, MIN_S3_PART_SIZE));
+        try {
+            multipartStream.readBodyData(out);
+            out.close();
+        } catch (IOException | RuntimeException e) {
+            out.abort();
+            throw e;
+        }
+        log.info("Uploaded part '{}' to s3://{}/{} ({} bytes)", headers.fieldName, bucketName, key, out.getSize());
+        return new UploadedPart(headers.fieldName, headers.fileName, metadata.getContentType(),
+                                bucketName, key, out.getSize(), null);
+    }
+
+    private UploadedPart readField(MultipartStream multipartStream, PartHeaders headers) throws IOException {
+        ByteArrayOutputStream value = new ByteArrayOutputStream() {
+            @Override
+            public synchronized void write(byte[] bytes, int offset, int length) {
+                if (count + length > maxFieldBytes) {
+                    throw new IllegalArgumentException("Form field '" + headers.fieldName + "' exceeds "
+                                                       + maxFieldBytes + " bytes");
+                }
+                super.write(bytes, offset, length);
+            }
+        };
+        multipartStream.readBodyData(value);
+        return new UploadedPart(headers.fieldName, null, headers.contentType, null, null, value.size(),
+                                new String(value.toByteArray(), StandardCharsets.UTF_8));
+    }
+
+    private void deleteUploaded(List<UploadedPart> parts) {
+        for (UploadedPart part : parts) {
+            if (!part.isFile()) {
+                continue;
+            }
+            try {
+                s3Client.deleteObject(part.getBucket(), part.getKey());
+            } catch (RuntimeException e) {
+                log.warn("Could not delete s3://{}/{} of a failed upload : {}", part.getBucket(), part.getKey(), e.getMessage());
+            }
+        }
+    }
+
+    private static String sanitize(String fileName) {
+        int slash = Math.max(fileName.lastIndexOf('/'), fileName.lastIndexOf('\\'));
+        String baseName = fileName.substring(slash + 1);
+        return baseName.replaceAll("[^A-Za-z0-9._-]", "_");
+    }
+
+    private static final class PartHeaders {
+        private String fieldName;
+        private String fileName;
+        private String contentType;
+
+        static PartHeaders parse(String rawHeaders) {
+            PartHeaders headers = new PartHeaders();
+            for (String line : rawHeaders.split("\r\n")) {
+                int colon = line.indexOf(':');
+                if (colon <= 0) {
+                    continue;
+                }
+                String name = line.substring(0, colon).trim();
+                String value = line.substring(colon + 1).trim();
+                if ("Content-Disposition".equalsIgnoreCase(name)) {
+                    for (NameValuePair parameter : BasicHeaderValueParser.parseParameters(value, null)) {
+                        if ("name".equalsIgnoreCase(parameter.getName())) {
+                            headers.fieldName = parameter.getValue();
+                        } else if ("filename".equalsIgnoreCase(parameter.getName())) {
+                            headers.fileName = parameter.getValue();
+                        }
+                    }
+                } else if ("Content-Type".equalsIgnoreCase(name)) {
+                    headers.contentType = value;
+                }
+            }
+            return headers;
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package com.indivaragroup.bpi.vybe.awsgateway.upload;
+
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.*;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Streams bytes into an S3 object holding at most one part buffer in memory. The buffer starts
+ * small and doubles up to the part size, so small files never allocate a full part. Objects that
+ * fit in a single part are written with one PutObject; larger ones switch to a multipart upload
+ * and send each full buffer as a part. Call {@link #abort()} instead of {@link #close()} on
+ * failure.
+ */
+@Slf4j
+class S3MultipartOutputStream extends OutputStream {
+
+    private static final int INITIAL_BUFFER_SIZE = 8192;
+
+    private final AmazonS3 s3Client;
+    private final String bucket;
+    private final String key;
+    private final ObjectMetadata metadata;
+    private final int partSize;
+    private final List<PartETag> partETags = new ArrayList<>();
+
+    private byte[] buffer;
+    private int position;
+    private long size;
+    private String uploadId;
+    private boolean closed;
+
+    S3MultipartOutputStream(AmazonS3 s3Client, String bucket, String key, ObjectMetadata metadata, int partSize) {
+        this.s3Client = s3Client;
+        this.bucket = bucket;
+        this.key = key;
+        this.metadata = metadata;
+        this.partSize = partSize;
+        this.buffer = new byte[Math.min(INITIAL_BUFFER_SIZE, partSize)];
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        if (position == buffer.length) {
+            makeRoom();
+        }
+        buffer[position++] = (byte) b;
+        size++;
+    }
+
+    @Override
+    public void write(byte[] bytes, int offset, int length) throws IOException {
+        while (length > 0) {
+            if (position == buffer.length) {
+                makeRoom();
+            }
+            int chunk = Math.min(length, buffer.length - position);
+            System.arraycopy(bytes, offset, buffer, position, chunk);
+            position += chunk;
+            offset += chunk;
+            length -= chunk;
+            size += chunk;
+        }
+    }
+
+    long getSize() {
+        return size;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            if (uploadId == null) {
+                metadata.setContentLength(position);
+                s3Client.putObject(bucket, key, new ByteArrayInputStream(buffer, 0, position), metadata);
+            } else {
+                if (position > 0) {
+                    uploadPart(true);
+                }
+                s3Client.completeMultipartUpload(new CompleteMultipartUploadRequest(bucket, key, uploadId, partETags));
+            }
+        } catch (RuntimeException e) {
+            abort();
+            throw new IOException("Failed to upload " + key + " to S3", e);
+        }
+    }
+
+    /**
+     * Aborts a started multipart upload so S3 drops the parts already sent. Never throws, so the
+     * failure that led here is the one reported.
+     */
+    void abort() {
+        closed = true;
+        if (uploadId != null) {
+            try {
+                s3Client.abortMultipartUpload(new AbortMultipartUploadRequest(bucket, key, uploadId));
+            } catch (RuntimeException e) {
+                log.warn("Could not abort multipart upload {} of {}, its parts are left for the bucket lifecycle rule : {}",
+                         uploadId, key, e.getMessage());
+            }
+            uploadId = null;
+        }
+    }
+
+    private void makeRoom() throws IOException {
+        if (buffer.length < partSize) {
+            buffer = Arrays.copyOf(buffer, (int) Math.min(partSize, 2L * buffer.length));
+        } else {
+            flushPart();
+        }
+    }
+
+    private void flushPart() throws IOException {
+        try {
+            if (uploadId == null) {
+                uploadId = s3Client.initiateMultipartUpload(new InitiateMultipartUploadRequest(bucket, key, metadata))
+                        .getUploadId();
+            }
+            uploadPart(false);
+        } catch (RuntimeException e) {
+            abort();
+            throw new IOException("Failed to upload part of " + key + " to S3", e);
+        }
+    }
+
+    private void uploadPart(boolean lastPart) {
+        UploadPartRequest request = new UploadPartRequest()
+                .withBucketName(bucket)
+                .withKey(key)
+                .withUploadId(uploadId)
+                .withPartNumber(partETags.size() + 1)
+                .withInputStream(new ByteArrayInputStream(buffer, 0, position))
+                .withPartSize(position)
+                .withLastPart(lastPart);
+        partETags.add(s3Client.uploadPart(request).getPartETag());
+        position = 0;
+    }
+}
@@ -0,0 +1,31 @@
+package com.indivaragroup.bpi.vybe.awsgateway.upload;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.ToString;
+
+/**
+ * One part of a multipart/form-data request. File parts carry the S3 location they were
+ * streamed to; plain form fields carry their value.
+ */
+@Getter
+@ToString
+@RequiredArgsConstructor
+public class UploadedPart {
+
+    private final String fieldName;
+    private final String fileName;
+    private final String contentType;
+    private final String bucket;
+    private final String key;
+    private final long size;
+    private final String value;
+
+    public boolean isFile() {
+        return key != null;
+    }
+
+    public String getLocation() {
+        return "s3://" + bucket + "/" + key;
+    }
+}
@@ -0,0 +1,86 @@
+package com.indivaragroup.bpi.vybe.awsgateway.util;
+
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Case-insensitive access to the plain header maps used by API Gateway events. HTTP/2 clients
+ * send lowercase names, so a direct {@code get("Content-Type")} is not enough.
+ */
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+public final class HeaderUtils {
+
+    public static String getHeader(Map<String, String> headers, String name) {
+        String key = findName(headers, name);
+        return key == null ? null : headers.get(key);
+    }
+
+    /**
+     * The key as stored in {@code headers}, or {@code null} when absent.
+     */
+    public static String findName(Map<String, String> headers, String name) {
+        if (headers == null) {
+            return null;
+        }
+        if (headers.containsKey(name)) {
+            return name;
+        }
+        for (String key : headers.keySet()) {
+            if (key.equalsIgnoreCase(name)) {
+                return key;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * The media type of a {@code Content-Type} value, lower-cased and without parameters, or
+     * {@code null} when there is none.
+     */
+    public static String mediaType(String contentType) {
+        if (contentType == null) {
+            return null;
+        }
+        int separator = contentType.indexOf(';');
+        return (separator >= 0 ? contentType.substring(0, separator) : contentType).trim().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Whether an {@code Accept-Encoding} value allows {@code coding}. A {@code q=0} weight refuses
+     * the coding, and {@code *} covers codings not listed by name.
+     */
+    public static boolean acceptsEncoding(String acceptEncoding, String coding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        boolean wildcard = false;
+        for (String element : acceptEncoding.split(",")) {
+            String[] parts = element.split(";");
+            String name = parts[0].trim();
+            if (name.equalsIgnoreCase(coding)) {
+                return quality(parts) > 0;
+            }
+            if ("*".equals(name)) {
+                wildcard = quality(parts) > 0;
+            }
+        }
+        return wildcard;
+    }
+
+    private static double quality(String[] parts) {
+        for (int i = 1; i < parts.length; i++) {
+            String parameter = parts[i].trim();
+            if (parameter.length() > 1 && Character.toLowerCase(parameter.charAt(0)) == 'q' && parameter.charAt(1) == '=') {
+                try {
+                    return Double.parseDouble(parameter.substring(2).trim());
+                } catch (NumberFormatException e) {
+                    return 0;
+                }
+            }
+        }
+        return 1;
+    }
+}
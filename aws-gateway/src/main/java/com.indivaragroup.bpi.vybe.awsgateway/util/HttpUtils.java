@@ -1,37 +1,34 @@
 package com.indivaragroup.bpi.vybe.awsgateway.util;
 
-import com.amazonaws.regions.Regions;
 import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyResponseEvent;
-import java.io.ByteArrayOutputStream;
+import com.indivaragroup.bpi.vybe.awsgateway.body.RequestPayload;
+import com.indivaragroup.bpi.vybe.awsgateway.context.RequestContextHolder;
+import com.indivaragroup.bpi.vybe.awsgateway.metrics.Stage;
+import com.indivaragroup.bpi.vybe.awsgateway.response.UpstreamResponseMapper;
+import com.indivaragroup.bpi.vybe.awsgateway.upload.MultipartS3Uploader;
+import com.indivaragroup.bpi.vybe.awsgateway.upload.UploadedPart;
 import lombok.AccessLevel;
 import lombok.NoArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.commons.fileupload.MultipartStream;
-import org.apache.http.HttpEntity;
-import org.apache.http.HttpResponse;
+import org.apache.http.client.config.RequestConfig;
 import org.apache.http.client.methods.*;
+import org.apache.http.conn.ConnectTimeoutException;
+import org.apache.http.conn.ConnectionPoolTimeoutException;
+import org.apache.http.entity.ByteArrayEntity;
 import org.apache.http.entity.ContentType;
-import org.apache.http.entity.StringEntity;
 import org.apache.http.entity.mime.HttpMultipartMode;
 import org.apache.http.entity.mime.MultipartEntityBuilder;
-import org.apache.http.entity.mime.content.ByteArrayBody;
 import org.apache.http.impl.client.CloseableHttpClient;
-import org.apache.http.impl.client.HttpClients;
-import org.apache.http.util.EntityUtils;
-import org.apache.commons.codec.binary.Base64;
 
-import java.io.ByteArrayInputStream;
 import java.io.IOException;
-import java.io.InputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.SocketTimeoutException;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
-import com.amazonaws.services.s3.AmazonS3;
-import com.amazonaws.services.s3.AmazonS3ClientBuilder;
-import com.amazonaws.services.s3.model.ObjectMetadata;
+import java.util.List;
 import java.util.Map;
-import org.apache.http.client.methods.HttpPost;
 
 import static com.indivaragroup.bpi.vybe.awsgateway.error.ErrorUtils.createErrorResponse;
 
@@ -39,207 +36,193 @@ import static com.indivaragroup.bpi.vybe.awsgateway.error.ErrorUtils.createError
 @NoArgsConstructor(access = AccessLevel.PRIVATE)
 public class HttpUtils {
 
-    public static APIGatewayProxyResponseEvent makeHttpGetRequest(String apiUrl, Map<String, String> headers,
+    public static APIGatewayProxyResponseEvent makeHttpGetRequest(CloseableHttpClient httpClient,
+                                                                  UpstreamResponseMapper responseMapper,
+                                                                  RequestConfig requestConfig, String apiUrl,
+                                                                  Map<String, String> headers,
                                                                   Map<String, String> queryParams) {
-        APIGatewayProxyResponseEvent responseEvent = new APIGatewayProxyResponseEvent();
-
-        try (CloseableHttpClient httpClient = HttpClients.createDefault()) {
-            // Extract query parameters from the URI
-            if (queryParams != null && !queryParams.isEmpty()) {
-                // Build the query string from the queryParams map
-                StringBuilder queryString = new StringBuilder();
-                for (Map.Entry<String, String> entry : queryParams.entrySet()) {
-                    if (queryString.length() > 0) {
-                        queryString.append("&");
-                    }
-                    queryString.append(URLEncoder.encode(entry.getKey(), "UTF-8"));
-                    queryString.append("=");
-                    queryString.append(URLEncoder.encode(entry.getValue(), "UTF-8"));
-                }
-                apiUrl += "?" + queryString.toString(); // Append the query string to the base URL
-            }
-            HttpGet httpGet = new HttpGet(apiUrl);
+        try {
+            HttpGet httpGet = new HttpGet(appendQueryString(apiUrl, queryParams));
+            httpGet.setConfig(requestConfig);
 
             // Add headers from the event to the HTTP request
-            for (Map.Entry<String, String> entry : headers.entrySet()) {
-                httpGet.setHeader(entry.getKey(), entry.getValue());
+            copyHeaders(httpGet, headers);
+            // Closing the response hands the connection back to the shared pool
+            RequestContextHolder.mark();
+            try (CloseableHttpResponse response = httpClient.execute(httpGet)) {
+                return responseMapper.toResponseEvent(response, headers);
             }
-            CloseableHttpResponse response = httpClient.execute(httpGet);
-
-            int statusCode = response.getStatusLine().getStatusCode();
-            String responseBody = EntityUtils.toString(response.getEntity());
-
-            responseEvent.setStatusCode(statusCode);
-            responseEvent.setBody(responseBody);
         } catch (IOException e) {
-            // Handle exceptions here
             log.error("Error while making HTTP GET request: {}", e.getMessage());
-            return createErrorResponse(500, "500", e.getMessage());
+            return upstreamFailure(e);
         }
-
-        return responseEvent;
     }
 
-    public static APIGatewayProxyResponseEvent makeHttpPostRequest(String apiUrl, Map<String, String> headers,
-                                                                   String requestBody, Map<String, String> queryParams,
-                                                                   boolean isImageFile) {
-        APIGatewayProxyResponseEvent responseEvent = new APIGatewayProxyResponseEvent();
-
-        try (CloseableHttpClient httpClient = HttpClients.createDefault()) {
-            // Extract query parameters from the URI
-            if (queryParams != null && !queryParams.isEmpty()) {
-                // Build the query string from the queryParams map
-                StringBuilder queryString = new StringBuilder();
-                for (Map.Entry<String, String> entry : queryParams.entrySet()) {
-                    if (queryString.length() > 0) {
-                        queryString.append("&");
-                    }
-                    queryString.append(URLEncoder.encode(entry.getKey(), StandardCharsets.UTF_8.toString()));
-                    queryString.append("=");
-                    queryString.append(URLEncoder.encode(entry.getValue(), StandardCharsets.UTF_8.toString()));
-                }
-                apiUrl += "?" + queryString.toString(); // Append the query string to the base URL
-                log.info("queryString :{}", queryString);
-            }
-            HttpPost httpPost = new HttpPost(apiUrl);
+    public static APIGatewayProxyResponseEvent makeHttpPostRequest(CloseableHttpClient httpClient,
+                                                                   UpstreamResponseMapper responseMapper,
+                                                                   RequestConfig requestConfig, String apiUrl,
+                                                                   Map<String, String> headers, RequestPayload payload,
+                                                                   Map<String, String> queryParams) {
+        try {
+            HttpPost httpPost = new HttpPost(appendQueryString(apiUrl, queryParams));
+            httpPost.setConfig(requestConfig);
 
             // Add headers from the event to the HTTP request
+            copyHeaders(httpPost, headers);
+
+            // Set the request body
+            setBody(httpPost, payload);
+            log.debug("httpPost : {}", httpPost);
+            RequestContextHolder.mark();
+            try (CloseableHttpResponse response = httpClient.execute(httpPost)) {
+                return responseMapper.toResponseEvent(response, headers);
+            }
+        } catch (IOException e) {
+            log.error("Error while making HTTP POST request: {}", e.getMessage());
+            return upstreamFailure(e);
+        } catch (Exception e) {
+            return createErrorResponse(500, "500", e.getMessage());
+        }
+    }
+
+    /**
+     * Streams every file part of a multipart/form-data body to S3, then forwards the form upstream
+     * with each file replaced by its {@code s3://bucket/key} location.
+     */
+    public static APIGatewayProxyResponseEvent makeHttpMultipartPostRequest(CloseableHttpClient httpClient,
+                                                                            UpstreamResponseMapper responseMapper,
+                                                                            RequestConfig requestConfig,
+                                                                            MultipartS3Uploader uploader,
+                                                                            String apiUrl, Map<String, String> headers,
+                                                                            String requestBody, boolean base64,
+                                                                            Map<String, String> queryParams) {
+        try {
+            HttpPost httpPost = new HttpPost(appendQueryString(apiUrl, queryParams));
+            httpPost.setConfig(requestConfig);
+            String contentType = null;
+
+            // The rebuilt entity carries its own boundary and length
             for (Map.Entry<String, String> entry : headers.entrySet()) {
-                httpPost.setHeader(entry.getKey(), entry.getValue());
+                if ("Content-Type".equalsIgnoreCase(entry.getKey())) {
+                    contentType = entry.getValue();
+                } else if (!"Content-Length".equalsIgnoreCase(entry.getKey())) {
+                    httpPost.setHeader(entry.getKey(), entry.getValue());
+                }
             }
 
-            // Set the request body
+            MultipartEntityBuilder builder = MultipartEntityBuilder.create();
+            builder.setMode(HttpMultipartMode.BROWSER_COMPATIBLE);
+            builder.setCharset(StandardCharsets.UTF_8);
             if (requestBody != null) {
-                if (!isImageFile) {
-                    log.info("this is not image");
-                    StringEntity entity = new StringEntity(requestBody);
-                    httpPost.setEntity(entity);
-
-                    log.info("entity :{}", entity);
-                } else {
-
-                    //===============================upload to s3===================================//
-                    log.info("this is image : " + requestBody);
-                    String contentType = "";
-                    //Change these values to fit your region and bucket name
-                    Regions clientRegion = Regions.AP_SOUTHEAST_1;
-                    String bucketName = "bpi-woi-revamp-sit";
-                    String fileObjKeyName = "image.jpg";
-
-                    byte[] binaryContent = Base64.decodeBase64(requestBody.getBytes());
-                    if (headers != null) {
-                        contentType = headers.get("Content-Type");
-                    }
-                    //Extract the boundary
-                    String[] boundaryArray = contentType.split("=");
-                    //Transform the boundary to a byte array
-                    byte[] boundary = boundaryArray[1].getBytes();
-
-                    //Log the extraction for verification purposes
-                    log.info(new String(binaryContent, "UTF-8") + "\n");
-
-                    //Create a ByteArrayInputStream
-                    ByteArrayInputStream content = new ByteArrayInputStream(binaryContent);
-                    //Create a MultipartStream to process the form-data
-                    MultipartStream multipartStream = new MultipartStream(content, boundary, binaryContent.length, null);
-                    //Create a ByteArrayOutputStream
-                    ByteArrayOutputStream out = new ByteArrayOutputStream();
-                    //Find first boundary in the MultipartStream
-                    boolean nextPart = multipartStream.skipPreamble();
-
-                    //Loop through each segment
-                    while (nextPart)
-                    {
-                        String header = multipartStream.readHeaders();
-
-                        //Log header for debugging
-                        log.info("Headers:");
-                        log.info(header);
-
-                        //Write out the file to our ByteArrayOutputStream
-                        multipartStream.readBodyData(out);
-
-                        //Get the next part, if any
-                        nextPart = multipartStream.readBoundary();
-
-                    }
-                    //Log completion of MultipartStream processing
-                    log.info("Data written to ByteStream");
-                    //Prepare an InputStream from the ByteArrayOutputStream
-                    InputStream fis = new ByteArrayInputStream(out.toByteArray());
-
-                    AmazonS3 s3Client = AmazonS3ClientBuilder.standard()
-                            .withRegion(clientRegion)
-                            .build();
-
-                    //Configure the file metadata
-                    ObjectMetadata metadata = new ObjectMetadata();
-                    metadata.setContentLength(out.toByteArray().length);
-                    metadata.setContentType("image/jpeg");
-                    metadata.setCacheControl("public, max-age=31536000");
-
-                    //Put file into S3
-                    s3Client.putObject(bucketName, fileObjKeyName, fis, metadata);
-                    //==================================================================//
-
-                    log.info("this is image");
-                    MultipartEntityBuilder builder = MultipartEntityBuilder.create();
-                    builder.setMode(HttpMultipartMode.BROWSER_COMPATIBLE);
-                    // Add the entire original multipart content to the new builder
-                    builder.addBinaryBody("file", fis.readAllBytes());
-
-                    // Build the new multipart entity
-                    HttpEntity multipartEntity = builder.build();
-                    httpPost.setEntity(multipartEntity);
-                    log.info("multipartEntity :{}", multipartEntity);
+                RequestContextHolder.mark();
+                List<UploadedPart> parts = uploader.upload(requestBody, base64, contentType);
+                RequestContextHolder.lap(Stage.S3_UPLOAD);
+                for (UploadedPart part : parts) {
+                    builder.addTextBody(part.getFieldName(), part.isFile() ? part.getLocation() : part.getValue(),
+                                        ContentType.TEXT_PLAIN.withCharset(StandardCharsets.UTF_8));
                 }
             }
-            log.info("httpPost : {}", httpPost);
-            HttpResponse response = httpClient.execute(httpPost);
+            httpPost.setEntity(builder.build());
 
-            int statusCode = response.getStatusLine().getStatusCode();
-            String responseBody = EntityUtils.toString(response.getEntity());
-
-            responseEvent.setStatusCode(statusCode);
-            responseEvent.setBody(responseBody);
+            log.debug("httpPost : {}", httpPost);
+            RequestContextHolder.mark();
+            try (CloseableHttpResponse response = httpClient.execute(httpPost)) {
+                return responseMapper.toResponseEvent(response, headers);
+            }
+        } catch (IllegalArgumentException e) {
+            return UpstreamResponseMapper.gatewayError(400, e.getMessage());
         } catch (IOException e) {
-            // Handle exceptions here
-            return createErrorResponse(500, "500", e.getMessage());
+            log.error("Error while making multipart HTTP POST request: {}", e.getMessage());
+            return upstreamFailure(e);
         } catch (Exception e) {
+            log.error("Error while uploading multipart request: {}", e.getMessage());
             return createErrorResponse(500, "500", e.getMessage());
         }
-
-        return responseEvent;
     }
-    public static APIGatewayProxyResponseEvent makeHttpRequest(String apiUrl, Map<String, String> headers,
-                                                               String requestBody, HttpRequestBase requestBase) {
-        APIGatewayProxyResponseEvent responseEvent = new APIGatewayProxyResponseEvent();
-
-        try (CloseableHttpClient httpClient = HttpClients.createDefault()) {
+    public static APIGatewayProxyResponseEvent makeHttpRequest(CloseableHttpClient httpClient,
+                                                               UpstreamResponseMapper responseMapper,
+                                                               RequestConfig requestConfig, String apiUrl,
+                                                               Map<String, String> headers, RequestPayload payload,
+                                                               HttpRequestBase requestBase) {
+        try {
             requestBase.setURI(new URI(apiUrl));
+            requestBase.setConfig(requestConfig);
 
             // Add headers from the event to the HTTP request
-            for (Map.Entry<String, String> entry : headers.entrySet()) {
-                requestBase.setHeader(entry.getKey(), entry.getValue());
+            copyHeaders(requestBase, headers);
+
+            // Set the request body; DELETE, HEAD and OPTIONS requests cannot carry one
+            if (requestBase instanceof HttpEntityEnclosingRequestBase) {
+                setBody((HttpEntityEnclosingRequestBase) requestBase, payload);
             }
 
-            // Set the request body
-            if (requestBody != null && !requestBody.isEmpty()) {
-                StringEntity entity = new StringEntity(requestBody);
-                ((HttpEntityEnclosingRequestBase) requestBase).setEntity(entity);
+            RequestContextHolder.mark();
+            try (CloseableHttpResponse response = httpClient.execute(requestBase)) {
+                return responseMapper.toResponseEvent(response, headers);
             }
+        } catch (IOException e) {
+            log.error("Error while making HTTP {} request: {}", requestBase.getMethod(), e.getMessage());
+            return upstreamFailure(e);
+        } catch (URISyntaxException e) {
+            return createErrorResponse(500, "500", e.getMessage());
+        }
+    }
+
+    /**
+     * Maps a transport failure to the status API Gateway clients should see: 503 when no pooled
+     * connection was free, 504 on connect/read timeouts and 502 for any other upstream I/O error.
+     * An exhausted pool is local, so its 503 is marked as a gateway error.
+     */
+    public static APIGatewayProxyResponseEvent upstreamFailure(IOException e) {
+        if (e instanceof ConnectionPoolTimeoutException) {
+            return UpstreamResponseMapper.gatewayError(503, e.getMessage());
+        }
+        if (e instanceof ConnectTimeoutException || e instanceof SocketTimeoutException) {
+            return createErrorResponse(504, "504", e.getMessage());
+        }
+        return createErrorResponse(502, "502", e.getMessage());
+    }
 
-            HttpResponse response = httpClient.execute(requestBase);
-            int statusCode = response.getStatusLine().getStatusCode();
-            String responseBody = EntityUtils.toString(response.getEntity());
+    /**
+     * The entity computes the framing, so the client's own length and transfer headers are dropped.
+     */
+    private static void copyHeaders(HttpRequestBase request, Map<String, String> headers) {
+        for (Map.Entry<String, String> entry : headers.entrySet()) {
+            if (!"Content-Length".equalsIgnoreCase(entry.getKey())
+                && !"Transfer-Encoding".equalsIgnoreCase(entry.getKey())) {
+                request.setHeader(entry.getKey(), entry.getValue());
+            }
+        }
+    }
 
-            responseEvent.setStatusCode(statusCode);
-            responseEvent.setBody(responseBody);
-        } catch (IOException | URISyntaxException e) {
-            // Handle exceptions here
-            return createErrorResponse(500, "500", e.getMessage());
+    /**
+     * Sends the payload bytes as they are: no re-encoding and no copy.
+     */
+    private static void setBody(HttpEntityEnclosingRequestBase request, RequestPayload payload) {
+        if (payload != null && payload.hasBody()) {
+            ByteArrayEntity entity = new ByteArrayEntity(payload.getBytes());
+            entity.setContentType(payload.getContentType());
+            request.setEntity(entity);
         }
+    }
 
-        return responseEvent;
+    public static String appendQueryString(String apiUrl, Map<String, String> queryParams)
+            throws UnsupportedEncodingException {
+        if (queryParams == null || queryParams.isEmpty()) {
+            return apiUrl;
+        }
+        // Build the query string from the queryParams map
+        StringBuilder queryString = new StringBuilder(apiUrl).append('?');
+        boolean first = true;
+        for (Map.Entry<String, String> entry : queryParams.entrySet()) {
+            if (!first) {
+                queryString.append('&');
+            }
+            first = false;
+            queryString.append(URLEncoder.encode(entry.getKey(), StandardCharsets.UTF_8.name()));
+            queryString.append('=');
+            queryString.append(URLEncoder.encode(entry.getValue(), StandardCharsets.UTF_8.name()));
+        }
+        return queryString.toString();
     }
 }
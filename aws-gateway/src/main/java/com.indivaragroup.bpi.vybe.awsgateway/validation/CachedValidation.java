@@ -0,0 +1,57 @@
+package com.indivaragroup.bpi.vybe.awsgateway.validation;
+
+import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyResponseEvent;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.util.*;
+
+/**
+ * Outcome of one token validation, reduced to what differs from the request it was computed for.
+ */
+@Getter
+@RequiredArgsConstructor(access = AccessLevel.PRIVATE)
+class CachedValidation {
+
+    private final int statusCode;
+    private final String body;
+    private final Map<String, String> addedHeaders;
+    private final Set<String> removedHeaders;
+    private final long expiresAt;
+
+    static CachedValidation of(APIGatewayProxyResponseEvent response, Map<String, String> requestHeaders,
+                               long expiresAt) {
+        Map<String, String> added = new HashMap<>();
+        Set<String> removed = new HashSet<>();
+        Map<String, String> responseHeaders = response.getHeaders() != null ? response.getHeaders() : Collections.emptyMap();
+        Map<String, String> original = requestHeaders != null ? requestHeaders : Collections.emptyMap();
+
+        for (Map.Entry<String, String> entry : responseHeaders.entrySet()) {
+            if (!Objects.equals(original.get(entry.getKey()), entry.getValue())) {
+                added.put(entry.getKey(), entry.getValue());
+            }
+        }
+        for (String key : original.keySet()) {
+            if (!responseHeaders.containsKey(key)) {
+                removed.add(key);
+            }
+        }
+        int statusCode = response.getStatusCode() != null ? response.getStatusCode() : 500;
+        return new CachedValidation(statusCode, response.getBody(), added, removed, expiresAt);
+    }
+
+    boolean isNegative() {
+        return statusCode != 200;
+    }
+
+    APIGatewayProxyResponseEvent toResponse(Map<String, String> requestHeaders) {
+        Map<String, String> headers = new HashMap<>(requestHeaders != null ? requestHeaders : Collections.emptyMap());
+        headers.keySet().removeAll(removedHeaders);
+        headers.putAll(addedHeaders);
+        return new APIGatewayProxyResponseEvent()
+                .withStatusCode(statusCode)
+                .withHeaders(headers)
+                .withBody(body);
+    }
+}
@@ -0,0 +1,219 @@
+package com.indivaragroup.bpi.vybe.awsgateway.validation;
+
+import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyRequestEvent;
+import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyResponseEvent;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.indivaragroup.bpi.vybe.awsgateway.context.RequestContext;
+import com.indivaragroup.bpi.vybe.awsgateway.metrics.ComponentStats;
+import com.indivaragroup.bpi.vybe.awsgateway.util.HeaderUtils;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded cache in front of {@link ValidatorService#validateResponseToken}. Entries are keyed by
+ * a SHA-256 of the bearer token and keep the validation status plus only the headers validation
+ * added or changed, so a hit re-applies them on top of the current request's own headers.
+ * Positive entries live until the configured TTL or the token's {@code exp}, whichever is
+ * sooner; 401/403 outcomes are cached for a short negative TTL. Concurrent misses for the same
+ * token share a single validation call.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class TokenValidationCache implements ComponentStats {
+
+    private static final String AUTHORIZATION = "Authorization";
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final ValidatorService validatorService;
+
+    @Value("${validation.token-cache.enabled:true}")
+    private boolean enabled;
+    @Value("${validation.token-cache.max-entries:10000}")
+    private int maxEntries;
+    @Value("${validation.token-cache.ttl-ms:300000}")
+    private long ttlMs;
+    @Value("${validation.token-cache.negative-ttl-ms:10000}")
+    private long negativeTtlMs;
+    @Value("${validation.token-cache.expiry-skew-ms:5000}")
+    private long expirySkewMs;
+
+    private final Map<String, CachedValidation> entries = new LinkedHashMap<String, CachedValidation>(256, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, CachedValidation> eldest) {
+            if (size() > maxEntries) {
+                evictions.increment();
+                return true;
+            }
+            return false;
+        }
+    };
+    private final ConcurrentHashMap<String, CompletableFuture<CachedValidation>> inFlight = new ConcurrentHashMap<>();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder negativeHits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder sharedLoads = new LongAdder();
+
+    /**
+     * Same contract as {@link ValidatorService#validateResponseToken}: the returned headers are
+     * the ones to forward upstream.
+     */
+    public APIGatewayProxyResponseEvent validate(APIGatewayProxyRequestEvent event, RequestContext context)
+            throws JsonProcessingException {
+        String token = findToken(event.getHeaders());
+        if (!enabled || token == null) {
+            return validatorService.validateResponseToken(event);
+        }
+
+        String key = hash(token);
+        CachedValidation cached = lookup(key);
+        if (cached != null) {
+            (cached.isNegative() ? negativeHits : hits).increment();
+            context.setTokenCache(RequestContext.CacheOutcome.HIT);
+            return cached.toResponse(event.getHeaders());
+        }
+
+        misses.increment();
+        context.setTokenCache(RequestContext.CacheOutcome.MISS);
+        CompletableFuture<CachedValidation> loading = new CompletableFuture<>();
+        CompletableFuture<CachedValidation> existing = inFlight.putIfAbsent(key, loading);
+        if (existing != null) {
+            sharedLoads.increment();
+            return await(existing).toResponse(event.getHeaders());
+        }
+
+        try {
+            // Snapshot first: the validator may enrich the request's header map in place
+            Map<String, String> requestHeaders = new HashMap<>(event.getHeaders());
+            APIGatewayProxyResponseEvent response = validatorService.validateResponseToken(event);
+            CachedValidation validation = CachedValidation.of(response, requestHeaders, expiresAt(response, token));
+            if (validation.getExpiresAt() > System.currentTimeMillis()) {
+                synchronized (entries) {
+                    entries.put(key, validation);
+                }
+            }
+            loading.complete(validation);
+            return response;
+        } catch (JsonProcessingException | RuntimeException e) {
+            loading.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, loading);
+        }
+    }
+
+    @Override
+    public String getStatsName() {
+        return "TokenValidationCache";
+    }
+
+    @Override
+    public Map<String, Long> getStats() {
+        Map<String, Long> stats = new LinkedHashMap<>();
+        stats.put("hits", hits.sum());
+        stats.put("negativeHits", negativeHits.sum());
+        stats.put("misses", misses.sum());
+        stats.put("evictions", evictions.sum());
+        stats.put("sharedLoads", sharedLoads.sum());
+        synchronized (entries) {
+            stats.put("size", (long) entries.size());
+        }
+        return stats;
+    }
+
+    public void invalidateAll() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    private CachedValidation lookup(String key) {
+        synchronized (entries) {
+            CachedValidation cached = entries.get(key);
+            if (cached != null && cached.getExpiresAt() <= System.currentTimeMillis()) {
+                entries.remove(key);
+                return null;
+            }
+            return cached;
+        }
+    }
+
+    private long expiresAt(APIGatewayProxyResponseEvent response, String token) {
+        long now = System.currentTimeMillis();
+        Integer statusCode = response.getStatusCode();
+        if (statusCode != null && (statusCode == 401 || statusCode == 403)) {
+            return now + negativeTtlMs;
+        }
+        if (statusCode == null || statusCode != 200) {
+            // Upstream or validator failures are never cached
+            return now;
+        }
+        long expiresAt = now + ttlMs;
+        Long tokenExpiry = readJwtExpiry(token);
+        if (tokenExpiry != null) {
+            expiresAt = Math.min(expiresAt, tokenExpiry * 1000 - expirySkewMs);
+        }
+        return expiresAt;
+    }
+
+    private static CachedValidation await(CompletableFuture<CachedValidation> future) throws JsonProcessingException {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof JsonProcessingException) {
+                throw (JsonProcessingException) e.getCause();
+            }
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    private static String findToken(Map<String, String> headers) {
+        String value = HeaderUtils.getHeader(headers, AUTHORIZATION);
+        return value == null || value.isEmpty() ? null : value;
+    }
+
+    private static Long readJwtExpiry(String authorization) {
+        String token = authorization.regionMatches(true, 0, "Bearer ", 0, 7)
+                ? authorization.substring(7).trim() : authorization;
+        int firstDot = token.indexOf('.');
+        int secondDot = token.indexOf('.', firstDot + 1);
+        if (firstDot < 0 || secondDot < 0) {
+            return null;
+        }
+        try {
+            byte[] payload = Base64.getUrlDecoder().decode(token.substring(firstDot + 1, secondDot));
+            JsonNode exp = MAPPER.readTree(payload).get("exp");
+            return exp != null && exp.canConvertToLong() ? exp.asLong() : null;
+        } catch (Exception e) {
+            log.debug("Token is not a readable JWT, using the configured TTL : {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private static String hash(String token) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().encodeToString(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
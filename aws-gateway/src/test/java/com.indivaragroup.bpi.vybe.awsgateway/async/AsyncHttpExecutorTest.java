@@ -0,0 +1,122 @@
+package com.indivaragroup.bpi.vybe.awsgateway.async;
+
+import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyResponseEvent;
+import com.indivaragroup.bpi.vybe.awsgateway.body.RequestPayload;
+import com.indivaragroup.bpi.vybe.awsgateway.response.UpstreamResponseMapper;
+import okhttp3.Interceptor;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import org.junit.After;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class AsyncHttpExecutorTest {
+
+    private static final String URL = "http://upstream/member";
+
+    private final List<Request> requests = new CopyOnWriteArrayList<>();
+    private final CountDownLatch release = new CountDownLatch(1);
+    private OkHttpClient client;
+
+    @After
+    public void tearDown() {
+        release.countDown();
+        if (client != null) {
+            client.dispatcher().executorService().shutdownNow();
+        }
+    }
+
+    private AsyncHttpExecutor executor(String hostLimits, boolean blockUntilReleased) {
+        Interceptor upstream = chain -> {
+            requests.add(chain.request());
+            if (blockUntilReleased) {
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            return new Response.Builder().request(chain.request()).protocol(Protocol.HTTP_1_1).code(200).message("OK")
+                    .body(ResponseBody.create("{}", MediaType.get("application/json"))).build();
+        };
+        client = new OkHttpClient.Builder().addInterceptor(upstream).build();
+        UpstreamResponseMapper mapper = new UpstreamResponseMapper();
+        ReflectionTestUtils.setField(mapper, "maxBytes", 1024L);
+        AsyncHttpExecutor executor = new AsyncHttpExecutor(client, mapper);
+        ReflectionTestUtils.setField(executor, "hostLimits", hostLimits);
+        executor.parseHostLimits();
+        return executor;
+    }
+
+    private static Map<String, String> headers() {
+        Map<String, String> headers = new HashMap<>();
+        headers.put("Host", "gateway.example");
+        headers.put("Content-Length", "12");
+        headers.put("X-Request-Id", "abc");
+        return headers;
+    }
+
+    @Test
+    public void requestCarriesQueryAndForwardableHeaders() {
+        APIGatewayProxyResponseEvent response = executor("", false)
+                .execute("GET", URL, headers(), RequestPayload.NONE, Collections.singletonMap("page", "2"), 1_000)
+                .join();
+
+        assertThat(response.getStatusCode()).isEqualTo(200);
+        Request request = requests.get(0);
+        assertThat(request.url().queryParameter("page")).isEqualTo("2");
+        assertThat(request.header("X-Request-Id")).isEqualTo("abc");
+        assertThat(request.header("Host")).isNull();
+        assertThat(request.header("Content-Length")).isNull();
+    }
+
+    @Test
+    public void callIsAnsweredWith504WhenItsTimeoutPasses() {
+        APIGatewayProxyResponseEvent response = executor("", true)
+                .execute("GET", URL, headers(), RequestPayload.NONE, null, 50)
+                .join();
+
+        assertThat(response.getStatusCode()).isEqualTo(504);
+    }
+
+    @Test
+    public void callsBeyondTheHostLimitAreRejectedUntilAPermitIsReturned() {
+        AsyncHttpExecutor executor = executor("upstream:1", true);
+        CompletableFuture<APIGatewayProxyResponseEvent> first =
+                executor.execute("GET", URL, headers(), RequestPayload.NONE, null, 5_000);
+
+        APIGatewayProxyResponseEvent rejected =
+                executor.execute("GET", URL, headers(), RequestPayload.NONE, null, 5_000).join();
+        release.countDown();
+
+        assertThat(rejected.getStatusCode()).isEqualTo(503);
+        assertThat(UpstreamResponseMapper.isGatewayError(rejected)).isTrue();
+        assertThat(first.join().getStatusCode()).isEqualTo(200);
+        assertThat(executor.execute("GET", URL, headers(), RequestPayload.NONE, null, 5_000).join().getStatusCode())
+                .isEqualTo(200);
+    }
+
+    @Test
+    public void invalidUrlIsABadRequest() {
+        APIGatewayProxyResponseEvent response = executor("", false)
+                .execute("GET", "not a url", headers(), RequestPayload.NONE, null, 1_000)
+                .join();
+
+        assertThat(response.getStatusCode()).isEqualTo(400);
+    }
+}
@@ -0,0 +1,187 @@
+package com.indivaragroup.bpi.vybe.awsgateway.batch;
+
+import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyRequestEvent;
+import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyResponseEvent;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.indivaragroup.bpi.vybe.awsgateway.context.RequestContext;
+import com.indivaragroup.bpi.vybe.awsgateway.resilience.UpstreamResilience;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class BatchHandlerTest {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private BatchHandler handler;
+
+    @Before
+    public void setUp() {
+        UpstreamResilience resilience = new UpstreamResilience();
+        ReflectionTestUtils.setField(resilience, "defaultDeadlineMillis", 5_000L);
+        handler = new BatchHandler(resilience);
+        ReflectionTestUtils.setField(handler, "enabled", true);
+        ReflectionTestUtils.setField(handler, "path", "/batch");
+        ReflectionTestUtils.setField(handler, "maxRequests", 3);
+        ReflectionTestUtils.setField(handler, "maxConcurrency", 3);
+        ReflectionTestUtils.setField(handler, "deadlineMs", 5_000L);
+        ReflectionTestUtils.setField(handler, "threads", 4);
+    }
+
+    @After
+    public void tearDown() {
+        handler.shutdown();
+    }
+
+    @Test
+    public void subRequestsInheritEnvelopeHeadersButNotAuthorizationOverrides() {
+        Map<String, String> headers = new HashMap<>();
+        headers.put("Authorization", "Bearer t");
+        headers.put("Content-Type", "application/json");
+        headers.put("Accept-Encoding", "gzip");
+        headers.put("X-Client", "app");
+        APIGatewayProxyRequestEvent envelope = envelope(
+                "{\"requests\":[{\"id\":\"a\",\"method\":\"post\",\"path\":\"/member\",\"body\":{\"x\":1},"
+                + "\"headers\":{\"authorization\":\"Bearer other\",\"x-client\":\"web\"},\"query\":{\"q\":\"1\"}},"
+                + "{\"path\":\"/profile\"}]}", headers);
+
+        BatchRequest batch = handler.parse(envelope, RequestContext.start(envelope));
+
+        assertThat(batch.getIds()).containsExactly("a", "1");
+        APIGatewayProxyRequestEvent first = batch.getEvents().get(0);
+        assertThat(first.getHttpMethod()).isEqualTo("POST");
+        assertThat(first.getBody()).isEqualTo("{\"x\":1}");
+        assertThat(first.getQueryStringParameters()).containsEntry("q", "1");
+        assertThat(first.getHeaders())
+                .containsEntry("Authorization", "Bearer t")
+                .containsEntry("x-client", "web")
+                .containsEntry("Content-Type", "application/json")
+                .doesNotContainKeys("X-Client", "Accept-Encoding", "authorization")
+                .containsKey("traceparent");
+        APIGatewayProxyRequestEvent second = batch.getEvents().get(1);
+        assertThat(second.getHttpMethod()).isEqualTo("GET");
+        assertThat(second.getHeaders()).doesNotContainKeys("Content-Type");
+    }
+
+    @Test
+    public void nestedBatchIsRejected() {
+        APIGatewayProxyRequestEvent envelope = envelope("{\"requests\":[{\"path\":\"/batch\"}]}", null);
+
+        assertThatThrownBy(() -> handler.parse(envelope, RequestContext.start(envelope)))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("nested");
+    }
+
+    @Test
+    public void malformedOrOversizedEnvelopeIsRejected() {
+        APIGatewayProxyRequestEvent notJson = envelope("requests", null);
+        APIGatewayProxyRequestEvent tooMany = envelope(
+                "{\"requests\":[{\"path\":\"/a\"},{\"path\":\"/b\"},{\"path\":\"/c\"},{\"path\":\"/d\"}]}", null);
+        APIGatewayProxyRequestEvent relative = envelope("{\"requests\":[{\"path\":\"a\"}]}", null);
+
+        assertThatThrownBy(() -> handler.parse(notJson, RequestContext.start(notJson)))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> handler.parse(tooMany, RequestContext.start(tooMany)))
+                .hasMessageContaining("exceeds 3");
+        assertThatThrownBy(() -> handler.parse(relative, RequestContext.start(relative)))
+                .hasMessageContaining("absolute");
+    }
+
+    @Test
+    public void responsesAreCombinedInRequestOrder() throws IOException {
+        BatchRequest batch = parse("{\"requests\":[{\"id\":\"slow\",\"path\":\"/a\"},{\"id\":\"medium\",\"path\":\"/b\"},"
+                                   + "{\"id\":\"fast\",\"path\":\"/c\"}]}");
+        Map<String, Long> delays = new HashMap<>();
+        delays.put("/a", 60L);
+        delays.put("/b", 30L);
+        delays.put("/c", 0L);
+
+        APIGatewayProxyResponseEvent response = handler.execute(batch, event -> {
+            sleep(delays.get(event.getPath()));
+            return json(200, "{\"path\":\"" + event.getPath() + "\"}");
+        });
+
+        JsonNode responses = MAPPER.readTree(response.getBody()).get("responses");
+        assertThat(responses).hasSize(3);
+        assertThat(responses.get(0).get("id").asText()).isEqualTo("slow");
+        assertThat(responses.get(0).get("body").get("path").asText()).isEqualTo("/a");
+        assertThat(responses.get(1).get("id").asText()).isEqualTo("medium");
+        assertThat(responses.get(2).get("id").asText()).isEqualTo("fast");
+        assertThat(responses.get(2).get("status").asInt()).isEqualTo(200);
+    }
+
+    @Test
+    public void nothingStartsAfterTheDeadline() throws IOException {
+        ReflectionTestUtils.setField(handler, "maxConcurrency", 1);
+        ReflectionTestUtils.setField(handler, "deadlineMs", 50L);
+        BatchRequest batch = parse("{\"requests\":[{\"path\":\"/a\"},{\"path\":\"/b\"},{\"path\":\"/c\"}]}");
+        AtomicInteger started = new AtomicInteger();
+
+        APIGatewayProxyResponseEvent response = handler.execute(batch, event -> {
+            started.incrementAndGet();
+            sleep(100);
+            return json(200, "{}");
+        });
+
+        JsonNode responses = MAPPER.readTree(response.getBody()).get("responses");
+        assertThat(started.get()).isEqualTo(1);
+        assertThat(responses.get(0).get("status").asInt()).isEqualTo(200);
+        assertThat(responses.get(1).get("status").asInt()).isEqualTo(504);
+        assertThat(responses.get(2).get("status").asInt()).isEqualTo(504);
+        assertThat(handler.getStats()).containsEntry("deadlineExceeded", 2L);
+    }
+
+    @Test
+    public void failingSubRequestDoesNotFailTheBatch() throws IOException {
+        BatchRequest batch = parse("{\"requests\":[{\"path\":\"/a\"},{\"path\":\"/b\"}]}");
+
+        APIGatewayProxyResponseEvent response = handler.execute(batch, event -> {
+            if ("/a".equals(event.getPath())) {
+                throw new IllegalStateException("boom");
+            }
+            return json(200, "{}");
+        });
+
+        JsonNode responses = MAPPER.readTree(response.getBody()).get("responses");
+        assertThat(response.getStatusCode()).isEqualTo(200);
+        assertThat(responses.get(0).get("status").asInt()).isEqualTo(500);
+        assertThat(responses.get(1).get("status").asInt()).isEqualTo(200);
+    }
+
+    private BatchRequest parse(String body) {
+        APIGatewayProxyRequestEvent envelope = envelope(body, null);
+        return handler.parse(envelope, RequestContext.start(envelope));
+    }
+
+    private static APIGatewayProxyRequestEvent envelope(String body, Map<String, String> headers) {
+        return new APIGatewayProxyRequestEvent()
+                .withHttpMethod("POST")
+                .withPath("/batch")
+                .withHeaders(headers)
+                .withBody(body);
+    }
+
+    private static APIGatewayProxyResponseEvent json(int statusCode, String body) {
+        return new APIGatewayProxyResponseEvent()
+                .withStatusCode(statusCode)
+                .withHeaders(Collections.singletonMap("Content-Type", "application/json"))
+                .withBody(body);
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
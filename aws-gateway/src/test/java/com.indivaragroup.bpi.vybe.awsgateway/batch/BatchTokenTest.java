@@ -0,0 +1,65 @@
+package com.indivaragroup.bpi.vybe.awsgateway.batch;
+
+import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyRequestEvent;
+import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyResponseEvent;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
+
+public class BatchTokenTest {
+
+    @Test
+    public void validatedHeadersReplaceInheritedOnes() {
+        BatchToken token = new BatchToken(null, null, headers("Authorization", "Bearer t", "X-Stale", "1"),
+                                          headers("Authorization", "Bearer t", "X-User-Id", "alice"));
+        APIGatewayProxyRequestEvent event = event("Authorization", "Bearer t", "X-Stale", "1", "Accept", "text/plain");
+
+        assertThat(token.applyTo(event)).isNull();
+
+        assertThat(event.getHeaders()).containsOnly(
+                entry("Authorization", "Bearer t"), entry("X-User-Id", "alice"), entry("Accept", "text/plain"));
+    }
+
+    @Test
+    public void validatedValueWinsOverInheritedCopyOfTheSameHeader() {
+        BatchToken token = new BatchToken(null, null, headers("x-user-id", "mallory"), headers("X-User-Id", "alice"));
+        APIGatewayProxyRequestEvent event = event("x-user-id", "mallory");
+
+        assertThat(token.applyTo(event)).isNull();
+
+        assertThat(event.getHeaders()).containsOnly(entry("X-User-Id", "alice"));
+    }
+
+    @Test
+    public void subRequestCannotSetAValidatedHeader() {
+        BatchToken token = new BatchToken(null, null, headers("X-User-Id", "alice"), headers("X-User-Id", "alice"));
+
+        APIGatewayProxyResponseEvent response = token.applyTo(event("X-USER-ID", "bob"));
+
+        assertThat(response.getStatusCode()).isEqualTo(400);
+    }
+
+    @Test
+    public void rejectionIsReturnedForEverySubRequest() {
+        APIGatewayProxyResponseEvent rejection = new APIGatewayProxyResponseEvent().withStatusCode(401);
+        BatchToken token = new BatchToken(rejection, null, headers(), headers());
+
+        assertThat(token.applyTo(event())).isSameAs(rejection);
+    }
+
+    private static APIGatewayProxyRequestEvent event(String... headers) {
+        return new APIGatewayProxyRequestEvent().withHeaders(headers(headers));
+    }
+
+    private static Map<String, String> headers(String... namesAndValues) {
+        Map<String, String> headers = new HashMap<>();
+        for (int i = 0; i < namesAndValues.length; i += 2) {
+            headers.put(namesAndValues[i], namesAndValues[i + 1]);
+        }
+        return headers;
+    }
+}
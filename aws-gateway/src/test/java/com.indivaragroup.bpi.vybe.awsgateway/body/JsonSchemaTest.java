@@ -0,0 +1,146 @@
+package com.indivaragroup.bpi.vybe.awsgateway.body;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class JsonSchemaTest {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private static final String TRANSFER = "{"
+            + "\"type\":\"object\","
+            + "\"required\":[\"amount\",\"currency\"],"
+            + "\"additionalProperties\":false,"
+            + "\"properties\":{"
+            + "  \"amount\":{\"type\":\"number\",\"exclusiveMinimum\":0,\"maximum\":1000},"
+            + "  \"count\":{\"type\":\"integer\",\"minimum\":1},"
+            + "  \"currency\":{\"type\":\"string\",\"enum\":[\"NGN\",\"USD\"]},"
+            + "  \"reference\":{\"type\":\"string\",\"minLength\":3,\"maxLength\":5,\"pattern\":\"^[A-Z0-9]+$\"},"
+            + "  \"tags\":{\"type\":\"array\",\"maxItems\":2,\"items\":{\"type\":\"string\"}},"
+            + "  \"note\":{\"type\":[\"string\",\"null\"]},"
+            + "  \"a/b\":{\"type\":\"boolean\"}"
+            + "}}";
+
+    private static String validate(String schema, String body) throws Exception {
+        return JsonSchema.compile(MAPPER.readTree(schema), "test").validate(body.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String transfer(String body) throws Exception {
+        return validate(TRANSFER, body);
+    }
+
+    @Test
+    public void conformingBodyPasses() throws Exception {
+        assertThat(transfer("{\"amount\":12.5,\"currency\":\"NGN\",\"count\":2,\"reference\":\"AB12\","
+                            + "\"tags\":[\"a\",\"b\"],\"note\":null,\"a/b\":true}")).isNull();
+    }
+
+    @Test
+    public void typeMismatchNamesThePointer() throws Exception {
+        assertThat(transfer("{\"amount\":\"12\",\"currency\":\"NGN\"}"))
+                .isEqualTo("Request body /amount must be a number");
+        assertThat(transfer("[]")).isEqualTo("Request body must be an object");
+        assertThat(transfer("{\"amount\":1,\"currency\":\"NGN\",\"note\":5}"))
+                .isEqualTo("Request body /note must be a string or null");
+    }
+
+    @Test
+    public void requiredAndAdditionalProperties() throws Exception {
+        assertThat(transfer("{\"amount\":1}")).isEqualTo("Request body /currency is required");
+        assertThat(transfer("{\"amount\":1,\"currency\":\"NGN\",\"extra\":1}"))
+                .isEqualTo("Request body /extra is not an allowed property");
+    }
+
+    @Test
+    public void enumMatchesStringsAndNumbersByValue() throws Exception {
+        assertThat(transfer("{\"amount\":1,\"currency\":\"EUR\"}"))
+                .isEqualTo("Request body /currency is not one of the allowed values");
+
+        String levels = "{\"enum\":[1,10,2.5,true,null]}";
+        assertThat(validate(levels, "10")).isNull();
+        assertThat(validate(levels, "1.0")).isNull();
+        assertThat(validate(levels, "1e1")).isNull();
+        assertThat(validate(levels, "2.50")).isNull();
+        assertThat(validate(levels, "true")).isNull();
+        assertThat(validate(levels, "null")).isNull();
+        assertThat(validate(levels, "3")).isEqualTo("Request body is not one of the allowed values");
+        assertThat(validate(levels, "false")).isEqualTo("Request body is not one of the allowed values");
+        assertThat(validate(levels, "\"10\"")).isEqualTo("Request body is not one of the allowed values");
+    }
+
+    @Test
+    public void integerAcceptsIntegralValuesOnly() throws Exception {
+        assertThat(transfer("{\"amount\":1,\"currency\":\"NGN\",\"count\":2.0}")).isNull();
+        assertThat(transfer("{\"amount\":1,\"currency\":\"NGN\",\"count\":1e2}")).isNull();
+        assertThat(transfer("{\"amount\":1,\"currency\":\"NGN\",\"count\":1.5}"))
+                .isEqualTo("Request body /count must be an integer");
+        assertThat(transfer("{\"amount\":1,\"currency\":\"NGN\",\"count\":\"2\"}"))
+                .isEqualTo("Request body /count must be an integer");
+    }
+
+    @Test
+    public void numericBounds() throws Exception {
+        assertThat(transfer("{\"amount\":0,\"currency\":\"NGN\"}"))
+                .isEqualTo("Request body /amount must be greater than 0");
+        assertThat(transfer("{\"amount\":1000,\"currency\":\"NGN\"}")).isNull();
+        assertThat(transfer("{\"amount\":1000.01,\"currency\":\"NGN\"}"))
+                .isEqualTo("Request body /amount must be at most 1000");
+        assertThat(transfer("{\"amount\":1,\"currency\":\"NGN\",\"count\":0}"))
+                .isEqualTo("Request body /count must be at least 1");
+    }
+
+    @Test
+    public void stringLengthAndPattern() throws Exception {
+        assertThat(transfer("{\"amount\":1,\"currency\":\"NGN\",\"reference\":\"AB\"}"))
+                .isEqualTo("Request body /reference must be at least 3 characters");
+        assertThat(transfer("{\"amount\":1,\"currency\":\"NGN\",\"reference\":\"ABCDEF\"}"))
+                .isEqualTo("Request body /reference must be at most 5 characters");
+        assertThat(transfer("{\"amount\":1,\"currency\":\"NGN\",\"reference\":\"ab1\"}"))
+                .isEqualTo("Request body /reference does not match ^[A-Z0-9]+$");
+    }
+
+    @Test
+    public void arrayItemsAndSizeWithEscapedPointer() throws Exception {
+        assertThat(transfer("{\"amount\":1,\"currency\":\"NGN\",\"tags\":[\"a\",3]}"))
+                .isEqualTo("Request body /tags/1 must be a string");
+        assertThat(transfer("{\"amount\":1,\"currency\":\"NGN\",\"tags\":[\"a\",\"b\",\"c\"]}"))
+                .isEqualTo("Request body /tags must have at most 2 items");
+        assertThat(transfer("{\"amount\":1,\"currency\":\"NGN\",\"a/b\":1}"))
+                .isEqualTo("Request body /a~1b must be a boolean");
+    }
+
+    @Test
+    public void malformedBodies() throws Exception {
+        assertThat(transfer("")).isEqualTo("Request body is empty");
+        assertThat(transfer("{\"amount\":")).isEqualTo("Request body is not valid JSON");
+        assertThat(transfer("{\"amount\":1,\"currency\":\"NGN\"} {}")).isEqualTo("Request body has trailing content");
+    }
+
+    @Test
+    public void unsupportedKeywordsFailCompilation() {
+        for (String schema : new String[]{
+                "{\"$ref\":\"#/definitions/a\"}",
+                "{\"properties\":{\"a\":{\"oneOf\":[{\"type\":\"string\"}]}}}",
+                "{\"allOf\":[]}", "{\"anyOf\":[]}", "{\"const\":1}", "{\"dependencies\":{}}",
+                "{\"items\":[{\"type\":\"string\"}]}",
+                "{\"exclusiveMinimum\":true,\"minimum\":0}",
+                "{\"type\":\"strng\"}",
+                "{\"maxLength\":\"5\"}"}) {
+            assertThatThrownBy(() -> JsonSchema.compile(MAPPER.readTree(schema), "test"))
+                    .as(schema)
+                    .isInstanceOf(IllegalArgumentException.class)
+                    .hasMessageStartingWith("test : Schema ");
+        }
+    }
+
+    @Test
+    public void unsupportedKeywordIsNamedWithItsPointer() {
+        assertThatThrownBy(() -> JsonSchema.compile(MAPPER.readTree("{\"properties\":{\"a\":{\"oneOf\":[]}}}"), "test"))
+                .hasMessage("test : Schema /properties/a uses unsupported keyword oneOf");
+    }
+}
@@ -0,0 +1,117 @@
+package com.indivaragroup.bpi.vybe.awsgateway.body;
+
+import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyRequestEvent;
+import com.indivaragroup.bpi.vybe.awsgateway.context.RequestContext;
+import com.indivaragroup.bpi.vybe.awsgateway.routing.Route;
+import com.indivaragroup.bpi.vybe.awsgateway.routing.RoutePolicy;
+import com.indivaragroup.bpi.vybe.awsgateway.upload.MultipartS3Uploader;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Base64;
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class RequestBodyProcessorTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private RequestBodyProcessor processor;
+    private Route route;
+
+    @Before
+    public void setUp() throws Exception {
+        processor = new RequestBodyProcessor();
+        ReflectionTestUtils.setField(processor, "defaultMaxBytes", 64L);
+        File schema = folder.newFile("transfer.json");
+        Files.write(schema.toPath(), "{\"type\":\"object\",\"required\":[\"amount\"]}".getBytes(StandardCharsets.UTF_8));
+        route = Route.builder().pattern("/transfer").policy(RoutePolicy.TOKEN)
+                .option(RequestBodyProcessor.SCHEMA_OPTION, schema.toURI().toString()).build();
+        processor.validate(route);
+    }
+
+    private static APIGatewayProxyRequestEvent event(String contentType, String body) {
+        return new APIGatewayProxyRequestEvent().withHttpMethod("POST").withPath("/transfer").withBody(body)
+                .withHeaders(Collections.singletonMap("Content-Type", contentType));
+    }
+
+    @Test
+    public void processOnlyDecodesSoSchemaWaitsForCheckSchema() {
+        APIGatewayProxyRequestEvent event = event("application/json", "{}");
+        RequestContext context = RequestContext.start(event);
+
+        RequestPayload payload = processor.process(route, event, context);
+
+        assertThat(payload.getRejection()).isNull();
+        assertThat(payload.getBytes()).isEqualTo("{}".getBytes(StandardCharsets.UTF_8));
+        assertThat(processor.checkSchema(route, event, payload, context).getStatusCode()).isEqualTo(400);
+        assertThat(processor.getStats()).containsEntry("invalid", 1L);
+    }
+
+    @Test
+    public void mediaTypesAreComparedCaseInsensitively() {
+        APIGatewayProxyRequestEvent json = event("Application/JSON; charset=UTF-8", "{\"amount\":1}");
+        RequestContext context = RequestContext.start(json);
+        assertThat(processor.checkSchema(route, json, processor.process(route, json, context), context)).isNull();
+
+        APIGatewayProxyRequestEvent text = event("Text/Plain", "{\"amount\":1}");
+        assertThat(processor.checkSchema(route, text, processor.process(route, text, context), context).getStatusCode())
+                .isEqualTo(415);
+
+        APIGatewayProxyRequestEvent multipart = event("Multipart/Form-Data; boundary=x",
+                Base64.getEncoder().encodeToString("--x--".getBytes(StandardCharsets.UTF_8)));
+        assertThat(processor.checkSchema(route, multipart, processor.process(route, multipart, context), context)
+                           .getStatusCode()).isEqualTo(415);
+    }
+
+    @Test
+    public void multipartIsLeftForTheUploaderOnlyOnS3Routes() {
+        Route upload = Route.builder().pattern("/upload").policy(RoutePolicy.TOKEN)
+                .option(MultipartS3Uploader.S3_OPTION, "true").build();
+        Route forward = Route.builder().pattern("/forward").policy(RoutePolicy.TOKEN).build();
+        APIGatewayProxyRequestEvent multipart = event("multipart/form-data; boundary=x",
+                Base64.getEncoder().encodeToString("--x--".getBytes(StandardCharsets.UTF_8))).withIsBase64Encoded(true);
+        RequestContext context = RequestContext.start(multipart);
+
+        assertThat(processor.process(upload, multipart, context)).isSameAs(RequestPayload.NONE);
+        assertThat(processor.process(forward, multipart, context).getBytes())
+                .isEqualTo("--x--".getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void oversizedBodyIsRejectedBeforeDecoding() {
+        APIGatewayProxyRequestEvent event = event("application/json", "{\"amount\":\"" + new String(new char[80]).replace('\0', 'x') + "\"}");
+
+        RequestPayload payload = processor.process(route, event, RequestContext.start(event));
+
+        assertThat(payload.getRejection().getStatusCode()).isEqualTo(413);
+        assertThat(processor.getStats()).containsEntry("tooLarge", 1L);
+    }
+
+    @Test
+    public void unusableSchemaFailsRouteValidation() throws Exception {
+        File schema = folder.newFile("choice.json");
+        Files.write(schema.toPath(), "{\"oneOf\":[{\"type\":\"object\"}]}".getBytes(StandardCharsets.UTF_8));
+        Route unsupported = Route.builder().pattern("/choice").policy(RoutePolicy.TOKEN)
+                .option(RequestBodyProcessor.SCHEMA_OPTION, schema.toURI().toString()).build();
+        Route missing = Route.builder().pattern("/missing").policy(RoutePolicy.TOKEN)
+                .option(RequestBodyProcessor.SCHEMA_OPTION, "classpath:schemas/missing.json").build();
+
+        assertThatThrownBy(() -> processor.validate(unsupported))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("Route /choice option body.schema=")
+                .hasMessageContaining("unsupported keyword oneOf");
+        assertThatThrownBy(() -> processor.validate(missing))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("Route /missing option body.schema=classpath:schemas/missing.json");
+    }
+}
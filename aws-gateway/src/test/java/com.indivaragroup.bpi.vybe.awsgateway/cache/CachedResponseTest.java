@@ -0,0 +1,65 @@
+package com.indivaragroup.bpi.vybe.awsgateway.cache;
+
+import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyResponseEvent;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class CachedResponseTest {
+
+    private static CachedResponse cached(String body, long freshUntil, long staleUntil) {
+        Map<String, String> headers = new HashMap<>();
+        headers.put("Content-Type", "application/json");
+        return new CachedResponse(new APIGatewayProxyResponseEvent().withStatusCode(200).withHeaders(headers)
+                                          .withBody(body).withIsBase64Encoded(false),
+                                  "\"v1\"", freshUntil, staleUntil);
+    }
+
+    @Test
+    public void freshnessWindowsEndExclusively() {
+        CachedResponse response = cached("{}", 1_000, 2_000);
+
+        assertThat(response.isFresh(999)).isTrue();
+        assertThat(response.isFresh(1_000)).isFalse();
+        assertThat(response.isUsableStale(1_999)).isTrue();
+        assertThat(response.isUsableStale(2_000)).isFalse();
+    }
+
+    @Test
+    public void renewKeepsTheResponseAndMovesTheWindows() {
+        CachedResponse response = cached("{\"a\":1}", 1_000, 2_000);
+
+        CachedResponse renewed = response.renew(5_000, 6_000);
+
+        assertThat(renewed.getBody()).isEqualTo("{\"a\":1}");
+        assertThat(renewed.getEtag()).isEqualTo("\"v1\"");
+        assertThat(renewed.getFreshUntilMillis()).isEqualTo(5_000);
+        assertThat(renewed.getStaleUntilMillis()).isEqualTo(6_000);
+        assertThat(response.getFreshUntilMillis()).isEqualTo(1_000);
+    }
+
+    @Test
+    public void toResponseMarksTheCopyOnly() {
+        CachedResponse response = cached("{}", 1_000, 2_000);
+
+        APIGatewayProxyResponseEvent first = response.toResponse("HIT");
+        first.getHeaders().put("X-Extra", "1");
+
+        assertThat(first.getHeaders()).containsEntry("X-Cache", "HIT");
+        assertThat(response.getHeaders()).doesNotContainKeys("X-Cache", "X-Extra");
+        assertThat(response.toResponse("STALE").getHeaders()).containsEntry("X-Cache", "STALE");
+    }
+
+    @Test
+    public void weightGrowsWithBodyAndHeaders() {
+        CachedResponse empty = new CachedResponse(
+                new APIGatewayProxyResponseEvent().withStatusCode(204).withHeaders(Collections.emptyMap()), null, 0, 0);
+
+        assertThat(empty.weight()).isEqualTo(64);
+        assertThat(cached("0123456789", 0, 0).weight()).isGreaterThan(cached("", 0, 0).weight() + 19);
+    }
+}
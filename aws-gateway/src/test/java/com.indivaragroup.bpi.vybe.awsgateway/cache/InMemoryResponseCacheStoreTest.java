@@ -0,0 +1,75 @@
+package com.indivaragroup.bpi.vybe.awsgateway.cache;
+
+import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyResponseEvent;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class InMemoryResponseCacheStoreTest {
+
+    private InMemoryResponseCacheStore store;
+
+    @Before
+    public void setUp() {
+        store = new InMemoryResponseCacheStore();
+        ReflectionTestUtils.setField(store, "maxEntries", 2);
+        ReflectionTestUtils.setField(store, "maxBytes", 1_000L);
+    }
+
+    private static CachedResponse response(int bodyLength) {
+        return new CachedResponse(new APIGatewayProxyResponseEvent().withStatusCode(200)
+                                          .withHeaders(Collections.emptyMap())
+                                          .withBody(new String(new char[bodyLength]).replace('\0', 'x')),
+                                  null, 0, 0);
+    }
+
+    @Test
+    public void leastRecentlyUsedEntryIsEvictedAtTheEntryLimit() {
+        store.put("a", response(1));
+        store.put("b", response(1));
+        store.get("a");
+
+        store.put("c", response(1));
+
+        assertThat(store.get("a")).isNotNull();
+        assertThat(store.get("b")).isNull();
+        assertThat(store.get("c")).isNotNull();
+    }
+
+    @Test
+    public void entriesAreEvictedToStayWithinTheByteLimit() {
+        store.put("a", response(300));
+        store.put("b", response(300));
+
+        assertThat(store.size()).isEqualTo(1);
+        assertThat(store.get("b")).isNotNull();
+        assertThat(store.weight()).isEqualTo(response(300).weight());
+    }
+
+    @Test
+    public void entryLargerThanTheStoreIsNotKept() {
+        store.put("a", response(1));
+
+        store.put("huge", response(1_000));
+
+        assertThat(store.get("huge")).isNull();
+        assertThat(store.get("a")).isNotNull();
+    }
+
+    @Test
+    public void weightFollowsReplaceAndRemove() {
+        store.put("a", response(10));
+        store.put("a", response(20));
+        assertThat(store.weight()).isEqualTo(response(20).weight());
+
+        store.remove("a");
+        store.remove("missing");
+
+        assertThat(store.weight()).isZero();
+        assertThat(store.size()).isZero();
+    }
+}
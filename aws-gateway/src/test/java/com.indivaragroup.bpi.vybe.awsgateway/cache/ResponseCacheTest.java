@@ -0,0 +1,163 @@
+package com.indivaragroup.bpi.vybe.awsgateway.cache;
+
+import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyRequestEvent;
+import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyResponseEvent;
+import com.indivaragroup.bpi.vybe.awsgateway.routing.Route;
+import com.indivaragroup.bpi.vybe.awsgateway.routing.RoutePolicy;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.*;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ResponseCacheTest {
+
+    private InMemoryResponseCacheStore store;
+    private ResponseCache cache;
+    private final List<Map<String, String>> upstreamCalls = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        store = new InMemoryResponseCacheStore();
+        ReflectionTestUtils.setField(store, "maxEntries", 100);
+        ReflectionTestUtils.setField(store, "maxBytes", 1_000_000L);
+        cache = new ResponseCache(store);
+        ReflectionTestUtils.setField(cache, "enabled", true);
+        ReflectionTestUtils.setField(cache, "revalidateThreads", 1);
+        ReflectionTestUtils.setField(cache, "inLambda", false);
+    }
+
+    @Test
+    public void freshEntryIsServedWithoutCallingUpstream() {
+        Route route = route(RoutePolicy.NONE, "60", "0");
+        Function<Map<String, String>, APIGatewayProxyResponseEvent> upstream = upstream(ok("one", null));
+
+        assertThat(cache.fetch(route, event(null), Collections.emptyMap(), upstream).getHeaders())
+                .containsEntry("X-Cache", "MISS");
+        APIGatewayProxyResponseEvent second = cache.fetch(route, event(null), Collections.emptyMap(), upstream);
+
+        assertThat(second.getBody()).isEqualTo("one");
+        assertThat(second.getHeaders()).containsEntry("X-Cache", "HIT");
+        assertThat(upstreamCalls).hasSize(1);
+    }
+
+    @Test
+    public void upstreamMaxAgeCapsTheRouteTtl() {
+        Route route = route(RoutePolicy.NONE, "3600", "0");
+        long before = System.currentTimeMillis();
+
+        cache.fetch(route, event(null), Collections.emptyMap(), upstream(ok("one", "public, max-age=5")));
+
+        CachedResponse entry = onlyEntry();
+        assertThat(entry.getFreshUntilMillis()).isBetween(before + 5_000, System.currentTimeMillis() + 5_000);
+    }
+
+    @Test
+    public void noStoreAndSharedPrivateResponsesAreNotStored() {
+        Route shared = route(RoutePolicy.NONE, "60", "0");
+        Route perPrincipal = route(RoutePolicy.TOKEN, "60", "0");
+
+        cache.fetch(shared, event(null), Collections.emptyMap(), upstream(ok("one", "no-store")));
+        cache.fetch(shared, event(null), Collections.emptyMap(), upstream(ok("one", "private")));
+        assertThat(store.size()).isZero();
+
+        cache.fetch(perPrincipal, event("Bearer a"), Collections.emptyMap(), upstream(ok("one", "private")));
+        assertThat(store.size()).isEqualTo(1);
+    }
+
+    @Test
+    public void tokenRoutesKeepOneEntryPerCaller() {
+        Route route = route(RoutePolicy.TOKEN, "60", "0");
+        Function<Map<String, String>, APIGatewayProxyResponseEvent> upstream = upstream(ok("one", null));
+
+        cache.fetch(route, event("Bearer a"), Collections.emptyMap(), upstream);
+        cache.fetch(route, event("Bearer b"), Collections.emptyMap(), upstream);
+        cache.fetch(route, event("Bearer a"), Collections.emptyMap(), upstream);
+
+        assertThat(upstreamCalls).hasSize(2);
+        assertThat(store.size()).isEqualTo(2);
+    }
+
+    @Test
+    public void notModifiedRenewsTheEntry() {
+        Route route = route(RoutePolicy.NONE, "60", "0");
+        APIGatewayProxyResponseEvent tagged = ok("one", "no-cache");
+        tagged.getHeaders().put("ETag", "\"v1\"");
+        cache.fetch(route, event(null), Collections.emptyMap(), upstream(tagged));
+
+        APIGatewayProxyResponseEvent response = cache.fetch(route, event(null), Collections.emptyMap(),
+                                                            upstream(new APIGatewayProxyResponseEvent().withStatusCode(304)));
+
+        assertThat(upstreamCalls.get(1)).containsEntry("If-None-Match", "\"v1\"");
+        assertThat(response.getStatusCode()).isEqualTo(200);
+        assertThat(response.getBody()).isEqualTo("one");
+        assertThat(response.getHeaders()).containsEntry("X-Cache", "REVALIDATED");
+        assertThat(onlyEntry().isFresh(System.currentTimeMillis())).isTrue();
+    }
+
+    @Test
+    public void lambdaRevalidatesStaleEntriesBeforeAnswering() {
+        ReflectionTestUtils.setField(cache, "inLambda", true);
+        Route route = route(RoutePolicy.NONE, "60", "60");
+        cache.fetch(route, event(null), Collections.emptyMap(), upstream(ok("one", "no-cache")));
+
+        APIGatewayProxyResponseEvent refreshed = cache.fetch(route, event(null), Collections.emptyMap(),
+                                                             upstream(ok("two", null)));
+
+        assertThat(upstreamCalls).hasSize(2);
+        assertThat(refreshed.getBody()).isEqualTo("two");
+    }
+
+    @Test
+    public void lambdaServesStaleEntryWhenUpstreamFails() {
+        ReflectionTestUtils.setField(cache, "inLambda", true);
+        Route route = route(RoutePolicy.NONE, "60", "60");
+        cache.fetch(route, event(null), Collections.emptyMap(), upstream(ok("one", "no-cache")));
+
+        APIGatewayProxyResponseEvent response = cache.fetch(route, event(null), Collections.emptyMap(),
+                                                            upstream(new APIGatewayProxyResponseEvent().withStatusCode(503)));
+
+        assertThat(response.getBody()).isEqualTo("one");
+        assertThat(response.getHeaders()).containsEntry("X-Cache", "STALE");
+        assertThat(cache.getStats()).containsEntry("staleHits", 1L);
+    }
+
+    private CachedResponse onlyEntry() {
+        assertThat(store.size()).isEqualTo(1);
+        @SuppressWarnings("unchecked")
+        Map<String, CachedResponse> entries = (Map<String, CachedResponse>) ReflectionTestUtils.getField(store, "entries");
+        return entries.values().iterator().next();
+    }
+
+    private Function<Map<String, String>, APIGatewayProxyResponseEvent> upstream(APIGatewayProxyResponseEvent response) {
+        return headers -> {
+            upstreamCalls.add(headers);
+            return response;
+        };
+    }
+
+    private static Route route(RoutePolicy policy, String ttlSeconds, String staleSeconds) {
+        return Route.builder().pattern("/catalog").policy(policy)
+                .option(ResponseCache.TTL_OPTION, ttlSeconds).option(ResponseCache.STALE_OPTION, staleSeconds).build();
+    }
+
+    private static APIGatewayProxyRequestEvent event(String authorization) {
+        Map<String, String> headers = new HashMap<>();
+        if (authorization != null) {
+            headers.put("Authorization", authorization);
+        }
+        return new APIGatewayProxyRequestEvent().withHttpMethod("GET").withPath("/catalog").withHeaders(headers);
+    }
+
+    private static APIGatewayProxyResponseEvent ok(String body, String cacheControl) {
+        Map<String, String> headers = new HashMap<>();
+        headers.put("Content-Type", "text/plain");
+        if (cacheControl != null) {
+            headers.put("Cache-Control", cacheControl);
+        }
+        return new APIGatewayProxyResponseEvent().withStatusCode(200).withHeaders(headers).withBody(body);
+    }
+}
@@ -0,0 +1,92 @@
+package com.indivaragroup.bpi.vybe.awsgateway.config;
+
+import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyRequestEvent;
+import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyResponseEvent;
+import com.indivaragroup.bpi.vybe.awsgateway.serverless.AwsGatewayMain;
+import com.indivaragroup.bpi.vybe.awsgateway.validation.ValidatorService;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.core.env.MapPropertySource;
+
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Starts the bean set {@code LightweightLambdaHandler} uses and proxies through it.
+ */
+public class LightweightGatewayConfigurationTest {
+
+    private HttpServer upstream;
+    private AnnotationConfigApplicationContext context;
+
+    @Before
+    public void setUp() throws Exception {
+        upstream = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        upstream.createContext("/", exchange -> {
+            byte[] body = ("{\"path\":\"" + exchange.getRequestURI().getPath() + "\"}").getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            exchange.getResponseBody().write(body);
+            exchange.close();
+        });
+        upstream.start();
+
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("outbound.baseUrl", "http://127.0.0.1:" + upstream.getAddress().getPort());
+        properties.put("gateway.prime.on-startup", "false");
+        properties.put("gateway.routes[0].path", "/open/**");
+        properties.put("gateway.routes[0].policy", "NONE");
+        properties.put("gateway.lightweight.validator-service.enabled", "false");
+
+        ValidatorService validatorService = mock(ValidatorService.class);
+        when(validatorService.validateResponseToken(any()))
+                .thenReturn(new APIGatewayProxyResponseEvent().withStatusCode(401).withBody("{\"error\":\"unauthorized\"}"));
+
+        context = new AnnotationConfigApplicationContext();
+        context.getEnvironment().addActiveProfile(LightweightGatewayConfiguration.PROFILE);
+        context.getEnvironment().getPropertySources().addFirst(new MapPropertySource("test", properties));
+        context.registerBean(ValidatorService.class, () -> validatorService);
+        context.register(LightweightGatewayConfiguration.class);
+        context.refresh();
+    }
+
+    @After
+    public void tearDown() {
+        if (context != null) {
+            context.close();
+        }
+        upstream.stop(0);
+    }
+
+    private APIGatewayProxyResponseEvent apply(String path) {
+        Map<String, String> headers = new HashMap<>();
+        headers.put("Accept", "application/json");
+        return context.getBean(AwsGatewayMain.class).apply(
+                new APIGatewayProxyRequestEvent().withHttpMethod("GET").withPath(path).withHeaders(headers));
+    }
+
+    @Test
+    public void proxiesOpenRouteUpstream() {
+        APIGatewayProxyResponseEvent response = apply("/open/ping");
+
+        assertThat(response.getStatusCode()).isEqualTo(200);
+        assertThat(response.getBody()).isEqualTo("{\"path\":\"/open/ping\"}");
+    }
+
+    @Test
+    public void tokenRouteGoesThroughValidation() {
+        APIGatewayProxyResponseEvent response = apply("/member/profile");
+
+        assertThat(response.getStatusCode()).isEqualTo(401);
+    }
+}
@@ -0,0 +1,100 @@
+package com.indivaragroup.bpi.vybe.awsgateway.header;
+
+import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyRequestEvent;
+import com.indivaragroup.bpi.vybe.awsgateway.context.RequestContext;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class HeaderFilterTest {
+
+    private HeaderFilter filter;
+
+    @Before
+    public void setUp() {
+        filter = new HeaderFilter();
+        ReflectionTestUtils.setField(filter, "extraDenied", new String[]{"X-Debug"});
+        ReflectionTestUtils.setField(filter, "allowed", new String[0]);
+        ReflectionTestUtils.setField(filter, "renames", new String[]{"X-Client-Version:X-App-Version"});
+        ReflectionTestUtils.setField(filter, "injections", new String[]{"X-Gateway:aws"});
+        ReflectionTestUtils.setField(filter, "requestIdHeader", "X-Request-Id");
+        ReflectionTestUtils.setField(filter, "traceContext", true);
+    }
+
+    private Map<String, String> filter(Map<String, String> headers) {
+        filter.compile();
+        return filter.filter(headers, context());
+    }
+
+    private static RequestContext context() {
+        return RequestContext.start(new APIGatewayProxyRequestEvent().withHttpMethod("GET").withPath("/member"));
+    }
+
+    private static Map<String, String> headers(String... namesAndValues) {
+        Map<String, String> headers = new HashMap<>();
+        for (int i = 0; i < namesAndValues.length; i += 2) {
+            headers.put(namesAndValues[i], namesAndValues[i + 1]);
+        }
+        return headers;
+    }
+
+    @Test
+    public void deniedHeadersAreDroppedInAnyLetterCase() {
+        Map<String, String> filtered = filter(headers("x-forwarded-for", "10.0.0.1", "X-DEBUG", "1",
+                                                      "Authorization", "Bearer a"));
+
+        assertThat(filtered).containsEntry("Authorization", "Bearer a")
+                .doesNotContainKeys("x-forwarded-for", "X-DEBUG");
+    }
+
+    @Test
+    public void allowListKeepsOnlyTheNamedHeaders() {
+        ReflectionTestUtils.setField(filter, "allowed", new String[]{"authorization"});
+
+        Map<String, String> filtered = filter(headers("Authorization", "Bearer a", "X-Device-Id", "d1"));
+
+        assertThat(filtered).containsEntry("Authorization", "Bearer a").doesNotContainKey("X-Device-Id");
+    }
+
+    @Test
+    public void renamedHeaderKeepsItsValue() {
+        Map<String, String> filtered = filter(headers("x-client-version", "3.1"));
+
+        assertThat(filtered).containsEntry("X-App-Version", "3.1").doesNotContainKey("x-client-version");
+    }
+
+    @Test
+    public void gatewayHeadersCannotBeSuppliedByTheClient() {
+        RequestContext context = context();
+        filter.compile();
+
+        Map<String, String> filtered = filter.filter(headers("x-gateway", "spoofed", "x-request-id", "client",
+                                                             "TRACEPARENT", "00-spoofed"), context);
+
+        assertThat(filtered).containsEntry("X-Gateway", "aws")
+                .containsEntry("X-Request-Id", context.getRequestId())
+                .containsEntry("traceparent", context.traceparent())
+                .doesNotContainKeys("x-gateway", "x-request-id", "TRACEPARENT");
+    }
+
+    @Test
+    public void acceptEncodingIsGzipWhenTheClientAcceptsIt() {
+        assertThat(filter(headers("accept-encoding", "br, gzip;q=0.8"))).containsEntry("Accept-Encoding", "gzip")
+                .doesNotContainKey("accept-encoding");
+        assertThat(filter(headers("Accept-Encoding", "*"))).containsEntry("Accept-Encoding", "gzip");
+    }
+
+    @Test
+    public void acceptEncodingIsIdentityOtherwise() {
+        assertThat(filter(headers("Accept-Encoding", "br, deflate"))).containsEntry("Accept-Encoding", "identity");
+        assertThat(filter(headers("Accept-Encoding", "gzip;q=0"))).containsEntry("Accept-Encoding", "identity");
+        assertThat(filter(Collections.emptyMap())).containsEntry("Accept-Encoding", "identity");
+        assertThat(filter.filter(null, null)).containsOnlyKeys("X-Gateway", "Accept-Encoding");
+    }
+}
@@ -0,0 +1,85 @@
+package com.indivaragroup.bpi.vybe.awsgateway.logging;
+
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyRequestEvent;
+import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyResponseEvent;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.indivaragroup.bpi.vybe.awsgateway.context.RequestContext;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.slf4j.LoggerFactory;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class AccessLoggerTest {
+
+    private final Logger accessLog = (Logger) LoggerFactory.getLogger("ACCESS");
+    private final ListAppender<ILoggingEvent> appender = new ListAppender<>();
+    private AccessLogger accessLogger;
+
+    @Before
+    public void setUp() {
+        accessLogger = new AccessLogger();
+        ReflectionTestUtils.setField(accessLogger, "enabled", true);
+        ReflectionTestUtils.setField(accessLogger, "debugSampleRate", 1.0);
+        appender.start();
+        accessLog.addAppender(appender);
+    }
+
+    @After
+    public void tearDown() {
+        accessLog.detachAppender(appender);
+    }
+
+    private static RequestContext context(String path) {
+        RequestContext context = RequestContext.start(new APIGatewayProxyRequestEvent().withHttpMethod("GET").withPath(path));
+        context.setRoute("/member");
+        return context;
+    }
+
+    @Test
+    public void lineIsValidJsonWithEscapedValues() throws Exception {
+        RequestContext context = context("/member/\"quoted\"\\\n");
+
+        accessLogger.log(context, new APIGatewayProxyResponseEvent().withStatusCode(201).withBody("created"));
+
+        assertThat(appender.list).hasSize(1);
+        JsonNode line = new ObjectMapper().readTree(appender.list.get(0).getFormattedMessage());
+        assertThat(line.get("path").asText()).isEqualTo("/member/\"quoted\"\\\n");
+        assertThat(line.get("route").asText()).isEqualTo("/member");
+        assertThat(line.get("status").asInt()).isEqualTo(201);
+        assertThat(line.get("bytesOut").asInt()).isEqualTo(7);
+        assertThat(line.get("requestId").asText()).isEqualTo(context.getRequestId());
+        assertThat(line.has("upstreamMs")).isFalse();
+    }
+
+    @Test
+    public void outcomeIsRecordedEvenWhenNoLineIsWritten() {
+        ReflectionTestUtils.setField(accessLogger, "enabled", false);
+        RequestContext context = context("/member");
+
+        accessLogger.log(context, new APIGatewayProxyResponseEvent().withStatusCode(503));
+
+        assertThat(appender.list).isEmpty();
+        assertThat(context.getStatus()).isEqualTo(503);
+        assertThat(context.getBytesOut()).isZero();
+    }
+
+    @Test
+    public void debugSamplingNeedsDebugEnabledAndTheRate() {
+        org.slf4j.Logger debugLogger = mock(org.slf4j.Logger.class);
+        when(debugLogger.isDebugEnabled()).thenReturn(true);
+
+        assertThat(accessLogger.sampleDebug(debugLogger)).isTrue();
+        assertThat(accessLogger.sampleDebug(mock(org.slf4j.Logger.class))).isFalse();
+        ReflectionTestUtils.setField(accessLogger, "debugSampleRate", 0.0);
+        assertThat(accessLogger.sampleDebug(debugLogger)).isFalse();
+    }
+}
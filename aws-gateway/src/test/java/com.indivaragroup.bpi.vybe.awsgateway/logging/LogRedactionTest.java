@@ -0,0 +1,38 @@
+package com.indivaragroup.bpi.vybe.awsgateway.logging;
+
+import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyRequestEvent;
+import org.junit.Test;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class LogRedactionTest {
+
+    private static Map<String, String> headers() {
+        Map<String, String> headers = new LinkedHashMap<>();
+        headers.put("AUTHORIZATION", "Bearer secret-token");
+        headers.put("cookie", "session=secret");
+        headers.put("X-Device-Id", "d1");
+        return headers;
+    }
+
+    @Test
+    public void sensitiveHeadersAreMaskedInAnyLetterCase() {
+        assertThat(LogRedaction.headers(headers()).toString())
+                .isEqualTo("{AUTHORIZATION=***, cookie=***, X-Device-Id=d1}");
+        assertThat(LogRedaction.headers(null).toString()).isEqualTo("{}");
+    }
+
+    @Test
+    public void eventRendersTheBodySizeOnly() {
+        APIGatewayProxyRequestEvent event = new APIGatewayProxyRequestEvent().withHttpMethod("POST")
+                .withPath("/member").withHeaders(headers()).withBody("{\"pin\":\"123456\"}");
+
+        String rendered = LogRedaction.event(event).toString();
+
+        assertThat(rendered).startsWith("POST /member ").contains("X-Device-Id=d1").endsWith("body=16 chars")
+                .doesNotContain("123456").doesNotContain("secret");
+    }
+}
@@ -0,0 +1,185 @@
+package com.indivaragroup.bpi.vybe.awsgateway.metrics;
+
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+import com.amazonaws.services.lambda.runtime.Context;
+import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyRequestEvent;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.indivaragroup.bpi.vybe.awsgateway.context.RequestContext;
+import com.indivaragroup.bpi.vybe.awsgateway.serverless.LambdaContextHolder;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class GatewayMetricsTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Logger metricsLog = (Logger) LoggerFactory.getLogger("METRICS");
+    private final ListAppender<ILoggingEvent> appender = new ListAppender<>();
+    private final List<ComponentStats> components = new ArrayList<>();
+    private GatewayMetrics metrics;
+
+    @Before
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+        ObjectProvider<RequestMetricsListener> listeners = mock(ObjectProvider.class);
+        when(listeners.orderedStream()).thenReturn(Stream.empty());
+        ObjectProvider<ComponentStats> provider = mock(ObjectProvider.class);
+        when(provider.orderedStream()).thenAnswer(invocation -> components.stream());
+        metrics = new GatewayMetrics(mock(ObjectProvider.class), listeners, provider);
+        ReflectionTestUtils.setField(metrics, "enabled", true);
+        ReflectionTestUtils.setField(metrics, "emfEnabled", true);
+        ReflectionTestUtils.setField(metrics, "namespace", "AwsGateway");
+        ReflectionTestUtils.setField(metrics, "flushIntervalMs", 3_600_000L);
+        ReflectionTestUtils.setField(metrics, "maxValues", 100);
+        // The first record after construction is due for an interval flush; start a fresh window
+        metrics.record(context("/warmup", 200));
+        appender.start();
+        metricsLog.addAppender(appender);
+    }
+
+    @After
+    public void tearDown() {
+        metricsLog.detachAppender(appender);
+        LambdaContextHolder.clear();
+    }
+
+    private static RequestContext context(String route, int status) {
+        RequestContext context = RequestContext.start(new APIGatewayProxyRequestEvent().withHttpMethod("GET").withPath(route));
+        context.setRoute(route);
+        context.setStatus(status);
+        return context;
+    }
+
+    private List<JsonNode> lines() throws Exception {
+        List<JsonNode> lines = new ArrayList<>();
+        for (ILoggingEvent event : appender.list) {
+            lines.add(objectMapper.readTree(event.getFormattedMessage()));
+        }
+        return lines;
+    }
+
+    @Test
+    public void samplesStayBufferedOutsideLambdaUntilTheRouteIsFull() throws Exception {
+        for (int i = 0; i < 99; i++) {
+            metrics.record(context("/member", 200));
+        }
+        metrics.endInvocation();
+        assertThat(appender.list).isEmpty();
+
+        metrics.record(context("/member", 503));
+
+        List<JsonNode> lines = lines();
+        assertThat(lines).hasSize(1);
+        assertThat(lines.get(0).get("Route").asText()).isEqualTo("/member");
+        assertThat(lines.get(0).get("Requests").asInt()).isEqualTo(100);
+        assertThat(lines.get(0).get("ServerErrors").asInt()).isEqualTo(1);
+        assertThat(lines.get(0).get("LatencyMs")).hasSize(100);
+    }
+
+    @Test
+    public void endOfLambdaInvocationWritesEveryRoute() throws Exception {
+        LambdaContextHolder.set(mock(Context.class));
+        metrics.record(context("/member", 200));
+        metrics.record(context("/member", 404));
+        metrics.record(context("/transactions/**", 200));
+
+        metrics.endInvocation();
+
+        List<JsonNode> lines = lines();
+        assertThat(lines).hasSize(2);
+        for (JsonNode line : lines) {
+            int requests = line.get("Requests").asInt();
+            assertThat(line.get("LatencyMs")).hasSize(requests);
+            if ("/member".equals(line.get("Route").asText())) {
+                assertThat(requests).isEqualTo(2);
+                assertThat(line.get("ClientErrors").asInt()).isEqualTo(1);
+            } else {
+                assertThat(requests).isEqualTo(1);
+            }
+        }
+        appender.list.clear();
+        metrics.endInvocation();
+        assertThat(appender.list).isEmpty();
+    }
+
+    @Test
+    public void concurrentRecordsAreEachWrittenOnce() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int thread = 0; thread < 8; thread++) {
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < 250; i++) {
+                        metrics.record(context("/member", 200));
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        LambdaContextHolder.set(mock(Context.class));
+        metrics.endInvocation();
+
+        int total = 0;
+        for (JsonNode line : lines()) {
+            assertThat(line.get("LatencyMs").size()).isEqualTo(line.get("Requests").asInt()).isLessThanOrEqualTo(100);
+            total += line.get("Requests").asInt();
+        }
+        assertThat(total).isEqualTo(2000);
+    }
+
+    @Test
+    public void flushWritesComponentCountersPerUpstream() throws Exception {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("hits", 3L);
+        stats.put("state", "open");
+        stats.put("retries", Collections.singletonMap("api.internal", 2));
+        components.add(new ComponentStats() {
+            @Override
+            public String getStatsName() {
+                return "Test\"Component";
+            }
+
+            @Override
+            public Map<String, ?> getStats() {
+                return stats;
+            }
+        });
+        LambdaContextHolder.set(mock(Context.class));
+
+        metrics.endInvocation();
+
+        List<JsonNode> lines = lines();
+        assertThat(lines).hasSize(2);
+        assertThat(lines.get(0).get("Component").asText()).isEqualTo("Test\"Component");
+        assertThat(lines.get(0).get("Hits").asLong()).isEqualTo(3);
+        assertThat(lines.get(0).has("State")).isFalse();
+        assertThat(lines.get(0).has("Upstream")).isFalse();
+        assertThat(lines.get(1).get("Upstream").asText()).isEqualTo("api.internal");
+        assertThat(lines.get(1).get("Retries").asInt()).isEqualTo(2);
+        assertThat(lines.get(1).at("/_aws/CloudWatchMetrics/0/Dimensions/0")).hasSize(2);
+    }
+}
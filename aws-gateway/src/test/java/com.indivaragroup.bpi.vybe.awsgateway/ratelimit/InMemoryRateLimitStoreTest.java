@@ -0,0 +1,78 @@
+package com.indivaragroup.bpi.vybe.awsgateway.ratelimit;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class InMemoryRateLimitStoreTest {
+
+    private InMemoryRateLimitStore store;
+
+    @Before
+    public void setUp() {
+        store = new InMemoryRateLimitStore();
+        ReflectionTestUtils.setField(store, "maxKeys", 100);
+    }
+
+    @Test
+    public void burstIsAllowedThenRejectedWithWaitForOneToken() {
+        for (int i = 0; i < 5; i++) {
+            assertThat(store.acquire("/member|1.2.3.4", 1, 5)).isZero();
+        }
+
+        long wait = store.acquire("/member|1.2.3.4", 1, 5);
+
+        assertThat(wait).isPositive().isLessThanOrEqualTo(TimeUnit.SECONDS.toNanos(1));
+    }
+
+    @Test
+    public void tokensRefillAtTheConfiguredRate() throws Exception {
+        for (int i = 0; i < 2; i++) {
+            assertThat(store.acquire("/member|1.2.3.4", 20, 2)).isZero();
+        }
+        assertThat(store.acquire("/member|1.2.3.4", 20, 2)).isPositive();
+
+        Thread.sleep(60);
+
+        assertThat(store.acquire("/member|1.2.3.4", 20, 2)).isZero();
+        assertThat(store.acquire("/member|1.2.3.4", 20, 2)).isPositive();
+    }
+
+    @Test
+    public void rejectedAttemptsDoNotConsumeTokens() throws Exception {
+        assertThat(store.acquire("/member|1.2.3.4", 20, 1)).isZero();
+        for (int i = 0; i < 10; i++) {
+            assertThat(store.acquire("/member|1.2.3.4", 20, 1)).isPositive();
+        }
+
+        Thread.sleep(60);
+
+        assertThat(store.acquire("/member|1.2.3.4", 20, 1)).isZero();
+    }
+
+    @Test
+    public void keysHaveSeparateBuckets() {
+        assertThat(store.acquire("/member|1.2.3.4", 1, 1)).isZero();
+        assertThat(store.acquire("/member|1.2.3.4", 1, 1)).isPositive();
+
+        assertThat(store.acquire("/member|5.6.7.8", 1, 1)).isZero();
+        assertThat(store.size()).isEqualTo(2);
+    }
+
+    @Test
+    public void activeKeysBeyondMaxKeysShareTheRouteOverflowBucket() {
+        ReflectionTestUtils.setField(store, "maxKeys", 2);
+        store.acquire("/member|a", 1, 1);
+        store.acquire("/member|b", 1, 1);
+
+        assertThat(store.acquire("/member|c", 1, 1)).isZero();
+        assertThat(store.acquire("/member|d", 1, 1)).isPositive();
+
+        assertThat(store.getOverflows()).isEqualTo(2);
+        assertThat(store.size()).isEqualTo(3);
+    }
+}
@@ -0,0 +1,87 @@
+package com.indivaragroup.bpi.vybe.awsgateway.ratelimit;
+
+import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyRequestEvent;
+import com.indivaragroup.bpi.vybe.awsgateway.context.RequestContext;
+import com.indivaragroup.bpi.vybe.awsgateway.routing.Route;
+import com.indivaragroup.bpi.vybe.awsgateway.routing.RoutePolicy;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Collections;
+
+import static com.indivaragroup.bpi.vybe.awsgateway.routing.TestRoutes.route;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class RateLimiterTest {
+
+    private RateLimiter rateLimiter;
+
+    @Before
+    public void setUp() {
+        InMemoryRateLimitStore store = new InMemoryRateLimitStore();
+        ReflectionTestUtils.setField(store, "maxKeys", 100);
+        rateLimiter = new RateLimiter(store);
+        ReflectionTestUtils.setField(rateLimiter, "enabled", true);
+        ReflectionTestUtils.setField(rateLimiter, "openRoutePerSecond", 5.0);
+        ReflectionTestUtils.setField(rateLimiter, "openRouteBurst", 20);
+        ReflectionTestUtils.setField(rateLimiter, "openRouteKey", "ip");
+        ReflectionTestUtils.setField(rateLimiter, "containers", 1);
+        ReflectionTestUtils.setField(rateLimiter, "userHeader", "X-User-Id");
+        ReflectionTestUtils.setField(rateLimiter, "deviceHeader", "X-Device-Id");
+    }
+
+    @Test
+    public void invalidOptionsFailValidation() {
+        assertThatThrownBy(() -> rateLimiter.validate(route(RateLimiter.PER_SECOND_OPTION, "ten")))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("rate-limit.per-second=ten");
+        assertThatThrownBy(() -> rateLimiter.validate(route(RateLimiter.PER_SECOND_OPTION, "-1")))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> rateLimiter.validate(route(RateLimiter.BURST_OPTION, "0")))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("rate-limit.burst=0");
+        assertThatThrownBy(() -> rateLimiter.validate(route(RateLimiter.KEY_OPTION, "session")))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("ip, device or user");
+    }
+
+    @Test
+    public void validOptionsPassValidation() {
+        rateLimiter.validate(route(RateLimiter.PER_SECOND_OPTION, " 2.5 "));
+        rateLimiter.validate(route(RateLimiter.KEY_OPTION, "User"));
+        rateLimiter.validate(route(RateLimiter.PER_SECOND_OPTION, "0"));
+    }
+
+    @Test
+    public void routeLimitIsAppliedPerClient() {
+        Route route = Route.builder().pattern("/member/**").policy(RoutePolicy.TOKEN)
+                .option(RateLimiter.PER_SECOND_OPTION, "1").option(RateLimiter.BURST_OPTION, "2").build();
+        APIGatewayProxyRequestEvent event = new APIGatewayProxyRequestEvent().withHttpMethod("GET").withPath("/member/1");
+        RequestContext context = RequestContext.start(event);
+
+        assertThat(rateLimiter.checkBeforeValidation(route, event, context)).isNull();
+        assertThat(rateLimiter.checkBeforeValidation(route, event, context)).isNull();
+        assertThat(rateLimiter.checkBeforeValidation(route, event, context).getStatusCode()).isEqualTo(429);
+        assertThat(rateLimiter.checkBeforeValidation(route, event, context).getHeaders()).containsKey("Retry-After");
+    }
+
+    @Test
+    public void userLimitIsKeyedOnTheValidatedPrincipal() {
+        Route route = Route.builder().pattern("/member/**").policy(RoutePolicy.TOKEN)
+                .option(RateLimiter.PER_SECOND_OPTION, "1").option(RateLimiter.BURST_OPTION, "1")
+                .option(RateLimiter.KEY_OPTION, "user").build();
+        APIGatewayProxyRequestEvent first = new APIGatewayProxyRequestEvent().withHttpMethod("GET").withPath("/member/1")
+                .withHeaders(Collections.singletonMap("X-User-Id", "one"));
+        APIGatewayProxyRequestEvent second = new APIGatewayProxyRequestEvent().withHttpMethod("GET").withPath("/member/1")
+                .withHeaders(Collections.singletonMap("X-User-Id", "two"));
+        RequestContext context = RequestContext.start(first);
+        context.setPrincipal(rateLimiter.principal(Collections.singletonMap("x-user-id", "alice")));
+
+        assertThat(context.getPrincipal()).isEqualTo("alice");
+        assertThat(rateLimiter.checkBeforeValidation(route, first, context)).isNull();
+        assertThat(rateLimiter.checkAfterValidation(route, first, context)).isNull();
+        assertThat(rateLimiter.checkAfterValidation(route, second, context).getStatusCode()).isEqualTo(429);
+    }
+}
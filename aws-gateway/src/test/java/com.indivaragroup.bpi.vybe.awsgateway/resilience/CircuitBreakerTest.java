@@ -0,0 +1,86 @@
+package com.indivaragroup.bpi.vybe.awsgateway.resilience;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class CircuitBreakerTest {
+
+    private static CircuitBreaker open(CircuitBreaker breaker) {
+        while (breaker.getState() != CircuitBreaker.State.OPEN) {
+            assertThat(breaker.tryAcquirePermission()).isTrue();
+            breaker.onFailure();
+        }
+        return breaker;
+    }
+
+    @Test
+    public void opensAfterConsecutiveFailuresAndRejects() {
+        CircuitBreaker breaker = new CircuitBreaker(3, 60_000, 1);
+
+        breaker.onFailure();
+        breaker.onFailure();
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+        breaker.onFailure();
+
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+        assertThat(breaker.tryAcquirePermission()).isFalse();
+        assertThat(breaker.remainingOpenMillis()).isPositive();
+        assertThat(breaker.getOpenedCount()).isEqualTo(1);
+        assertThat(breaker.getRejectedCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void successResetsTheFailureCount() {
+        CircuitBreaker breaker = new CircuitBreaker(2, 60_000, 1);
+
+        breaker.onFailure();
+        breaker.onSuccess();
+        breaker.onFailure();
+
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+    }
+
+    @Test
+    public void halfOpenLimitsTrialCallsAndClosesOnSuccess() throws Exception {
+        CircuitBreaker breaker = open(new CircuitBreaker(1, 20, 2));
+        Thread.sleep(40);
+
+        assertThat(breaker.tryAcquirePermission()).isTrue();
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.HALF_OPEN);
+        assertThat(breaker.remainingOpenMillis()).isZero();
+        assertThat(breaker.tryAcquirePermission()).isTrue();
+        assertThat(breaker.tryAcquirePermission()).isFalse();
+
+        breaker.onSuccess();
+
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+        assertThat(breaker.tryAcquirePermission()).isTrue();
+    }
+
+    @Test
+    public void halfOpenFailureReopens() throws Exception {
+        CircuitBreaker breaker = open(new CircuitBreaker(3, 20, 1));
+        Thread.sleep(40);
+
+        assertThat(breaker.tryAcquirePermission()).isTrue();
+        breaker.onFailure();
+
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+        assertThat(breaker.tryAcquirePermission()).isFalse();
+        assertThat(breaker.getOpenedCount()).isEqualTo(2);
+    }
+
+    @Test
+    public void releasedPermissionCanBeReacquiredWhileHalfOpen() throws Exception {
+        CircuitBreaker breaker = open(new CircuitBreaker(1, 20, 1));
+        Thread.sleep(40);
+
+        assertThat(breaker.tryAcquirePermission()).isTrue();
+        assertThat(breaker.tryAcquirePermission()).isFalse();
+        breaker.releasePermission();
+
+        assertThat(breaker.tryAcquirePermission()).isTrue();
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.HALF_OPEN);
+    }
+}
@@ -0,0 +1,123 @@
+package com.indivaragroup.bpi.vybe.awsgateway.resilience;
+
+import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyResponseEvent;
+import com.indivaragroup.bpi.vybe.awsgateway.response.UpstreamResponseMapper;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class UpstreamResilienceTest {
+
+    private static final String URL = "http://upstream:8080/member";
+
+    private UpstreamResilience resilience;
+
+    @Before
+    public void setUp() {
+        resilience = new UpstreamResilience();
+        ReflectionTestUtils.setField(resilience, "enabled", true);
+        ReflectionTestUtils.setField(resilience, "failureThreshold", 1);
+        ReflectionTestUtils.setField(resilience, "openMillis", 20L);
+        ReflectionTestUtils.setField(resilience, "halfOpenPermits", 1);
+        ReflectionTestUtils.setField(resilience, "maxConcurrent", 4);
+        ReflectionTestUtils.setField(resilience, "bulkheadMaxWaitMillis", 10L);
+        ReflectionTestUtils.setField(resilience, "maxAttempts", 3);
+        ReflectionTestUtils.setField(resilience, "backoffBaseMillis", 1L);
+        ReflectionTestUtils.setField(resilience, "backoffMaxMillis", 1L);
+        ReflectionTestUtils.setField(resilience, "defaultDeadlineMillis", 5_000L);
+        ReflectionTestUtils.setField(resilience, "minAttemptMillis", 10L);
+        ReflectionTestUtils.setField(resilience, "connectTimeoutMs", 1_000);
+        ReflectionTestUtils.setField(resilience, "socketTimeoutMs", 1_000);
+        ReflectionTestUtils.setField(resilience, "poolAcquireTimeoutMs", 1_000);
+    }
+
+    private static APIGatewayProxyResponseEvent status(int statusCode) {
+        return new APIGatewayProxyResponseEvent().withStatusCode(statusCode);
+    }
+
+    private String breakerState() {
+        Map<String, Object> host = resilience.getMetrics().get("upstream:8080");
+        return (String) host.get("breakerState");
+    }
+
+    private void openThenWait() throws InterruptedException {
+        resilience.execute(URL, "POST", config -> status(503));
+        assertThat(breakerState()).isEqualTo("OPEN");
+        Thread.sleep(40);
+    }
+
+    @Test
+    public void idempotentCallIsRetriedOnUpstreamFailure() {
+        ReflectionTestUtils.setField(resilience, "failureThreshold", 5);
+        AtomicInteger attempts = new AtomicInteger();
+
+        APIGatewayProxyResponseEvent response = resilience.execute(URL, "GET",
+                config -> status(attempts.incrementAndGet() < 3 ? 502 : 200));
+
+        assertThat(response.getStatusCode()).isEqualTo(200);
+        assertThat(attempts).hasValue(3);
+    }
+
+    @Test
+    public void gatewayErrorIsNeitherRetriedNorCounted() {
+        AtomicInteger attempts = new AtomicInteger();
+
+        APIGatewayProxyResponseEvent response = resilience.execute(URL, "GET", config -> {
+            attempts.incrementAndGet();
+            return UpstreamResponseMapper.gatewayError(502, "Upstream response is too large");
+        });
+
+        assertThat(response.getStatusCode()).isEqualTo(502);
+        assertThat(attempts).hasValue(1);
+        assertThat(breakerState()).isEqualTo("CLOSED");
+    }
+
+    @Test
+    public void throwingCallReturnsItsHalfOpenPermit() throws Exception {
+        openThenWait();
+
+        APIGatewayProxyResponseEvent failed = resilience.execute(URL, "GET", config -> {
+            throw new IllegalStateException("boom");
+        });
+        APIGatewayProxyResponseEvent next = resilience.execute(URL, "GET", config -> status(200));
+
+        assertThat(failed.getStatusCode()).isEqualTo(502);
+        assertThat(UpstreamResponseMapper.isGatewayError(failed)).isTrue();
+        assertThat(next.getStatusCode()).isEqualTo(200);
+        assertThat(breakerState()).isEqualTo("CLOSED");
+    }
+
+    @Test
+    public void asyncCallThrowingSynchronouslyReturnsItsHalfOpenPermit() throws Exception {
+        openThenWait();
+
+        CompletableFuture<APIGatewayProxyResponseEvent> failed = resilience.executeAsync(URL, timeoutMillis -> {
+            throw new IllegalStateException("boom");
+        });
+        CompletableFuture<APIGatewayProxyResponseEvent> next =
+                resilience.executeAsync(URL, timeoutMillis -> CompletableFuture.completedFuture(status(200)));
+
+        assertThat(failed.join().getStatusCode()).isEqualTo(502);
+        assertThat(next.join().getStatusCode()).isEqualTo(200);
+        assertThat(breakerState()).isEqualTo("CLOSED");
+    }
+
+    @Test
+    public void statsKeepPerHostValuesUnderTheirMetric() {
+        resilience.execute(URL, "POST", config -> status(503));
+
+        Map<String, Object> stats = resilience.getStats();
+
+        assertThat(stats).containsEntry("retries", 0L).containsEntry("deadlineExceeded", 0L);
+        assertThat(stats.get("breakerOpen")).isEqualTo(Collections.singletonMap("upstream:8080", 1L));
+        assertThat(stats.get("breakerOpened")).isEqualTo(Collections.singletonMap("upstream:8080", 1L));
+        assertThat(stats.get("bulkheadInFlight")).isEqualTo(Collections.singletonMap("upstream:8080", 0L));
+    }
+}
@@ -0,0 +1,116 @@
+package com.indivaragroup.bpi.vybe.awsgateway.response;
+
+import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyResponseEvent;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.zip.GZIPOutputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class UpstreamResponseMapperTest {
+
+    private static final Map<String, String> ACCEPTS_GZIP = Collections.singletonMap("Accept-Encoding", "gzip");
+    private static final Map<String, String> IDENTITY_ONLY = Collections.singletonMap("Accept-Encoding", "identity");
+
+    private UpstreamResponseMapper mapper;
+
+    @Before
+    public void setUp() {
+        mapper = new UpstreamResponseMapper();
+        ReflectionTestUtils.setField(mapper, "maxBytes", 1024L);
+        ReflectionTestUtils.setField(mapper, "gzipEnabled", true);
+        ReflectionTestUtils.setField(mapper, "compressMinBytes", 64);
+    }
+
+    @Test
+    public void textBodyIsDecodedWithItsCharset() throws IOException {
+        byte[] body = "café".getBytes(StandardCharsets.ISO_8859_1);
+
+        APIGatewayProxyResponseEvent response = map(body, IDENTITY_ONLY, "Content-Type", "text/plain; charset=ISO-8859-1");
+
+        assertThat(response.getStatusCode()).isEqualTo(200);
+        assertThat(response.getBody()).isEqualTo("café");
+        assertThat(response.getIsBase64Encoded()).isNull();
+    }
+
+    @Test
+    public void gzipIsDecodedForClientsThatDoNotAcceptIt() throws IOException {
+        APIGatewayProxyResponseEvent response = map(gzip("{\"ok\":true}"), IDENTITY_ONLY,
+                                                    "Content-Type", "application/json", "Content-Encoding", "gzip");
+
+        assertThat(response.getBody()).isEqualTo("{\"ok\":true}");
+        assertThat(response.getHeaders()).doesNotContainKey("Content-Encoding");
+    }
+
+    @Test
+    public void gzipIsPassedThroughToClientsThatAcceptIt() throws IOException {
+        byte[] body = gzip("{\"ok\":true}");
+
+        APIGatewayProxyResponseEvent response = map(body, ACCEPTS_GZIP,
+                                                    "Content-Type", "application/json", "Content-Encoding", "gzip");
+
+        assertThat(response.getIsBase64Encoded()).isTrue();
+        assertThat(Base64.getDecoder().decode(response.getBody())).isEqualTo(body);
+        assertThat(response.getHeaders()).containsEntry("Content-Encoding", "gzip");
+    }
+
+    @Test
+    public void unsupportedContentEncodingIsRejected() throws IOException {
+        APIGatewayProxyResponseEvent response = map(new byte[]{1, 2, 3}, ACCEPTS_GZIP,
+                                                    "Content-Type", "application/json", "Content-Encoding", "br");
+
+        assertThat(response.getStatusCode()).isEqualTo(502);
+        assertThat(UpstreamResponseMapper.isGatewayError(response)).isTrue();
+    }
+
+    @Test
+    public void identityContentEncodingIsDropped() throws IOException {
+        APIGatewayProxyResponseEvent response = map("plain".getBytes(StandardCharsets.UTF_8), IDENTITY_ONLY,
+                                                    "Content-Type", "text/plain", "Content-Encoding", "identity");
+
+        assertThat(response.getBody()).isEqualTo("plain");
+        assertThat(response.getHeaders()).doesNotContainKey("Content-Encoding");
+    }
+
+    @Test
+    public void oversizedBodyIsAGatewayError() throws IOException {
+        APIGatewayProxyResponseEvent response = map(new byte[2048], IDENTITY_ONLY, "Content-Type", "text/plain");
+
+        assertThat(response.getStatusCode()).isEqualTo(502);
+        assertThat(UpstreamResponseMapper.isGatewayError(response)).isTrue();
+    }
+
+    @Test
+    public void cookiesGoToMultiValueHeadersAndHopByHopHeadersAreDropped() throws IOException {
+        APIGatewayProxyResponseEvent response = map(new byte[0], IDENTITY_ONLY,
+                                                    "Set-Cookie", "a=1", "Set-Cookie", "b=2",
+                                                    "Connection", "keep-alive", "X-Trace", "t");
+
+        assertThat(response.getMultiValueHeaders().get("Set-Cookie")).containsExactly("a=1", "b=2");
+        assertThat(response.getHeaders()).containsOnlyKeys("X-Trace");
+    }
+
+    private APIGatewayProxyResponseEvent map(byte[] body, Map<String, String> requestHeaders, String... headers)
+            throws IOException {
+        List<Map.Entry<String, String>> upstreamHeaders = new ArrayList<>();
+        for (int i = 0; i < headers.length; i += 2) {
+            upstreamHeaders.add(new AbstractMap.SimpleImmutableEntry<>(headers[i], headers[i + 1]));
+        }
+        return mapper.toResponseEvent(200, upstreamHeaders, new ByteArrayInputStream(body), -1, requestHeaders);
+    }
+
+    private static byte[] gzip(String text) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(text.getBytes(StandardCharsets.UTF_8));
+        }
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,150 @@
+package com.indivaragroup.bpi.vybe.awsgateway.routing;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class RouteTableTest {
+
+    private static final Route DEFAULT = route("/**", RoutePolicy.TOKEN);
+
+    private static Route route(String pattern, RoutePolicy policy) {
+        return Route.builder().pattern(pattern).policy(policy).targetBaseUrl("http://upstream").build();
+    }
+
+    private static RouteTable table(Route... routes) {
+        return new RouteTable(Arrays.asList(routes), DEFAULT);
+    }
+
+    @Test
+    public void unmatchedPathFallsBackToDefaultRoute() {
+        RouteTable table = table(route("/auth/login", RoutePolicy.NONE));
+
+        assertThat(table.match("/member/profile")).isSameAs(DEFAULT);
+        assertThat(table.match("/")).isSameAs(DEFAULT);
+        assertThat(table.getDefaultRoute()).isSameAs(DEFAULT);
+    }
+
+    @Test
+    public void exactPatternMatchesOnlyThatPath() {
+        Route login = route("/auth/login", RoutePolicy.NONE);
+        RouteTable table = table(login);
+
+        assertThat(table.match("/auth/login")).isSameAs(login);
+        assertThat(table.match("/auth/login/extra")).isSameAs(DEFAULT);
+        assertThat(table.match("/auth")).isSameAs(DEFAULT);
+    }
+
+    @Test
+    public void prefixPatternMatchesItsBaseAndSubPaths() {
+        Route transactions = route("/transactions/**", RoutePolicy.SIGNATURE);
+        RouteTable table = table(transactions);
+
+        assertThat(table.match("/transactions")).isSameAs(transactions);
+        assertThat(table.match("/transactions/")).isSameAs(transactions);
+        assertThat(table.match("/transactions/add-money/ng")).isSameAs(transactions);
+        assertThat(table.match("/transactionsx")).isSameAs(DEFAULT);
+    }
+
+    @Test
+    public void templateVariableMatchesExactlyOneSegment() {
+        Route member = route("/member/{id}", RoutePolicy.TOKEN);
+        RouteTable table = table(member);
+
+        assertThat(table.match("/member/42")).isSameAs(member);
+        assertThat(table.match("/member")).isSameAs(DEFAULT);
+        assertThat(table.match("/member/42/cards")).isSameAs(DEFAULT);
+    }
+
+    @Test
+    public void exactWinsOverTemplateAndTemplateOverPrefix() {
+        Route prefix = route("/member/**", RoutePolicy.TOKEN);
+        Route template = route("/member/{id}", RoutePolicy.TOKEN);
+        Route exact = route("/member/register", RoutePolicy.NONE);
+        RouteTable table = table(prefix, template, exact);
+
+        assertThat(table.match("/member/register")).isSameAs(exact);
+        assertThat(table.match("/member/42")).isSameAs(template);
+        assertThat(table.match("/member/42/cards")).isSameAs(prefix);
+        assertThat(table.match("/member")).isSameAs(prefix);
+    }
+
+    @Test
+    public void longestPrefixWins() {
+        Route shortPrefix = route("/transactions/**", RoutePolicy.TOKEN);
+        Route longPrefix = route("/transactions/add-money/**", RoutePolicy.SIGNATURE);
+        RouteTable table = table(shortPrefix, longPrefix);
+
+        assertThat(table.match("/transactions/history")).isSameAs(shortPrefix);
+        assertThat(table.match("/transactions/add-money")).isSameAs(longPrefix);
+        assertThat(table.match("/transactions/add-money/ng/confirm")).isSameAs(longPrefix);
+    }
+
+    @Test
+    public void literalSegmentIsTriedBeforeVariableThenBacktracks() {
+        Route literal = route("/member/{id}/cards", RoutePolicy.TOKEN);
+        Route variable = route("/member/self/settings", RoutePolicy.NONE);
+        Route other = route("/member/{id}/{section}", RoutePolicy.TOKEN);
+        RouteTable table = table(literal, variable, other);
+
+        assertThat(table.match("/member/self/cards")).isSameAs(literal);
+        assertThat(table.match("/member/self/settings")).isSameAs(variable);
+        assertThat(table.match("/member/self/limits")).isSameAs(other);
+    }
+
+    @Test
+    public void repeatedSlashesAreIgnoredBetweenSegments() {
+        Route template = route("/member/{id}", RoutePolicy.TOKEN);
+        Route prefix = route("/files/**", RoutePolicy.TOKEN);
+        RouteTable table = table(template, prefix);
+
+        assertThat(table.match("//member//42")).isSameAs(template);
+        assertThat(table.match("/files//a.png")).isSameAs(prefix);
+    }
+
+    @Test
+    public void laterRouteWithSamePatternReplacesEarlierOne() {
+        Route builtIn = route("/auth/login", RoutePolicy.NONE);
+        Route configured = route("/auth/login", RoutePolicy.TOKEN);
+        RouteTable table = table(builtIn, configured);
+
+        assertThat(table.match("/auth/login")).isSameAs(configured);
+    }
+
+    @Test
+    public void templateWinsOverLongerPrefix() {
+        Route prefix = route("/a/b/**", RoutePolicy.NONE);
+        Route template = route("/a/{x}/c", RoutePolicy.TOKEN);
+        RouteTable table = table(prefix, template);
+
+        assertThat(table.match("/a/b/c")).isSameAs(template);
+        assertThat(table.match("/a/b/d")).isSameAs(prefix);
+        assertThat(table.match("/a/z/c")).isSameAs(template);
+    }
+
+    @Test
+    public void deepestPrefixWinsAcrossVariableBranches() {
+        Route literal = route("/a/b/**", RoutePolicy.NONE);
+        Route variable = route("/a/{x}/c/**", RoutePolicy.TOKEN);
+        RouteTable table = table(literal, variable);
+
+        assertThat(table.match("/a/b/c/d")).isSameAs(variable);
+        assertThat(table.match("/a/b/d")).isSameAs(literal);
+    }
+
+    @Test
+    public void dotSegmentsAreResolvedBeforeMatching() {
+        Route open = route("/open/**", RoutePolicy.NONE);
+        Route member = route("/member/**", RoutePolicy.TOKEN);
+        Route login = route("/auth/login", RoutePolicy.NONE);
+        RouteTable table = table(open, member, login);
+
+        assertThat(table.match("/open/../member/x")).isSameAs(member);
+        assertThat(table.match("/open/%2e%2E/member/x")).isSameAs(member);
+        assertThat(table.match("/open/./x")).isSameAs(open);
+        assertThat(table.match("/../../auth/login")).isSameAs(login);
+        assertThat(table.match("/auth/login/..")).isSameAs(DEFAULT);
+    }
+}
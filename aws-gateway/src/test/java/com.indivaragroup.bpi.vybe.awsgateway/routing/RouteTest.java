@@ -0,0 +1,36 @@
+package com.indivaragroup.bpi.vybe.awsgateway.routing;
+
+import org.junit.Test;
+
+import static com.indivaragroup.bpi.vybe.awsgateway.routing.TestRoutes.route;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class RouteTest {
+
+    @Test
+    public void longOptionFallsBackToDefaultWhenAbsent() {
+        assertThat(route("other", "x").getLongOption("cache.ttl-seconds", 7)).isEqualTo(7);
+        assertThat(route("cache.ttl-seconds", " 60 ").getLongOption("cache.ttl-seconds", 7)).isEqualTo(60);
+    }
+
+    @Test
+    public void malformedLongOptionNamesRouteAndOption() {
+        assertThatThrownBy(() -> route("cache.ttl-seconds", "60s").getLongOption("cache.ttl-seconds", 0))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("/member/**")
+                .hasMessageContaining("cache.ttl-seconds=60s");
+    }
+
+    @Test
+    public void booleanOptionAcceptsOnlyTrueOrFalse() {
+        assertThat(route("other", "x").getBooleanOption("cache.per-principal")).isFalse();
+        assertThat(route("cache.per-principal", "TRUE").getBooleanOption("cache.per-principal")).isTrue();
+        assertThat(route("cache.per-principal", "false").getBooleanOption("cache.per-principal")).isFalse();
+        assertThat(route("other", "x").getBooleanOption("cache.per-principal", true)).isTrue();
+        assertThat(route("cache.per-principal", "false").getBooleanOption("cache.per-principal", true)).isFalse();
+        assertThatThrownBy(() -> route("cache.per-principal", "yes").getBooleanOption("cache.per-principal"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("true or false");
+    }
+}
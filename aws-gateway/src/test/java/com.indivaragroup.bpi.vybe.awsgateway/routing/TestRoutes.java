@@ -0,0 +1,17 @@
+package com.indivaragroup.bpi.vybe.awsgateway.routing;
+
+/**
+ * Route fixtures shared by the routing and route-option tests.
+ */
+public final class TestRoutes {
+
+    private TestRoutes() {
+    }
+
+    /**
+     * A TOKEN route on {@code /member/**} with the single option {@code key=value}.
+     */
+    public static Route route(String key, String value) {
+        return Route.builder().pattern("/member/**").policy(RoutePolicy.TOKEN).option(key, value).build();
+    }
+}
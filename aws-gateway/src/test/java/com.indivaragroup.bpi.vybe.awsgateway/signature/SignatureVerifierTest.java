@@ -0,0 +1,117 @@
+package com.indivaragroup.bpi.vybe.awsgateway.signature;
+
+import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyRequestEvent;
+import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyResponseEvent;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class SignatureVerifierTest {
+
+    private static final String PATH = "/addmoney/ng";
+
+    private SignatureVerifier verifier;
+
+    @Before
+    public void setUp() {
+        SignatureKeyProvider keyProvider = new SignatureKeyProvider();
+        ReflectionTestUtils.setField(keyProvider, "inlineKeys", "k1:first-secret,k2:second-secret");
+        ReflectionTestUtils.setField(keyProvider, "keysFile", "");
+        ReflectionTestUtils.setField(keyProvider, "algorithm", "HmacSHA256");
+        ReflectionTestUtils.setField(keyProvider, "refreshMs", 60_000L);
+        keyProvider.init();
+        verifier = new SignatureVerifier(keyProvider);
+        ReflectionTestUtils.setField(verifier, "enabled", true);
+        ReflectionTestUtils.setField(verifier, "signatureHeader", "X-Signature");
+        ReflectionTestUtils.setField(verifier, "keyIdHeader", "X-Key-Id");
+        ReflectionTestUtils.setField(verifier, "timestampHeader", "X-Timestamp");
+        ReflectionTestUtils.setField(verifier, "nonceHeader", "X-Nonce");
+        ReflectionTestUtils.setField(verifier, "encoding", "hex");
+        ReflectionTestUtils.setField(verifier, "maxSkewMs", 60_000L);
+        ReflectionTestUtils.setField(verifier, "maxNonces", 100);
+        verifier.init();
+    }
+
+    @Test
+    public void signedRequestIsAcceptedOnceForItsNonce() throws Exception {
+        assertThat(verifier.verify(signed("k2", "second-secret", "n-1", "{\"amount\":10}", false))).isNull();
+
+        APIGatewayProxyResponseEvent replay = verifier.verify(signed("k2", "second-secret", "n-1", "{\"amount\":10}", false));
+
+        assertThat(replay.getStatusCode()).isEqualTo(401);
+        assertThat(verifier.getStats()).containsEntry("verified", 1L).containsEntry("replayed", 1L);
+    }
+
+    @Test
+    public void keyIdIsRequired() throws Exception {
+        APIGatewayProxyRequestEvent event = signed("k1", "first-secret", "n-1", "{}", false);
+        event.getHeaders().remove("X-Key-Id");
+
+        assertThat(verifier.verify(event).getStatusCode()).isEqualTo(401);
+    }
+
+    @Test
+    public void signatureMustMatchTheNamedKey() throws Exception {
+        APIGatewayProxyRequestEvent event = signed("k1", "second-secret", "n-1", "{}", false);
+
+        assertThat(verifier.verify(event).getStatusCode()).isEqualTo(401);
+    }
+
+    @Test
+    public void base64BodyIsSignedOverItsDecodedBytes() throws Exception {
+        String body = new String(new char[10_000]).replace('\0', 'é');
+
+        assertThat(verifier.verify(signed("k1", "first-secret", "n-1", body, true))).isNull();
+    }
+
+    @Test
+    public void invalidBase64BodyIsRejectedWithoutAffectingTheNextRequest() throws Exception {
+        APIGatewayProxyRequestEvent broken = signed("k1", "first-secret", "n-1", "{}", true);
+        broken.setBody("not*base64");
+
+        assertThat(verifier.verify(broken).getStatusCode()).isEqualTo(401);
+        assertThat(verifier.verify(signed("k1", "first-secret", "n-2", "{}", true))).isNull();
+    }
+
+    @Test
+    public void timestampOutsideTheWindowIsRejected() throws Exception {
+        APIGatewayProxyRequestEvent event = signed("k1", "first-secret", "n-1", "{}", false,
+                                                   System.currentTimeMillis() - 120_000);
+
+        assertThat(verifier.verify(event).getStatusCode()).isEqualTo(401);
+    }
+
+    private static APIGatewayProxyRequestEvent signed(String keyId, String secret, String nonce, String body,
+                                                      boolean base64) throws Exception {
+        return signed(keyId, secret, nonce, body, base64, System.currentTimeMillis());
+    }
+
+    private static APIGatewayProxyRequestEvent signed(String keyId, String secret, String nonce, String body,
+                                                      boolean base64, long timestamp) throws Exception {
+        Mac mac = Mac.getInstance("HmacSHA256");
+        mac.init(new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+        mac.update((timestamp + "\n" + nonce + "\n" + PATH + "\n").getBytes(StandardCharsets.UTF_8));
+        byte[] bodyBytes = body.getBytes(StandardCharsets.UTF_8);
+        StringBuilder hex = new StringBuilder();
+        for (byte b : mac.doFinal(bodyBytes)) {
+            hex.append(String.format("%02x", b));
+        }
+        Map<String, String> headers = new HashMap<>();
+        headers.put("X-Signature", hex.toString());
+        headers.put("X-Key-Id", keyId);
+        headers.put("X-Timestamp", String.valueOf(timestamp));
+        headers.put("X-Nonce", nonce);
+        return new APIGatewayProxyRequestEvent().withPath(PATH).withHeaders(headers)
+                .withBody(base64 ? Base64.getEncoder().encodeToString(bodyBytes) : body)
+                .withIsBase64Encoded(base64);
+    }
+}
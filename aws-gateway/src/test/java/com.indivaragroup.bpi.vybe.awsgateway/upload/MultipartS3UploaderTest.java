@@ -0,0 +1,142 @@
+package com.indivaragroup.bpi.vybe.awsgateway.upload;
+
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.indivaragroup.bpi.vybe.awsgateway.routing.Route;
+import com.indivaragroup.bpi.vybe.awsgateway.routing.RoutePolicy;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+public class MultipartS3UploaderTest {
+
+    private static final String CONTENT_TYPE = "multipart/form-data; boundary=\"b0undary\"; charset=UTF-8";
+    private static final String FORM = "preamble\r\n"
+            + "--b0undary\r\n"
+            + "Content-Disposition: form-data; name=\"title\"\r\n\r\n"
+            + "Holiday\r\n"
+            + "--b0undary\r\n"
+            + "Content-Disposition: form-data; name=\"photo\"; filename=\"C:\\\\pics\\\\my photo.jpg\"\r\n"
+            + "Content-Type: image/jpeg\r\n\r\n"
+            + "jpeg-bytes\r\n"
+            + "--b0undary--\r\n";
+
+    private AmazonS3 s3Client;
+    private MultipartS3Uploader uploader;
+    private final Map<String, String> objects = new HashMap<>();
+
+    @Before
+    public void setUp() {
+        s3Client = mock(AmazonS3.class);
+        doAnswer(invocation -> {
+            InputStream content = invocation.getArgument(2);
+            objects.put(invocation.getArgument(1), new String(content.readAllBytes(), StandardCharsets.UTF_8));
+            return null;
+        }).when(s3Client).putObject(anyString(), anyString(), any(InputStream.class), any(ObjectMetadata.class));
+        uploader = new MultipartS3Uploader(s3Client);
+        ReflectionTestUtils.setField(uploader, "bucketName", "uploads");
+        ReflectionTestUtils.setField(uploader, "keyPrefix", "in/");
+        ReflectionTestUtils.setField(uploader, "partSize", 1024);
+        ReflectionTestUtils.setField(uploader, "cacheControl", "no-cache");
+        ReflectionTestUtils.setField(uploader, "maxFieldBytes", 16);
+    }
+
+    @Test
+    public void base64FormIsSplitIntoFieldsAndObjects() throws Exception {
+        List<UploadedPart> parts = uploader.upload(base64(FORM), true, CONTENT_TYPE);
+
+        assertUploaded(parts);
+    }
+
+    @Test
+    public void textFormIsReadWithoutBase64Decoding() throws Exception {
+        List<UploadedPart> parts = uploader.upload(FORM, false, CONTENT_TYPE);
+
+        assertUploaded(parts);
+    }
+
+    @Test
+    public void failedUploadDeletesObjectsAlreadyWritten() {
+        String form = FORM.replace("--b0undary--\r\n", "--b0undary\r\n"
+                + "Content-Disposition: form-data; name=\"second\"; filename=\"b.txt\"\r\n\r\n"
+                + "b\r\n"
+                + "--b0undary--\r\n");
+        doAnswer(invocation -> {
+            String key = invocation.getArgument(1);
+            if (key.endsWith("b.txt")) {
+                throw new IllegalStateException("S3 unavailable");
+            }
+            objects.put(key, "");
+            return null;
+        }).when(s3Client).putObject(anyString(), anyString(), any(InputStream.class), any(ObjectMetadata.class));
+
+        assertThatThrownBy(() -> uploader.upload(form, false, CONTENT_TYPE)).hasMessageContaining("b.txt");
+
+        String photoKey = objects.keySet().iterator().next();
+        verify(s3Client).deleteObject("uploads", photoKey);
+    }
+
+    @Test
+    public void oversizedFieldIsRejected() {
+        String form = FORM.replace("Holiday", "A very long holiday title");
+
+        assertThatThrownBy(() -> uploader.upload(form, false, CONTENT_TYPE))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("'title'");
+    }
+
+    @Test
+    public void missingBoundaryIsRejected() {
+        assertThatThrownBy(() -> uploader.upload(FORM, false, "multipart/form-data"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("boundary");
+    }
+
+    @Test
+    public void s3UploadIsARouteOption() {
+        Route plain = Route.builder().pattern("/form").policy(RoutePolicy.TOKEN).build();
+        Route upload = Route.builder().pattern("/upload").policy(RoutePolicy.TOKEN)
+                .option(MultipartS3Uploader.S3_OPTION, "true").build();
+        Route invalid = Route.builder().pattern("/bad").policy(RoutePolicy.TOKEN)
+                .option(MultipartS3Uploader.S3_OPTION, "yes").build();
+
+        assertThat(uploader.uploadsToS3(plain)).isFalse();
+        assertThat(uploader.uploadsToS3(upload)).isTrue();
+        assertThatThrownBy(() -> uploader.validate(invalid)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private void assertUploaded(List<UploadedPart> parts) {
+        assertThat(parts).hasSize(2);
+        assertThat(parts.get(0).isFile()).isFalse();
+        assertThat(parts.get(0).getFieldName()).isEqualTo("title");
+        assertThat(parts.get(0).getValue()).isEqualTo("Holiday");
+
+        UploadedPart photo = parts.get(1);
+        assertThat(photo.isFile()).isTrue();
+        assertThat(photo.getFieldName()).isEqualTo("photo");
+        assertThat(photo.getBucket()).isEqualTo("uploads");
+        assertThat(photo.getKey()).startsWith("in/").endsWith("-my_photo.jpg");
+        assertThat(photo.getContentType()).isEqualTo("image/jpeg");
+        assertThat(photo.getSize()).isEqualTo(10);
+        assertThat(objects).containsEntry(photo.getKey(), "jpeg-bytes");
+        verify(s3Client).putObject(eq("uploads"), eq(photo.getKey()), any(InputStream.class), any(ObjectMetadata.class));
+    }
+
+    private static String base64(String text) {
+        return Base64.getEncoder().encodeToString(text.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,87 @@
+package com.indivaragroup.bpi.vybe.awsgateway.upload;
+
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.*;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+public class S3MultipartOutputStreamTest {
+
+    private static final int PART_SIZE = 16 * 1024;
+
+    private AmazonS3 s3Client;
+    private final List<Long> partSizes = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        s3Client = mock(AmazonS3.class);
+        InitiateMultipartUploadResult initiated = new InitiateMultipartUploadResult();
+        initiated.setUploadId("upload-1");
+        doReturn(initiated).when(s3Client).initiateMultipartUpload(any(InitiateMultipartUploadRequest.class));
+        doAnswer(invocation -> {
+            UploadPartRequest request = invocation.getArgument(0);
+            partSizes.add(request.getPartSize());
+            UploadPartResult result = new UploadPartResult();
+            result.setPartNumber(request.getPartNumber());
+            result.setETag("etag-" + request.getPartNumber());
+            return result;
+        }).when(s3Client).uploadPart(any(UploadPartRequest.class));
+    }
+
+    @Test
+    public void smallObjectIsWrittenWithOnePut() throws IOException {
+        S3MultipartOutputStream out = stream();
+
+        out.write(new byte[100], 0, 100);
+        out.write(1);
+        out.close();
+
+        ArgumentCaptor<ObjectMetadata> metadata = ArgumentCaptor.forClass(ObjectMetadata.class);
+        verify(s3Client).putObject(anyString(), anyString(), any(InputStream.class), metadata.capture());
+        assertThat(metadata.getValue().getContentLength()).isEqualTo(101);
+        assertThat(out.getSize()).isEqualTo(101);
+        verify(s3Client, never()).initiateMultipartUpload(any(InitiateMultipartUploadRequest.class));
+    }
+
+    @Test
+    public void largeObjectIsSentInFullParts() throws IOException {
+        S3MultipartOutputStream out = stream();
+
+        out.write(new byte[PART_SIZE * 2 + 10], 0, PART_SIZE * 2 + 10);
+        out.close();
+
+        assertThat(partSizes).containsExactly((long) PART_SIZE, (long) PART_SIZE, 10L);
+        ArgumentCaptor<CompleteMultipartUploadRequest> complete = ArgumentCaptor.forClass(CompleteMultipartUploadRequest.class);
+        verify(s3Client).completeMultipartUpload(complete.capture());
+        assertThat(complete.getValue().getPartETags()).hasSize(3);
+        verify(s3Client, never()).putObject(anyString(), anyString(), any(InputStream.class), any(ObjectMetadata.class));
+    }
+
+    @Test
+    public void failedPartAbortsTheUpload() throws IOException {
+        doThrow(new IllegalStateException("S3 unavailable")).when(s3Client).uploadPart(any(UploadPartRequest.class));
+        S3MultipartOutputStream out = stream();
+
+        assertThatThrownBy(() -> out.write(new byte[PART_SIZE + 1], 0, PART_SIZE + 1)).isInstanceOf(IOException.class);
+
+        verify(s3Client).abortMultipartUpload(any(AbortMultipartUploadRequest.class));
+        out.close();
+        verify(s3Client, never()).completeMultipartUpload(any(CompleteMultipartUploadRequest.class));
+    }
+
+    private S3MultipartOutputStream stream() {
+        return new S3MultipartOutputStream(s3Client, "uploads", "key", new ObjectMetadata(), PART_SIZE);
+    }
+}
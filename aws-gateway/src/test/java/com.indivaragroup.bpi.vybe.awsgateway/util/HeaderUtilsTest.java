@@ -0,0 +1,39 @@
+package com.indivaragroup.bpi.vybe.awsgateway.util;
+
+import org.junit.Test;
+
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class HeaderUtilsTest {
+
+    @Test
+    public void headerLookupIgnoresCase() {
+        assertThat(HeaderUtils.getHeader(Collections.singletonMap("content-type", "text/plain"), "Content-Type"))
+                .isEqualTo("text/plain");
+        assertThat(HeaderUtils.getHeader(null, "Content-Type")).isNull();
+    }
+
+    @Test
+    public void acceptsListedEncoding() {
+        assertThat(HeaderUtils.acceptsEncoding("gzip, deflate, br", "gzip")).isTrue();
+        assertThat(HeaderUtils.acceptsEncoding("GZIP;q=0.5", "gzip")).isTrue();
+        assertThat(HeaderUtils.acceptsEncoding("deflate", "gzip")).isFalse();
+        assertThat(HeaderUtils.acceptsEncoding(null, "gzip")).isFalse();
+    }
+
+    @Test
+    public void zeroQualityRefusesEncoding() {
+        assertThat(HeaderUtils.acceptsEncoding("gzip;q=0", "gzip")).isFalse();
+        assertThat(HeaderUtils.acceptsEncoding("br, gzip ; Q=0.000", "gzip")).isFalse();
+        assertThat(HeaderUtils.acceptsEncoding("*, gzip;q=0", "gzip")).isFalse();
+    }
+
+    @Test
+    public void wildcardCoversUnlistedEncodings() {
+        assertThat(HeaderUtils.acceptsEncoding("br, *", "gzip")).isTrue();
+        assertThat(HeaderUtils.acceptsEncoding("*;q=0", "gzip")).isFalse();
+        assertThat(HeaderUtils.acceptsEncoding("*;q=0, gzip", "gzip")).isTrue();
+    }
+}
@@ -0,0 +1,187 @@
+package com.indivaragroup.bpi.vybe.awsgateway.validation;
+
+import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyRequestEvent;
+import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyResponseEvent;
+import com.indivaragroup.bpi.vybe.awsgateway.context.RequestContext;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+public class TokenValidationCacheTest {
+
+    private ValidatorService validatorService;
+    private TokenValidationCache cache;
+
+    @Before
+    public void setUp() throws Exception {
+        validatorService = mock(ValidatorService.class);
+        when(validatorService.validateResponseToken(any())).thenAnswer(invocation -> {
+            APIGatewayProxyRequestEvent event = invocation.getArgument(0);
+            Map<String, String> headers = new HashMap<>(event.getHeaders());
+            if (headers.get("Authorization").startsWith("Bearer bad")) {
+                return new APIGatewayProxyResponseEvent().withStatusCode(401).withBody("{\"error\":\"unauthorized\"}");
+            }
+            headers.put("X-User-Id", "user-1");
+            headers.remove("X-Internal");
+            return new APIGatewayProxyResponseEvent().withStatusCode(200).withHeaders(headers);
+        });
+        cache = new TokenValidationCache(validatorService);
+        ReflectionTestUtils.setField(cache, "enabled", true);
+        ReflectionTestUtils.setField(cache, "maxEntries", 100);
+        ReflectionTestUtils.setField(cache, "ttlMs", 60_000L);
+        ReflectionTestUtils.setField(cache, "negativeTtlMs", 60_000L);
+        ReflectionTestUtils.setField(cache, "expirySkewMs", 0L);
+    }
+
+    private static APIGatewayProxyRequestEvent request(String authorization, String requestId) {
+        Map<String, String> headers = new HashMap<>();
+        headers.put("Authorization", authorization);
+        headers.put("X-Request-Id", requestId);
+        headers.put("X-Internal", "spoofed");
+        return new APIGatewayProxyRequestEvent().withHttpMethod("GET").withPath("/member").withHeaders(headers);
+    }
+
+    private APIGatewayProxyResponseEvent validate(String authorization, String requestId) throws Exception {
+        APIGatewayProxyRequestEvent event = request(authorization, requestId);
+        return cache.validate(event, RequestContext.start(event));
+    }
+
+    private static String jwt(long expSeconds) {
+        Base64.Encoder encoder = Base64.getUrlEncoder().withoutPadding();
+        return encoder.encodeToString("{\"alg\":\"none\"}".getBytes(StandardCharsets.UTF_8)) + "."
+               + encoder.encodeToString(("{\"exp\":" + expSeconds + "}").getBytes(StandardCharsets.UTF_8)) + ".sig";
+    }
+
+    @Test
+    public void hitReappliesValidationHeadersOnTopOfCurrentRequest() throws Exception {
+        APIGatewayProxyResponseEvent first = validate("Bearer good", "req-1");
+        APIGatewayProxyResponseEvent second = validate("Bearer good", "req-2");
+
+        verify(validatorService, times(1)).validateResponseToken(any());
+        assertThat(first.getHeaders()).containsEntry("X-Request-Id", "req-1");
+        assertThat(second.getStatusCode()).isEqualTo(200);
+        assertThat(second.getHeaders())
+                .containsEntry("X-Request-Id", "req-2")
+                .containsEntry("X-User-Id", "user-1")
+                .doesNotContainKey("X-Internal");
+        assertThat(cache.getStats()).containsEntry("hits", 1L).containsEntry("misses", 1L);
+    }
+
+    @Test
+    public void positiveEntryExpiresAfterTtl() throws Exception {
+        ReflectionTestUtils.setField(cache, "ttlMs", 50L);
+
+        validate("Bearer good", "req-1");
+        Thread.sleep(80);
+        validate("Bearer good", "req-2");
+
+        verify(validatorService, times(2)).validateResponseToken(any());
+    }
+
+    @Test
+    public void tokenExpiryShortensTtl() throws Exception {
+        String expired = "Bearer " + jwt(System.currentTimeMillis() / 1000 - 1);
+
+        validate(expired, "req-1");
+        validate(expired, "req-2");
+
+        verify(validatorService, times(2)).validateResponseToken(any());
+        assertThat(cache.getStats()).containsEntry("size", 0L);
+    }
+
+    @Test
+    public void rejectionIsCachedForNegativeTtl() throws Exception {
+        ReflectionTestUtils.setField(cache, "negativeTtlMs", 50L);
+
+        assertThat(validate("Bearer bad", "req-1").getStatusCode()).isEqualTo(401);
+        APIGatewayProxyResponseEvent cached = validate("Bearer bad", "req-2");
+        Thread.sleep(80);
+        validate("Bearer bad", "req-3");
+
+        assertThat(cached.getStatusCode()).isEqualTo(401);
+        assertThat(cached.getBody()).contains("unauthorized");
+        assertThat(cache.getStats()).containsEntry("negativeHits", 1L);
+        verify(validatorService, times(2)).validateResponseToken(any());
+    }
+
+    @Test
+    public void validatorFailuresAreNotCached() throws Exception {
+        doReturn(new APIGatewayProxyResponseEvent().withStatusCode(500))
+                .when(validatorService).validateResponseToken(any());
+
+        validate("Bearer good", "req-1");
+        validate("Bearer good", "req-2");
+
+        verify(validatorService, times(2)).validateResponseToken(any());
+    }
+
+    @Test
+    public void leastRecentlyUsedEntryIsEvicted() throws Exception {
+        ReflectionTestUtils.setField(cache, "maxEntries", 2);
+
+        validate("Bearer good-1", "req");
+        validate("Bearer good-2", "req");
+        validate("Bearer good-1", "req");
+        validate("Bearer good-3", "req");
+        validate("Bearer good-1", "req");
+        validate("Bearer good-2", "req");
+
+        assertThat(cache.getStats()).containsEntry("evictions", 2L).containsEntry("size", 2L);
+        verify(validatorService, times(4)).validateResponseToken(any());
+    }
+
+    @Test
+    public void concurrentMissesShareOneValidation() throws Exception {
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            entered.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            APIGatewayProxyRequestEvent event = invocation.getArgument(0);
+            return new APIGatewayProxyResponseEvent().withStatusCode(200).withHeaders(event.getHeaders());
+        }).when(validatorService).validateResponseToken(any());
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            Future<APIGatewayProxyResponseEvent> leader = executor.submit(() -> validate("Bearer good", "req-0"));
+            assertThat(entered.await(5, TimeUnit.SECONDS)).isTrue();
+            Future<?>[] followers = new Future<?>[3];
+            for (int i = 0; i < followers.length; i++) {
+                String requestId = "req-" + (i + 1);
+                followers[i] = executor.submit(() -> validate("Bearer good", requestId));
+            }
+            while (cache.getStats().get("sharedLoads") < followers.length) {
+                Thread.sleep(5);
+            }
+            release.countDown();
+
+            assertThat(leader.get(5, TimeUnit.SECONDS).getStatusCode()).isEqualTo(200);
+            for (int i = 0; i < followers.length; i++) {
+                APIGatewayProxyResponseEvent response = (APIGatewayProxyResponseEvent) followers[i].get(5, TimeUnit.SECONDS);
+                assertThat(response.getHeaders()).containsEntry("X-Request-Id", "req-" + (i + 1));
+            }
+            verify(validatorService, times(1)).validateResponseToken(any());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void disabledCacheAlwaysCallsValidator() throws Exception {
+        ReflectionTestUtils.setField(cache, "enabled", false);
+
+        validate("Bearer good", "req-1");
+        validate("Bearer good", "req-2");
+
+        verify(validatorService, times(2)).validateResponseToken(any());
+    }
+}